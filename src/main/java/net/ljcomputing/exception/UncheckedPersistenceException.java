@@ -0,0 +1,49 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.exception;
+
+/**
+ * Unchecked wrapper of a persistence exception, thrown where a checked
+ * exception cannot be, such as from a stream of models.
+ *
+ * @author James G. Willmore
+ */
+public class UncheckedPersistenceException extends RuntimeException {
+
+  /** The Constant serialVersionUID. */
+  private static final long serialVersionUID = -2180445036482395671L;
+
+  /**
+   * Instantiates a new unchecked persistence exception.
+   *
+   * @param cause the cause
+   */
+  public UncheckedPersistenceException(final PersistenceException cause) {
+    super(cause);
+  }
+
+  /**
+   * Gets the persistence exception.
+   *
+   * @return the persistence exception
+   * @see java.lang.Throwable#getCause()
+   */
+  @Override
+  public synchronized PersistenceException getCause() {
+    return (PersistenceException) super.getCause();
+  }
+}
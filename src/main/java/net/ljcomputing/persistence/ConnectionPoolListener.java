@@ -0,0 +1,52 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence;
+
+/**
+ * Listener to connection pool events. All methods have empty default
+ * implementations, so listeners implement only the events they need.
+ * Listeners are called on the borrowing thread and should return quickly.
+ *
+ * @author James G. Willmore
+ */
+public interface ConnectionPoolListener {
+
+  /**
+   * A connection was borrowed from the pool.
+   *
+   * @param waitNanos the time the borrow took, in nanoseconds
+   */
+  default void connectionBorrowed(final long waitNanos) {
+  }
+
+  /**
+   * A borrow timed out waiting for a connection, as the pool was exhausted.
+   *
+   * @param waitNanos the time waited, in nanoseconds
+   */
+  default void borrowTimedOut(final long waitNanos) {
+  }
+
+  /**
+   * A borrow failed for a reason other than a time out.
+   *
+   * @param waitNanos the time the borrow took, in nanoseconds
+   * @param cause the cause
+   */
+  default void borrowFailed(final long waitNanos, final Throwable cause) {
+  }
+}
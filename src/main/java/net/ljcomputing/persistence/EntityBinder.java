@@ -0,0 +1,43 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence;
+
+import net.ljcomputing.exception.PersistenceException;
+
+import java.sql.PreparedStatement;
+
+/**
+ * Interface to an entity binder, which binds entity members to prepared
+ * statement parameters.
+ *
+ * @author James G. Willmore
+ */
+public interface EntityBinder {
+
+  /**
+   * Bind the member of the entity for the given column to the prepared
+   * statement parameter.
+   *
+   * @param entity the entity
+   * @param preparedStatement the prepared statement
+   * @param parameterIndex the parameter index
+   * @param column the column
+   * @throws PersistenceException the persistence exception
+   */
+  void bind(Object entity, PreparedStatement preparedStatement,
+      int parameterIndex, String column) throws PersistenceException;
+}
@@ -35,4 +35,19 @@ public interface EntityPopulator {
    * @throws PersistenceException the persistence exception
    */
   void populate(Object entity, ResultSet resultSet) throws PersistenceException;
+
+  /**
+   * Prepare a populator for the rows of the given result set. Implementations
+   * may resolve the column to member mapping once, so populating every
+   * subsequent row skips the metadata and member lookups.
+   *
+   * @param entityClass the entity class
+   * @param resultSet the result set
+   * @return the entity populator to use for the rows of the result set
+   * @throws PersistenceException the persistence exception
+   */
+  default EntityPopulator prepare(Class<?> entityClass, ResultSet resultSet)
+      throws PersistenceException {
+    return this;
+  }
 }
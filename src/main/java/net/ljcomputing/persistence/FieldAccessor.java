@@ -0,0 +1,215 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence;
+
+import net.ljcomputing.exception.PersistenceException;
+
+/**
+ * Interface to a field accessor, which reads and writes a single entity member.
+ * The primitive accessors read and write primitive members without boxing;
+ * the default implementations box through {@link #get} and {@link #set}.
+ *
+ * @author James G. Willmore
+ */
+public interface FieldAccessor {
+
+  /**
+   * Gets the value of the member.
+   *
+   * @param target the target entity
+   * @return the value
+   * @throws PersistenceException the persistence exception
+   */
+  Object get(Object target) throws PersistenceException;
+
+  /**
+   * Sets the value of the member.
+   *
+   * @param target the target entity
+   * @param value the value
+   * @throws PersistenceException the persistence exception
+   */
+  void set(Object target, Object value) throws PersistenceException;
+
+  /**
+   * Gets the member type.
+   *
+   * @return the member type
+   */
+  Class<?> getType();
+
+  /**
+   * Gets the value of a int member.
+   *
+   * @param target the target entity
+   * @return the value
+   * @throws PersistenceException the persistence exception
+   */
+  default int getInt(final Object target) throws PersistenceException {
+    return ((Number) get(target)).intValue();
+  }
+
+  /**
+   * Sets the value of a int member.
+   *
+   * @param target the target entity
+   * @param value the value
+   * @throws PersistenceException the persistence exception
+   */
+  default void setInt(final Object target, final int value)
+      throws PersistenceException {
+    set(target, value);
+  }
+
+  /**
+   * Gets the value of a long member.
+   *
+   * @param target the target entity
+   * @return the value
+   * @throws PersistenceException the persistence exception
+   */
+  default long getLong(final Object target) throws PersistenceException {
+    return ((Number) get(target)).longValue();
+  }
+
+  /**
+   * Sets the value of a long member.
+   *
+   * @param target the target entity
+   * @param value the value
+   * @throws PersistenceException the persistence exception
+   */
+  default void setLong(final Object target, final long value)
+      throws PersistenceException {
+    set(target, value);
+  }
+
+  /**
+   * Gets the value of a double member.
+   *
+   * @param target the target entity
+   * @return the value
+   * @throws PersistenceException the persistence exception
+   */
+  default double getDouble(final Object target) throws PersistenceException {
+    return ((Number) get(target)).doubleValue();
+  }
+
+  /**
+   * Sets the value of a double member.
+   *
+   * @param target the target entity
+   * @param value the value
+   * @throws PersistenceException the persistence exception
+   */
+  default void setDouble(final Object target, final double value)
+      throws PersistenceException {
+    set(target, value);
+  }
+
+  /**
+   * Gets the value of a float member.
+   *
+   * @param target the target entity
+   * @return the value
+   * @throws PersistenceException the persistence exception
+   */
+  default float getFloat(final Object target) throws PersistenceException {
+    return ((Number) get(target)).floatValue();
+  }
+
+  /**
+   * Sets the value of a float member.
+   *
+   * @param target the target entity
+   * @param value the value
+   * @throws PersistenceException the persistence exception
+   */
+  default void setFloat(final Object target, final float value)
+      throws PersistenceException {
+    set(target, value);
+  }
+
+  /**
+   * Gets the value of a short member.
+   *
+   * @param target the target entity
+   * @return the value
+   * @throws PersistenceException the persistence exception
+   */
+  default short getShort(final Object target) throws PersistenceException {
+    return ((Number) get(target)).shortValue();
+  }
+
+  /**
+   * Sets the value of a short member.
+   *
+   * @param target the target entity
+   * @param value the value
+   * @throws PersistenceException the persistence exception
+   */
+  default void setShort(final Object target, final short value)
+      throws PersistenceException {
+    set(target, value);
+  }
+
+  /**
+   * Gets the value of a byte member.
+   *
+   * @param target the target entity
+   * @return the value
+   * @throws PersistenceException the persistence exception
+   */
+  default byte getByte(final Object target) throws PersistenceException {
+    return ((Number) get(target)).byteValue();
+  }
+
+  /**
+   * Sets the value of a byte member.
+   *
+   * @param target the target entity
+   * @param value the value
+   * @throws PersistenceException the persistence exception
+   */
+  default void setByte(final Object target, final byte value)
+      throws PersistenceException {
+    set(target, value);
+  }
+
+  /**
+   * Gets the value of a boolean member.
+   *
+   * @param target the target entity
+   * @return the value
+   * @throws PersistenceException the persistence exception
+   */
+  default boolean getBoolean(final Object target) throws PersistenceException {
+    return (Boolean) get(target);
+  }
+
+  /**
+   * Sets the value of a boolean member.
+   *
+   * @param target the target entity
+   * @param value the value
+   * @throws PersistenceException the persistence exception
+   */
+  default void setBoolean(final Object target, final boolean value)
+      throws PersistenceException {
+    set(target, value);
+  }
+}
@@ -0,0 +1,45 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a model class for which an entity mapper is generated at compile time.
+ * The generated mapper is named after the model with the
+ * <code>EntityMapper</code> suffix, populates the model from a result set and
+ * binds its members to statement parameters without reflection. The mapper of
+ * a nested model is a top level class named after the model and its enclosing
+ * classes, joined by underscores, such as <code>Outer_InnerEntityMapper</code>.
+ * 
+ * <p>
+ * Members are read through getters, or the field itself when accessible from
+ * the model package, and written through setters, or the field itself when
+ * accessible.
+ * </p>
+ *
+ * @author James G. Willmore
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface PersistentEntity {
+}
@@ -0,0 +1,100 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+/**
+ * Connection pool engine, the implementation behind the connection pool.
+ * Implementations are selected with the <code>cp.engine</code> key of the
+ * database properties, and must provide a public constructor taking the
+ * connection pool configuration.
+ *
+ * @author James G. Willmore
+ */
+public interface PoolEngine extends AutoCloseable {
+
+  /**
+   * Borrow a connection; closing the connection returns it to the pool.
+   *
+   * @return the connection
+   * @throws SQLException if a connection cannot be obtained; a
+   *           {@link java.sql.SQLTimeoutException} if none became available in
+   *           time
+   */
+  Connection getConnection() throws SQLException;
+
+  /**
+   * Gets the data source view of the pool.
+   *
+   * @return the data source
+   */
+  DataSource getDataSource();
+
+  /**
+   * Gets the number of borrowed connections.
+   *
+   * @return the number of borrowed connections
+   */
+  int getNumActive();
+
+  /**
+   * Gets the number of idle connections.
+   *
+   * @return the number of idle connections
+   */
+  int getNumIdle();
+
+  /**
+   * Gets the number of threads waiting for a connection.
+   *
+   * @return the number of waiting threads
+   */
+  int getNumWaiters();
+
+  /**
+   * Gets the maximum number of connections.
+   *
+   * @return the maximum number of connections
+   */
+  int getMaxTotal();
+
+  /**
+   * Gets the number of connections created by the pool.
+   *
+   * @return the created count
+   */
+  long getCreatedCount();
+
+  /**
+   * Gets the number of connections destroyed by the pool.
+   *
+   * @return the destroyed count
+   */
+  long getDestroyedCount();
+
+  /**
+   * Close the pool and its idle connections.
+   *
+   * @throws SQLException the SQL exception
+   * @see java.lang.AutoCloseable#close()
+   */
+  void close() throws SQLException;
+}
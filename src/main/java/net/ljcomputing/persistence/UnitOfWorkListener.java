@@ -0,0 +1,40 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence;
+
+/**
+ * Listener to the completion of a unit of work. All methods have empty default
+ * implementations, so listeners implement only the events they need.
+ * Listeners are called on the thread completing the unit of work, after its
+ * connection has been returned to the pool.
+ *
+ * @author James G. Willmore
+ */
+public interface UnitOfWorkListener {
+
+  /**
+   * The unit of work was committed.
+   */
+  default void afterCommit() {
+  }
+
+  /**
+   * The unit of work was rolled back.
+   */
+  default void afterRollback() {
+  }
+}
@@ -0,0 +1,260 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence.impl;
+
+import net.ljcomputing.StringUtils;
+import net.ljcomputing.exception.PersistenceException;
+import net.ljcomputing.persistence.EntityBinder;
+import net.ljcomputing.persistence.EntityPopulator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Base class of the entity mappers generated for
+ * {@link net.ljcomputing.persistence.PersistentEntity} models. Members are
+ * addressed by their position in the member list given to the constructor,
+ * so the generated code is a switch over member positions.
+ *
+ * @author James G. Willmore
+ *
+ * @param <T> the entity type
+ */
+public abstract class AbstractEntityMapper<T>
+    implements EntityPopulator, EntityBinder {
+
+  /** The SLF4J logger. */
+  private static final Logger LOGGER = LoggerFactory
+      .getLogger(AbstractEntityMapper.class);
+
+  /** The suffix of the generated mapper class names. */
+  public static final String GENERATED_SUFFIX = "EntityMapper";
+
+  /** The generated mappers, keyed by model class. */
+  private static final ClassValue<AbstractEntityMapper<?>> MAPPERS =
+      new ClassValue<AbstractEntityMapper<?>>() {
+        @Override
+        protected AbstractEntityMapper<?> computeValue(final Class<?> type) {
+          return load(type);
+        }
+      };
+
+  /** The entity class. */
+  private final Class<T> entityClass;
+
+  /** The member positions, keyed by member name. */
+  private final Map<String, Integer> members;
+
+  /**
+   * Instantiates a new entity mapper.
+   *
+   * @param entityClass the entity class
+   * @param memberNames the member names
+   */
+  protected AbstractEntityMapper(final Class<T> entityClass,
+      final String... memberNames) {
+    this.entityClass = entityClass;
+    this.members = new HashMap<String, Integer>();
+
+    for (int m = 0; m < memberNames.length; m++) {
+      members.put(memberNames[m], m);
+    }
+  }
+
+  /**
+   * Find the generated mapper of the given model class.
+   *
+   * @param modelClass the model class
+   * @return the generated mapper, or null if none was generated
+   */
+  public static AbstractEntityMapper<?> find(final Class<?> modelClass) {
+    return MAPPERS.get(modelClass);
+  }
+
+  /**
+   * Gets the binary name of the mapper generated for the model class of the
+   * given binary name: in the model package, the model simple name prefixed
+   * by the names of its enclosing classes, joined by underscores, and
+   * followed by the generated suffix, such as
+   * <code>Outer_InnerEntityMapper</code>. The entity mapper processor names
+   * the mappers it generates the same way.
+   *
+   * @param modelName the binary name of the model class
+   * @return the binary name of the generated mapper
+   */
+  public static String getMapperName(final String modelName) {
+    final int simple = modelName.lastIndexOf('.') + 1;
+
+    return modelName.substring(0, simple)
+        + modelName.substring(simple).replace('$', '_') + GENERATED_SUFFIX;
+  }
+
+  /**
+   * Load the generated mapper of the given model class.
+   *
+   * @param modelClass the model class
+   * @return the generated mapper, or null if none was generated
+   */
+  private static AbstractEntityMapper<?> load(final Class<?> modelClass) {
+    try {
+      final Class<?> mapperClass = Class.forName(
+          getMapperName(modelClass.getName()), true,
+          modelClass.getClassLoader());
+
+      if (AbstractEntityMapper.class.isAssignableFrom(mapperClass)) {
+        return (AbstractEntityMapper<?>) mapperClass
+            .getDeclaredConstructor().newInstance();
+      }
+    } catch (ClassNotFoundException exception) {
+      LOGGER.debug("No generated mapper for {}", modelClass.getName());
+    } catch (ReflectiveOperationException | LinkageError exception) {
+      LOGGER.warn("Cannot instantiate the generated mapper for {}: ",
+          modelClass.getName(), exception);
+    }
+
+    return null;
+  }
+
+  /**
+   * Gets the entity class.
+   *
+   * @return the entity class
+   */
+  public Class<T> getEntityClass() {
+    return entityClass;
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.EntityPopulator#populate(java.lang.Object, java.sql.ResultSet)
+   */
+  public void populate(final Object entity, final ResultSet resultSet)
+      throws PersistenceException {
+    populate(entity, resultSet, resolve(resultSet));
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.EntityPopulator#prepare(java.lang.Class, java.sql.ResultSet)
+   */
+  public EntityPopulator prepare(final Class<?> entityClass,
+      final ResultSet resultSet) throws PersistenceException {
+    final int[] plan = resolve(resultSet);
+
+    return new EntityPopulator() {
+      public void populate(final Object entity, final ResultSet resultSet)
+          throws PersistenceException {
+        AbstractEntityMapper.this.populate(entity, resultSet, plan);
+      }
+    };
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.EntityBinder#bind(java.lang.Object, java.sql.PreparedStatement, int, java.lang.String)
+   */
+  public void bind(final Object entity,
+      final PreparedStatement preparedStatement, final int parameterIndex,
+      final String column) throws PersistenceException {
+    final Integer member = members.get(StringUtils.toMemberCase(column));
+
+    if (null == member) {
+      throw new PersistenceException(new NoSuchFieldException(
+          entityClass.getName() + "." + StringUtils.toMemberCase(column)));
+    }
+
+    try {
+      bindMember(entityClass.cast(entity), member, preparedStatement,
+          parameterIndex);
+    } catch (SQLException | RuntimeException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * Resolve the member positions of the result set columns.
+   *
+   * @param resultSet the result set
+   * @return the member positions, indexed by column position less one; -1 for
+   *         columns without a member
+   * @throws PersistenceException the persistence exception
+   */
+  private int[] resolve(final ResultSet resultSet)
+      throws PersistenceException {
+    final ResultSetShape shape = ResultSetShape.of(resultSet);
+    final int[] plan = new int[shape.getColumnCount()];
+
+    for (int c = 0; c < plan.length; c++) {
+      final Integer member = members
+          .get(StringUtils.toMemberCase(shape.getColumnName(c + 1)));
+      plan[c] = null == member ? -1 : member;
+    }
+
+    return plan;
+  }
+
+  /**
+   * Populate the entity from the current row of the result set.
+   *
+   * @param entity the entity
+   * @param resultSet the result set
+   * @param plan the member positions, indexed by column position less one
+   * @throws PersistenceException the persistence exception
+   */
+  private void populate(final Object entity, final ResultSet resultSet,
+      final int... plan) throws PersistenceException {
+    final T target = entityClass.cast(entity);
+
+    try {
+      for (int c = 0; c < plan.length; c++) {
+        if (plan[c] >= 0) {
+          populateMember(target, plan[c], resultSet, c + 1);
+        }
+      }
+    } catch (SQLException | RuntimeException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * Populate the member at the given position from the result set column.
+   *
+   * @param entity the entity
+   * @param member the member position
+   * @param resultSet the result set
+   * @param column the column
+   * @throws SQLException the SQL exception
+   */
+  protected abstract void populateMember(T entity, int member,
+      ResultSet resultSet, int column) throws SQLException;
+
+  /**
+   * Bind the member at the given position to the prepared statement parameter.
+   *
+   * @param entity the entity
+   * @param member the member position
+   * @param preparedStatement the prepared statement
+   * @param parameterIndex the parameter index
+   * @throws SQLException the SQL exception
+   */
+  protected abstract void bindMember(T entity, int member,
+      PreparedStatement preparedStatement, int parameterIndex)
+      throws SQLException;
+}
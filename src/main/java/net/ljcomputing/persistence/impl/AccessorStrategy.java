@@ -0,0 +1,203 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence.impl;
+
+import net.ljcomputing.exception.PersistenceException;
+import net.ljcomputing.persistence.FieldAccessor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.LambdaConversionException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Field accessor strategies. Accessors are cached per class and member name,
+ * so resolving an accessor on the hot path is a map lookup.
+ *
+ * @author James G. Willmore
+ */
+public enum AccessorStrategy {
+
+  /** Core reflection, using {@link Field#get} and {@link Field#set}. */
+  REFLECTION {
+    /**
+     * @see net.ljcomputing.persistence.impl.AccessorStrategy#newAccessor(java.lang.reflect.Field)
+     */
+    @Override
+    FieldAccessor newAccessor(final Field field) {
+      return new ReflectionFieldAccessor(field);
+    }
+  },
+
+  /**
+   * Method handles, falling back to core reflection for members a method handle
+   * cannot write (such as final fields).
+   */
+  METHOD_HANDLE {
+    /**
+     * @see net.ljcomputing.persistence.impl.AccessorStrategy#newAccessor(java.lang.reflect.Field)
+     */
+    @Override
+    FieldAccessor newAccessor(final Field field) {
+      try {
+        return new MethodHandleFieldAccessor(field);
+      } catch (IllegalAccessException exception) {
+        LOGGER.debug("Falling back to reflection for {}: {}", field,
+            exception.getMessage());
+        return REFLECTION.newAccessor(field);
+      }
+    }
+  },
+
+  /**
+   * Functions built by the lambda metafactory over the public bean getter and
+   * setter of the member, falling back to method handles for members without
+   * them.
+   */
+  LAMBDA {
+    /**
+     * @see net.ljcomputing.persistence.impl.AccessorStrategy#newAccessor(java.lang.reflect.Field)
+     */
+    @Override
+    FieldAccessor newAccessor(final Field field) {
+      try {
+        return new LambdaFieldAccessor(field);
+      } catch (ReflectiveOperationException
+          | LambdaConversionException exception) {
+        LOGGER.debug("Falling back to method handles for {}: {}", field,
+            exception.getMessage());
+        return METHOD_HANDLE.newAccessor(field);
+      }
+    }
+  };
+
+  /** The SLF4J logger. */
+  private static final Logger LOGGER = LoggerFactory
+      .getLogger(AccessorStrategy.class);
+
+  /** The accessors, keyed by class and member name. */
+  private final ClassValue<ConcurrentMap<String, FieldAccessor>> accessors =
+      new ClassValue<ConcurrentMap<String, FieldAccessor>>() {
+        @Override
+        protected ConcurrentMap<String, FieldAccessor> computeValue(
+            final Class<?> type) {
+          return new ConcurrentHashMap<String, FieldAccessor>();
+        }
+      };
+
+  /**
+   * Gets the default strategy.
+   *
+   * @return the default strategy
+   */
+  public static AccessorStrategy getDefault() {
+    return LAMBDA;
+  }
+
+  /**
+   * Creates a new accessor for the given field.
+   *
+   * @param field the field
+   * @return the field accessor
+   */
+  abstract FieldAccessor newAccessor(Field field);
+
+  /**
+   * Find the accessor for the given member of the class, or its superclasses.
+   *
+   * @param klass the class
+   * @param memberName the member name
+   * @return the field accessor, or null if the class has no such member
+   * @throws PersistenceException the persistence exception
+   */
+  public FieldAccessor findAccessor(final Class<?> klass,
+      final String memberName) throws PersistenceException {
+    final ConcurrentMap<String, FieldAccessor> members = accessors.get(klass);
+    FieldAccessor accessor = members.get(memberName);
+
+    if (null == accessor) {
+      final Field field = findField(klass, memberName);
+
+      if (null == field) {
+        return null;
+      }
+
+      try {
+        accessor = newAccessor(field);
+      } catch (SecurityException exception) {
+        throw new PersistenceException(exception);
+      }
+
+      final FieldAccessor existing = members.putIfAbsent(memberName, accessor);
+
+      if (null != existing) {
+        accessor = existing;
+      }
+    }
+
+    return accessor;
+  }
+
+  /**
+   * Gets the accessor for the given member of the class, or its superclasses.
+   *
+   * @param klass the class
+   * @param memberName the member name
+   * @return the field accessor
+   * @throws PersistenceException if the class has no such member
+   */
+  public FieldAccessor getAccessor(final Class<?> klass,
+      final String memberName) throws PersistenceException {
+    final FieldAccessor accessor = findAccessor(klass, memberName);
+
+    if (null == accessor) {
+      throw new PersistenceException(new NoSuchFieldException(
+          klass.getName() + "." + memberName));
+    }
+
+    return accessor;
+  }
+
+  /**
+   * Find the declared field of the class or its superclasses. As the entity
+   * populator always has, a field declared by a superclass takes precedence
+   * over a field of the same name declared by a subclass.
+   *
+   * @param klass the class
+   * @param memberName the member name
+   * @return the field, or null if not found
+   */
+  static Field findField(final Class<?> klass, final String memberName) {
+    Field found = null;
+
+    for (Class<?> type = klass; null != type
+        && Object.class != type; type = type.getSuperclass()) {
+      for (final Field field : type.getDeclaredFields()) {
+        if (memberName.equals(field.getName())
+            && !Modifier.isStatic(field.getModifiers())) {
+          found = field;
+        }
+      }
+    }
+
+    return found;
+  }
+}
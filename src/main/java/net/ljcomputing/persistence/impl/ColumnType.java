@@ -0,0 +1,611 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence.impl;
+
+import net.ljcomputing.exception.PersistenceException;
+import net.ljcomputing.persistence.FieldAccessor;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Column types, which read and bind a member with the JDBC getter and setter
+ * specific to its type. The column type is picked once per member, from the
+ * member type and, when reading, the SQL type of the column; members whose
+ * type has no specific column type, or whose column is of an incompatible SQL
+ * type, are read and bound as objects.
+ *
+ * @author James G. Willmore
+ */
+public enum ColumnType {
+
+  /** Primitive int members. */
+  INT(int.class, Types.INTEGER, Types.INTEGER, Types.SMALLINT, Types.TINYINT) {
+    @Override
+    void read(final ResultSet resultSet, final int column,
+        final FieldAccessor accessor, final Object entity)
+        throws SQLException, PersistenceException {
+      accessor.setInt(entity, resultSet.getInt(column));
+    }
+
+    @Override
+    void bind(final PreparedStatement preparedStatement,
+        final int parameterIndex, final FieldAccessor accessor,
+        final Object entity) throws SQLException, PersistenceException {
+      preparedStatement.setInt(parameterIndex, accessor.getInt(entity));
+    }
+  },
+
+  /** Primitive long members. */
+  LONG(long.class, Types.BIGINT, Types.BIGINT, Types.INTEGER, Types.SMALLINT,
+      Types.TINYINT) {
+    @Override
+    void read(final ResultSet resultSet, final int column,
+        final FieldAccessor accessor, final Object entity)
+        throws SQLException, PersistenceException {
+      accessor.setLong(entity, resultSet.getLong(column));
+    }
+
+    @Override
+    void bind(final PreparedStatement preparedStatement,
+        final int parameterIndex, final FieldAccessor accessor,
+        final Object entity) throws SQLException, PersistenceException {
+      preparedStatement.setLong(parameterIndex, accessor.getLong(entity));
+    }
+  },
+
+  /** Primitive double members. */
+  DOUBLE(double.class, Types.DOUBLE, Types.DOUBLE, Types.FLOAT, Types.REAL) {
+    @Override
+    void read(final ResultSet resultSet, final int column,
+        final FieldAccessor accessor, final Object entity)
+        throws SQLException, PersistenceException {
+      accessor.setDouble(entity, resultSet.getDouble(column));
+    }
+
+    @Override
+    void bind(final PreparedStatement preparedStatement,
+        final int parameterIndex, final FieldAccessor accessor,
+        final Object entity) throws SQLException, PersistenceException {
+      preparedStatement.setDouble(parameterIndex, accessor.getDouble(entity));
+    }
+  },
+
+  /** Primitive float members. */
+  FLOAT(float.class, Types.REAL, Types.REAL) {
+    @Override
+    void read(final ResultSet resultSet, final int column,
+        final FieldAccessor accessor, final Object entity)
+        throws SQLException, PersistenceException {
+      accessor.setFloat(entity, resultSet.getFloat(column));
+    }
+
+    @Override
+    void bind(final PreparedStatement preparedStatement,
+        final int parameterIndex, final FieldAccessor accessor,
+        final Object entity) throws SQLException, PersistenceException {
+      preparedStatement.setFloat(parameterIndex, accessor.getFloat(entity));
+    }
+  },
+
+  /** Primitive short members. */
+  SHORT(short.class, Types.SMALLINT, Types.SMALLINT, Types.TINYINT) {
+    @Override
+    void read(final ResultSet resultSet, final int column,
+        final FieldAccessor accessor, final Object entity)
+        throws SQLException, PersistenceException {
+      accessor.setShort(entity, resultSet.getShort(column));
+    }
+
+    @Override
+    void bind(final PreparedStatement preparedStatement,
+        final int parameterIndex, final FieldAccessor accessor,
+        final Object entity) throws SQLException, PersistenceException {
+      preparedStatement.setShort(parameterIndex, accessor.getShort(entity));
+    }
+  },
+
+  /** Primitive byte members. */
+  BYTE(byte.class, Types.TINYINT, Types.TINYINT) {
+    @Override
+    void read(final ResultSet resultSet, final int column,
+        final FieldAccessor accessor, final Object entity)
+        throws SQLException, PersistenceException {
+      accessor.setByte(entity, resultSet.getByte(column));
+    }
+
+    @Override
+    void bind(final PreparedStatement preparedStatement,
+        final int parameterIndex, final FieldAccessor accessor,
+        final Object entity) throws SQLException, PersistenceException {
+      preparedStatement.setByte(parameterIndex, accessor.getByte(entity));
+    }
+  },
+
+  /** Primitive boolean members. */
+  BOOLEAN(boolean.class, Types.BOOLEAN, Types.BOOLEAN, Types.BIT) {
+    @Override
+    void read(final ResultSet resultSet, final int column,
+        final FieldAccessor accessor, final Object entity)
+        throws SQLException, PersistenceException {
+      accessor.setBoolean(entity, resultSet.getBoolean(column));
+    }
+
+    @Override
+    void bind(final PreparedStatement preparedStatement,
+        final int parameterIndex, final FieldAccessor accessor,
+        final Object entity) throws SQLException, PersistenceException {
+      preparedStatement.setBoolean(parameterIndex, accessor.getBoolean(entity));
+    }
+  },
+
+  /** Integer members. */
+  INTEGER_OBJECT(Integer.class, Types.INTEGER, Types.INTEGER, Types.SMALLINT,
+      Types.TINYINT) {
+    @Override
+    void read(final ResultSet resultSet, final int column,
+        final FieldAccessor accessor, final Object entity)
+        throws SQLException, PersistenceException {
+      final int value = resultSet.getInt(column);
+      accessor.set(entity, resultSet.wasNull() ? null : Integer.valueOf(value));
+    }
+
+    @Override
+    void bind(final PreparedStatement preparedStatement,
+        final int parameterIndex, final FieldAccessor accessor,
+        final Object entity) throws SQLException, PersistenceException {
+      final Integer value = (Integer) accessor.get(entity);
+
+      if (null == value) {
+        preparedStatement.setNull(parameterIndex, getNullType());
+      } else {
+        preparedStatement.setInt(parameterIndex, value);
+      }
+    }
+  },
+
+  /** Long members. */
+  LONG_OBJECT(Long.class, Types.BIGINT, Types.BIGINT, Types.INTEGER,
+      Types.SMALLINT, Types.TINYINT) {
+    @Override
+    void read(final ResultSet resultSet, final int column,
+        final FieldAccessor accessor, final Object entity)
+        throws SQLException, PersistenceException {
+      final long value = resultSet.getLong(column);
+      accessor.set(entity, resultSet.wasNull() ? null : Long.valueOf(value));
+    }
+
+    @Override
+    void bind(final PreparedStatement preparedStatement,
+        final int parameterIndex, final FieldAccessor accessor,
+        final Object entity) throws SQLException, PersistenceException {
+      final Long value = (Long) accessor.get(entity);
+
+      if (null == value) {
+        preparedStatement.setNull(parameterIndex, getNullType());
+      } else {
+        preparedStatement.setLong(parameterIndex, value);
+      }
+    }
+  },
+
+  /** Double members. */
+  DOUBLE_OBJECT(Double.class, Types.DOUBLE, Types.DOUBLE, Types.FLOAT,
+      Types.REAL) {
+    @Override
+    void read(final ResultSet resultSet, final int column,
+        final FieldAccessor accessor, final Object entity)
+        throws SQLException, PersistenceException {
+      final double value = resultSet.getDouble(column);
+      accessor.set(entity, resultSet.wasNull() ? null : Double.valueOf(value));
+    }
+
+    @Override
+    void bind(final PreparedStatement preparedStatement,
+        final int parameterIndex, final FieldAccessor accessor,
+        final Object entity) throws SQLException, PersistenceException {
+      final Double value = (Double) accessor.get(entity);
+
+      if (null == value) {
+        preparedStatement.setNull(parameterIndex, getNullType());
+      } else {
+        preparedStatement.setDouble(parameterIndex, value);
+      }
+    }
+  },
+
+  /** Float members. */
+  FLOAT_OBJECT(Float.class, Types.REAL, Types.REAL) {
+    @Override
+    void read(final ResultSet resultSet, final int column,
+        final FieldAccessor accessor, final Object entity)
+        throws SQLException, PersistenceException {
+      final float value = resultSet.getFloat(column);
+      accessor.set(entity, resultSet.wasNull() ? null : Float.valueOf(value));
+    }
+
+    @Override
+    void bind(final PreparedStatement preparedStatement,
+        final int parameterIndex, final FieldAccessor accessor,
+        final Object entity) throws SQLException, PersistenceException {
+      final Float value = (Float) accessor.get(entity);
+
+      if (null == value) {
+        preparedStatement.setNull(parameterIndex, getNullType());
+      } else {
+        preparedStatement.setFloat(parameterIndex, value);
+      }
+    }
+  },
+
+  /** Short members. */
+  SHORT_OBJECT(Short.class, Types.SMALLINT, Types.SMALLINT, Types.TINYINT) {
+    @Override
+    void read(final ResultSet resultSet, final int column,
+        final FieldAccessor accessor, final Object entity)
+        throws SQLException, PersistenceException {
+      final short value = resultSet.getShort(column);
+      accessor.set(entity, resultSet.wasNull() ? null : Short.valueOf(value));
+    }
+
+    @Override
+    void bind(final PreparedStatement preparedStatement,
+        final int parameterIndex, final FieldAccessor accessor,
+        final Object entity) throws SQLException, PersistenceException {
+      final Short value = (Short) accessor.get(entity);
+
+      if (null == value) {
+        preparedStatement.setNull(parameterIndex, getNullType());
+      } else {
+        preparedStatement.setShort(parameterIndex, value);
+      }
+    }
+  },
+
+  /** Byte members. */
+  BYTE_OBJECT(Byte.class, Types.TINYINT, Types.TINYINT) {
+    @Override
+    void read(final ResultSet resultSet, final int column,
+        final FieldAccessor accessor, final Object entity)
+        throws SQLException, PersistenceException {
+      final byte value = resultSet.getByte(column);
+      accessor.set(entity, resultSet.wasNull() ? null : Byte.valueOf(value));
+    }
+
+    @Override
+    void bind(final PreparedStatement preparedStatement,
+        final int parameterIndex, final FieldAccessor accessor,
+        final Object entity) throws SQLException, PersistenceException {
+      final Byte value = (Byte) accessor.get(entity);
+
+      if (null == value) {
+        preparedStatement.setNull(parameterIndex, getNullType());
+      } else {
+        preparedStatement.setByte(parameterIndex, value);
+      }
+    }
+  },
+
+  /** Boolean members. */
+  BOOLEAN_OBJECT(Boolean.class, Types.BOOLEAN, Types.BOOLEAN, Types.BIT) {
+    @Override
+    void read(final ResultSet resultSet, final int column,
+        final FieldAccessor accessor, final Object entity)
+        throws SQLException, PersistenceException {
+      final boolean value = resultSet.getBoolean(column);
+      accessor.set(entity, resultSet.wasNull() ? null : Boolean.valueOf(value));
+    }
+
+    @Override
+    void bind(final PreparedStatement preparedStatement,
+        final int parameterIndex, final FieldAccessor accessor,
+        final Object entity) throws SQLException, PersistenceException {
+      final Boolean value = (Boolean) accessor.get(entity);
+
+      if (null == value) {
+        preparedStatement.setNull(parameterIndex, getNullType());
+      } else {
+        preparedStatement.setBoolean(parameterIndex, value);
+      }
+    }
+  },
+
+  /** String members. */
+  STRING(String.class, Types.VARCHAR, Types.CHAR, Types.VARCHAR,
+      Types.LONGVARCHAR, Types.NCHAR, Types.NVARCHAR, Types.LONGNVARCHAR,
+      Types.CLOB) {
+    @Override
+    void read(final ResultSet resultSet, final int column,
+        final FieldAccessor accessor, final Object entity)
+        throws SQLException, PersistenceException {
+      accessor.set(entity, resultSet.getString(column));
+    }
+
+    @Override
+    void bind(final PreparedStatement preparedStatement,
+        final int parameterIndex, final FieldAccessor accessor,
+        final Object entity) throws SQLException, PersistenceException {
+      final String value = (String) accessor.get(entity);
+
+      if (null == value) {
+        preparedStatement.setNull(parameterIndex, getNullType());
+      } else {
+        preparedStatement.setString(parameterIndex, value);
+      }
+    }
+  },
+
+  /** BigDecimal members. */
+  BIG_DECIMAL(BigDecimal.class, Types.DECIMAL, Types.DECIMAL, Types.NUMERIC) {
+    @Override
+    void read(final ResultSet resultSet, final int column,
+        final FieldAccessor accessor, final Object entity)
+        throws SQLException, PersistenceException {
+      accessor.set(entity, resultSet.getBigDecimal(column));
+    }
+
+    @Override
+    void bind(final PreparedStatement preparedStatement,
+        final int parameterIndex, final FieldAccessor accessor,
+        final Object entity) throws SQLException, PersistenceException {
+      final BigDecimal value = (BigDecimal) accessor.get(entity);
+
+      if (null == value) {
+        preparedStatement.setNull(parameterIndex, getNullType());
+      } else {
+        preparedStatement.setBigDecimal(parameterIndex, value);
+      }
+    }
+  },
+
+  /** Timestamp members. */
+  TIMESTAMP(Timestamp.class, Types.TIMESTAMP, Types.TIMESTAMP) {
+    @Override
+    void read(final ResultSet resultSet, final int column,
+        final FieldAccessor accessor, final Object entity)
+        throws SQLException, PersistenceException {
+      accessor.set(entity, resultSet.getTimestamp(column));
+    }
+
+    @Override
+    void bind(final PreparedStatement preparedStatement,
+        final int parameterIndex, final FieldAccessor accessor,
+        final Object entity) throws SQLException, PersistenceException {
+      final Timestamp value = (Timestamp) accessor.get(entity);
+
+      if (null == value) {
+        preparedStatement.setNull(parameterIndex, getNullType());
+      } else {
+        preparedStatement.setTimestamp(parameterIndex, value);
+      }
+    }
+  },
+
+  /** Date members. */
+  DATE(Date.class, Types.DATE, Types.DATE) {
+    @Override
+    void read(final ResultSet resultSet, final int column,
+        final FieldAccessor accessor, final Object entity)
+        throws SQLException, PersistenceException {
+      accessor.set(entity, resultSet.getDate(column));
+    }
+
+    @Override
+    void bind(final PreparedStatement preparedStatement,
+        final int parameterIndex, final FieldAccessor accessor,
+        final Object entity) throws SQLException, PersistenceException {
+      final Date value = (Date) accessor.get(entity);
+
+      if (null == value) {
+        preparedStatement.setNull(parameterIndex, getNullType());
+      } else {
+        preparedStatement.setDate(parameterIndex, value);
+      }
+    }
+  },
+
+  /** Time members. */
+  TIME(Time.class, Types.TIME, Types.TIME) {
+    @Override
+    void read(final ResultSet resultSet, final int column,
+        final FieldAccessor accessor, final Object entity)
+        throws SQLException, PersistenceException {
+      accessor.set(entity, resultSet.getTime(column));
+    }
+
+    @Override
+    void bind(final PreparedStatement preparedStatement,
+        final int parameterIndex, final FieldAccessor accessor,
+        final Object entity) throws SQLException, PersistenceException {
+      final Time value = (Time) accessor.get(entity);
+
+      if (null == value) {
+        preparedStatement.setNull(parameterIndex, getNullType());
+      } else {
+        preparedStatement.setTime(parameterIndex, value);
+      }
+    }
+  },
+
+  /** Byte array members. */
+  BYTES(byte[].class, Types.VARBINARY, Types.BINARY, Types.VARBINARY,
+      Types.LONGVARBINARY, Types.BLOB) {
+    @Override
+    void read(final ResultSet resultSet, final int column,
+        final FieldAccessor accessor, final Object entity)
+        throws SQLException, PersistenceException {
+      accessor.set(entity, resultSet.getBytes(column));
+    }
+
+    @Override
+    void bind(final PreparedStatement preparedStatement,
+        final int parameterIndex, final FieldAccessor accessor,
+        final Object entity) throws SQLException, PersistenceException {
+      final byte[] value = (byte[]) accessor.get(entity);
+
+      if (null == value) {
+        preparedStatement.setNull(parameterIndex, getNullType());
+      } else {
+        preparedStatement.setBytes(parameterIndex, value);
+      }
+    }
+  },
+
+  /** Any other member, read and bound as an object. */
+  OBJECT(Object.class, Types.JAVA_OBJECT) {
+    @Override
+    void read(final ResultSet resultSet, final int column,
+        final FieldAccessor accessor, final Object entity)
+        throws SQLException, PersistenceException {
+      accessor.set(entity, resultSet.getObject(column));
+    }
+
+    @Override
+    void bind(final PreparedStatement preparedStatement,
+        final int parameterIndex, final FieldAccessor accessor,
+        final Object entity) throws SQLException, PersistenceException {
+      preparedStatement.setObject(parameterIndex, accessor.get(entity));
+    }
+
+    @Override
+    boolean isCompatible(final int sqlType) {
+      return true;
+    }
+  };
+
+  /** The column types, keyed by member type. */
+  private static final Map<Class<?>, ColumnType> BY_TYPE =
+      new HashMap<Class<?>, ColumnType>();
+
+  static {
+    for (final ColumnType columnType : values()) {
+      if (OBJECT != columnType) {
+        BY_TYPE.put(columnType.javaType, columnType);
+      }
+    }
+  }
+
+  /** The member type. */
+  private final Class<?> javaType;
+
+  /** The SQL type used to bind null values. */
+  private final int nullType;
+
+  /** The compatible SQL types. */
+  private final int[] sqlTypes;
+
+  /**
+   * Instantiates a new column type.
+   *
+   * @param javaType the member type
+   * @param nullType the SQL type used to bind null values
+   * @param sqlTypes the compatible SQL types
+   */
+  private ColumnType(final Class<?> javaType, final int nullType,
+      final int... sqlTypes) {
+    this.javaType = javaType;
+    this.nullType = nullType;
+    this.sqlTypes = sqlTypes;
+  }
+
+  /**
+   * Gets the column type binding members of the given type.
+   *
+   * @param memberType the member type
+   * @return the column type
+   */
+  public static ColumnType forMember(final Class<?> memberType) {
+    final ColumnType columnType = BY_TYPE.get(memberType);
+
+    return null == columnType ? OBJECT : columnType;
+  }
+
+  /**
+   * Gets the column type reading a column of the given SQL type into members
+   * of the given type.
+   *
+   * @param memberType the member type
+   * @param sqlType the SQL type of the column
+   * @return the column type
+   */
+  public static ColumnType forColumn(final Class<?> memberType,
+      final int sqlType) {
+    final ColumnType columnType = forMember(memberType);
+
+    return columnType.isCompatible(sqlType) ? columnType : OBJECT;
+  }
+
+  /**
+   * Gets the SQL type used to bind null values.
+   *
+   * @return the SQL type
+   */
+  public int getNullType() {
+    return nullType;
+  }
+
+  /**
+   * Checks if a column of the given SQL type can be read with this type.
+   *
+   * @param sqlType the SQL type
+   * @return true, if compatible
+   */
+  boolean isCompatible(final int sqlType) {
+    for (final int compatible : sqlTypes) {
+      if (compatible == sqlType) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Read the column of the current row into the entity member.
+   *
+   * @param resultSet the result set
+   * @param column the column
+   * @param accessor the member accessor
+   * @param entity the entity
+   * @throws SQLException the SQL exception
+   * @throws PersistenceException the persistence exception
+   */
+  abstract void read(ResultSet resultSet, int column, FieldAccessor accessor,
+      Object entity) throws SQLException, PersistenceException;
+
+  /**
+   * Bind the entity member to the prepared statement parameter.
+   *
+   * @param preparedStatement the prepared statement
+   * @param parameterIndex the parameter index
+   * @param accessor the member accessor
+   * @param entity the entity
+   * @throws SQLException the SQL exception
+   * @throws PersistenceException the persistence exception
+   */
+  abstract void bind(PreparedStatement preparedStatement, int parameterIndex,
+      FieldAccessor accessor, Object entity)
+      throws SQLException, PersistenceException;
+}
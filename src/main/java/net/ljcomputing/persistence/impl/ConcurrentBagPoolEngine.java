@@ -0,0 +1,628 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence.impl;
+
+import net.ljcomputing.exception.PersistenceException;
+import net.ljcomputing.persistence.PoolEngine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import javax.sql.DataSource;
+
+/**
+ * Native pool engine, which borrows without a global lock. A borrow first
+ * tries the connection the thread last returned, then scans the shared bag
+ * of connections, claiming an idle one with a compare and set of its state.
+ * Only when the bag is exhausted and at its maximum size does the thread wait,
+ * and a returned connection is then handed to a waiting thread directly, as
+ * is the news of a connection removed from the pool, so a waiting thread may
+ * open a new one in its place. Statements left open on a borrowed connection
+ * are closed when it is returned.
+ *
+ * <p>
+ * Unlike the commons-dbcp2 engine, this engine does not pool prepared
+ * statements; the <code>cp.statements.*</code> keys are ignored.
+ * </p>
+ *
+ * @author James G. Willmore
+ */
+final class ConcurrentBagPoolEngine implements PoolEngine {
+
+  /** SLF4J logger. */
+  private static final Logger LOGGER = LoggerFactory
+      .getLogger(ConcurrentBagPoolEngine.class);
+
+  /** The state of an idle connection. */
+  private static final int NOT_IN_USE = 0;
+
+  /** The state of a borrowed connection. */
+  private static final int IN_USE = 1;
+
+  /** The state of a connection removed from the pool. */
+  private static final int REMOVED = -1;
+
+  /** The hand off signalling a place freed for a new connection. */
+  private static final PoolEntry PLACE_FREED = new PoolEntry(null);
+
+  /**
+   * The poll interval of a thread waiting indefinitely, bounding how late it
+   * notices the pool was closed.
+   */
+  private static final long INDEFINITE_POLL_NANOS = TimeUnit.SECONDS
+      .toNanos(1);
+
+  /** The time a connection returned within is not validated on borrow. */
+  private static final long ALIVE_BYPASS_NANOS = TimeUnit.MILLISECONDS
+      .toNanos(500);
+
+  /** The configuration. */
+  private final ConnectionPoolConfiguration config;
+
+  /** The shared bag of pooled connections. */
+  private final List<PoolEntry> entries = new CopyOnWriteArrayList<PoolEntry>();
+
+  /** The connection each thread last returned. */
+  private final ThreadLocal<PoolEntry> lastUsed = new ThreadLocal<PoolEntry>();
+
+  /** The direct hand off of returned connections to waiting threads. */
+  private final SynchronousQueue<PoolEntry> handoff =
+      new SynchronousQueue<PoolEntry>(true);
+
+  /** The number of pooled connections, including those being created. */
+  private final AtomicInteger total = new AtomicInteger();
+
+  /** The number of waiting threads. */
+  private final AtomicInteger waiters = new AtomicInteger();
+
+  /** The created count. */
+  private final LongAdder created = new LongAdder();
+
+  /** The destroyed count. */
+  private final LongAdder destroyed = new LongAdder();
+
+  /** The data source view of the pool. */
+  private final DataSource dataSource = new PoolEngineDataSource(this);
+
+  /** The idle connection evictor, or null if disabled. */
+  private final ScheduledExecutorService evictor;
+
+  /** The pool is closed. */
+  private volatile boolean closed;
+
+  /**
+   * Instantiates a new native pool engine, and opens the initial connections.
+   *
+   * @param config the configuration
+   * @throws PersistenceException if the driver cannot be loaded or the
+   *           initial connections cannot be opened
+   */
+  ConcurrentBagPoolEngine(final ConnectionPoolConfiguration config)
+      throws PersistenceException {
+    this.config = config;
+
+    try {
+      Class.forName(config.getDriverClass());
+
+      for (int i = 0; i < config.getInitialSize() && reserve(); i++) {
+        create().state.set(NOT_IN_USE);
+      }
+    } catch (ClassNotFoundException | SQLException exception) {
+      throw new PersistenceException(exception);
+    }
+
+    if (config.getEvictionIntervalMillis() > 0) {
+      evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "pool-evictor");
+        thread.setDaemon(true);
+        return thread;
+      });
+      evictor.scheduleWithFixedDelay(this::evict,
+          config.getEvictionIntervalMillis(),
+          config.getEvictionIntervalMillis(), TimeUnit.MILLISECONDS);
+    } else {
+      evictor = null;
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.PoolEngine#getConnection()
+   */
+  public Connection getConnection() throws SQLException {
+    final long deadline = System.nanoTime()
+        + TimeUnit.MILLISECONDS.toNanos(config.getMaxWaitMillis());
+
+    for (;;) {
+      if (closed) {
+        throw new SQLException("Connection pool is closed");
+      }
+
+      PoolEntry entry = acquire();
+
+      if (null == entry) {
+        entry = await(deadline);
+      }
+
+      if (null == entry) {
+        throw new SQLTimeoutException("Timed out after "
+            + config.getMaxWaitMillis() + " ms waiting for a connection");
+      }
+
+      if (isAlive(entry)) {
+        return new PooledConnection(entry);
+      }
+
+      remove(entry);
+    }
+  }
+
+  /**
+   * Claim the connection the thread last returned, any idle connection, or a
+   * new connection if the pool is below its maximum size.
+   *
+   * @return the claimed connection, or null if there is none
+   * @throws SQLException if a new connection cannot be opened
+   */
+  private PoolEntry acquire() throws SQLException {
+    final PoolEntry last = lastUsed.get();
+
+    if (null != last && last.state.compareAndSet(NOT_IN_USE, IN_USE)) {
+      return last;
+    }
+
+    for (final PoolEntry entry : entries) {
+      if (entry.state.compareAndSet(NOT_IN_USE, IN_USE)) {
+        return entry;
+      }
+    }
+
+    return reserve() ? create() : null;
+  }
+
+  /**
+   * Wait for a connection to be returned, to become claimable, or for a place
+   * to be freed for a new connection. A maximum wait of -1 waits indefinitely,
+   * ignoring the deadline.
+   *
+   * @param deadline the deadline, in nanoseconds
+   * @return the claimed connection, or null if the wait timed out
+   * @throws SQLException if interrupted, or a new connection cannot be opened
+   */
+  private PoolEntry await(final long deadline) throws SQLException {
+    final boolean indefinite = config.getMaxWaitMillis() < 0;
+
+    waiters.incrementAndGet();
+
+    try {
+      for (;;) {
+        if (closed) {
+          throw new SQLException("Connection pool is closed");
+        }
+
+        final PoolEntry entry = acquire();
+
+        if (null != entry) {
+          return entry;
+        }
+
+        final long remaining = indefinite ? INDEFINITE_POLL_NANOS
+            : deadline - System.nanoTime();
+
+        if (remaining <= 0) {
+          return null;
+        }
+
+        final PoolEntry handed = handoff.poll(remaining,
+            TimeUnit.NANOSECONDS);
+
+        if (null == handed) {
+          if (indefinite) {
+            continue;
+          }
+
+          return null;
+        }
+
+        if (PLACE_FREED != handed
+            && handed.state.compareAndSet(NOT_IN_USE, IN_USE)) {
+          return handed;
+        }
+      }
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted waiting for a connection",
+          exception);
+    } finally {
+      waiters.decrementAndGet();
+    }
+  }
+
+  /**
+   * Return a connection to the pool, handing it to a waiting thread if there
+   * is one.
+   *
+   * @param entry the pooled connection
+   */
+  private void requite(final PoolEntry entry) {
+    entry.lastAccess = System.nanoTime();
+    entry.state.set(NOT_IN_USE);
+    lastUsed.set(entry);
+    handOff(entry, () -> NOT_IN_USE != entry.state.get());
+  }
+
+  /**
+   * Hand off to a waiting thread, for as long as there are waiting threads
+   * and the hand off is still useful. A thread about to wait receives it once
+   * it polls.
+   *
+   * @param entry the pooled connection, or PLACE_FREED
+   * @param taken whether the hand off is no longer useful
+   */
+  private void handOff(final PoolEntry entry, final BooleanSupplier taken) {
+    for (int i = 0; waiters.get() > 0; i++) {
+      if (taken.getAsBoolean() || handoff.offer(entry)) {
+        return;
+      }
+
+      if ((i & 0xff) == 0xff) {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+      } else {
+        Thread.yield();
+      }
+    }
+  }
+
+  /**
+   * Reserve a place for a new connection, if the pool is below its maximum
+   * size.
+   *
+   * @return true, if reserved
+   */
+  private boolean reserve() {
+    for (;;) {
+      final int current = total.get();
+
+      if (current >= config.getMaxTotal()) {
+        return false;
+      }
+
+      if (total.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Open a new, borrowed connection in a reserved place.
+   *
+   * @return the pooled connection
+   * @throws SQLException if the connection cannot be opened
+   */
+  private PoolEntry create() throws SQLException {
+    try {
+      final Connection connection = null == config.getUser()
+          ? DriverManager.getConnection(config.getUrl())
+          : DriverManager.getConnection(config.getUrl(), config.getUser(),
+              config.getPassword());
+      final PoolEntry entry = new PoolEntry(connection);
+
+      entries.add(entry);
+      created.increment();
+      return entry;
+    } catch (SQLException | RuntimeException exception) {
+      total.decrementAndGet();
+      throw exception;
+    }
+  }
+
+  /**
+   * Remove a claimed connection from the pool and close it, then signal a
+   * waiting thread that it may open a new connection in its place.
+   *
+   * @param entry the pooled connection
+   */
+  private void remove(final PoolEntry entry) {
+    entry.state.set(REMOVED);
+
+    final boolean removed = entries.remove(entry);
+
+    if (removed) {
+      total.decrementAndGet();
+      destroyed.increment();
+    }
+
+    try {
+      entry.connection.close();
+    } catch (SQLException exception) {
+      LOGGER.debug("Cannot close a pooled connection: {}",
+          exception.getMessage());
+    }
+
+    if (removed) {
+      handOff(PLACE_FREED, () -> total.get() >= config.getMaxTotal());
+    }
+  }
+
+  /**
+   * Checks if a claimed connection is usable, validating it if configured to
+   * and it has not been used very recently.
+   *
+   * @param entry the pooled connection
+   * @return true, if usable
+   */
+  private boolean isAlive(final PoolEntry entry) {
+    if (!config.isTestOnBorrow()
+        || System.nanoTime() - entry.lastAccess < ALIVE_BYPASS_NANOS) {
+      return true;
+    }
+
+    return validate(entry);
+  }
+
+  /**
+   * Validate a claimed connection with the validation query, or the JDBC
+   * driver validation.
+   *
+   * @param entry the pooled connection
+   * @return true, if valid
+   */
+  private boolean validate(final PoolEntry entry) {
+    final int timeout = config.getValidationTimeoutSeconds();
+
+    try {
+      if (null == config.getValidationQuery()) {
+        return entry.connection.isValid(timeout);
+      }
+
+      try (Statement statement = entry.connection.createStatement()) {
+        statement.setQueryTimeout(timeout);
+        statement.execute(config.getValidationQuery());
+        return true;
+      }
+    } catch (SQLException exception) {
+      LOGGER.debug("Pooled connection failed validation: {}",
+          exception.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Evict connections idle for too long, or beyond the maximum idle count,
+   * validate idle connections if configured to, and open connections up to the
+   * minimum idle count.
+   */
+  private void evict() {
+    final long now = System.nanoTime();
+    final long minEvictableIdle = TimeUnit.MILLISECONDS
+        .toNanos(config.getMinEvictableIdleMillis());
+    int idle = getNumIdle();
+    int tests = 0;
+
+    for (final PoolEntry entry : entries) {
+      if (!entry.state.compareAndSet(NOT_IN_USE, IN_USE)) {
+        continue;
+      }
+
+      final boolean expired = idle > config.getMinIdle()
+          && now - entry.lastAccess > minEvictableIdle;
+
+      if (expired || idle > config.getMaxIdle()
+          || (config.isTestWhileIdle()
+              && tests++ < config.getNumTestsPerEviction()
+              && !validate(entry))) {
+        remove(entry);
+        idle--;
+      } else {
+        entry.state.set(NOT_IN_USE);
+      }
+    }
+
+    try {
+      while (!closed && getNumIdle() < config.getMinIdle() && reserve()) {
+        final PoolEntry entry = create();
+        entry.lastAccess = System.nanoTime();
+        entry.state.set(NOT_IN_USE);
+      }
+    } catch (SQLException exception) {
+      LOGGER.warn("Cannot open an idle connection: {}",
+          exception.getMessage());
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.PoolEngine#getDataSource()
+   */
+  public DataSource getDataSource() {
+    return dataSource;
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.PoolEngine#getNumActive()
+   */
+  public int getNumActive() {
+    return count(IN_USE);
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.PoolEngine#getNumIdle()
+   */
+  public int getNumIdle() {
+    return count(NOT_IN_USE);
+  }
+
+  /**
+   * Count the pooled connections in the given state.
+   *
+   * @param state the state
+   * @return the count
+   */
+  private int count(final int state) {
+    int count = 0;
+
+    for (final PoolEntry entry : entries) {
+      if (state == entry.state.get()) {
+        count++;
+      }
+    }
+
+    return count;
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.PoolEngine#getNumWaiters()
+   */
+  public int getNumWaiters() {
+    return waiters.get();
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.PoolEngine#getMaxTotal()
+   */
+  public int getMaxTotal() {
+    return config.getMaxTotal();
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.PoolEngine#getCreatedCount()
+   */
+  public long getCreatedCount() {
+    return created.sum();
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.PoolEngine#getDestroyedCount()
+   */
+  public long getDestroyedCount() {
+    return destroyed.sum();
+  }
+
+  /**
+   * Close the pool and its idle connections; borrowed connections are closed
+   * when they are returned.
+   *
+   * @see net.ljcomputing.persistence.PoolEngine#close()
+   */
+  public void close() {
+    closed = true;
+
+    if (null != evictor) {
+      evictor.shutdownNow();
+    }
+
+    for (final PoolEntry entry : entries) {
+      if (entry.state.compareAndSet(NOT_IN_USE, IN_USE)) {
+        remove(entry);
+      }
+    }
+  }
+
+  /**
+   * A connection in the bag, and its state.
+   */
+  private static final class PoolEntry {
+
+    /** The physical connection. */
+    private final Connection connection;
+
+    /** The state. */
+    private final AtomicInteger state = new AtomicInteger(IN_USE);
+
+    /** The time the connection was last returned, in nanoseconds. */
+    private volatile long lastAccess = System.nanoTime();
+
+    /**
+     * Instantiates a new pool entry.
+     *
+     * @param connection the physical connection
+     */
+    private PoolEntry(final Connection connection) {
+      this.connection = connection;
+    }
+  }
+
+  /**
+   * Borrowed connection handle, which returns the physical connection to the
+   * pool when closed.
+   */
+  private final class PooledConnection extends DelegatingConnection {
+
+    /** The pooled connection. */
+    private final PoolEntry entry;
+
+    /**
+     * Instantiates a new pooled connection handle.
+     *
+     * @param entry the pooled connection
+     */
+    private PooledConnection(final PoolEntry entry) {
+      super(entry.connection);
+      this.entry = entry;
+    }
+
+    /**
+     * Roll back uncommitted work and return the connection to the pool.
+     *
+     * @see net.ljcomputing.persistence.impl.DelegatingConnection#release()
+     */
+    @Override
+    protected void release() {
+      try {
+        if (!entry.connection.getAutoCommit()) {
+          entry.connection.rollback();
+          entry.connection.setAutoCommit(true);
+        }
+
+        entry.connection.clearWarnings();
+      } catch (SQLException exception) {
+        LOGGER.debug("Cannot reset a pooled connection: {}",
+            exception.getMessage());
+        remove(entry);
+        return;
+      }
+
+      if (closed) {
+        remove(entry);
+      } else {
+        requite(entry);
+      }
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+      return "Pooled " + entry.connection;
+    }
+  }
+}
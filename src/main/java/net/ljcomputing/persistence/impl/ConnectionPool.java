@@ -17,37 +17,64 @@
 package net.ljcomputing.persistence.impl;
 
 import net.ljcomputing.exception.PersistenceException;
+import net.ljcomputing.persistence.ConnectionPoolListener;
+import net.ljcomputing.persistence.PoolEngine;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Properties;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
 import javax.sql.DataSource;
 
-import org.apache.commons.dbcp2.BasicDataSource;
-
 /**
- * Connection pool.
+ * Connection pool, configured from the <code>database.properties</code>
+ * resource. The pool is implemented by the {@link PoolEngine} selected by the
+ * <code>cp.engine</code> key. Borrows are measured by the pool metrics, and the
+ * pool statistics are published through JMX.
+ *
+ * @see ConnectionPoolConfiguration
  *
  * @author James G. Willmore
  */
-public final class ConnectionPool {
+public final class ConnectionPool implements ConnectionPoolMXBean {
   /** SLF4J logger. */
   private static final Logger LOGGER = LoggerFactory
       .getLogger(ConnectionPool.class);
 
+  /** The JMX object name. */
+  public static final String OBJECT_NAME =
+      "net.ljcomputing.persistence:type=ConnectionPool";
+
+  /** The database properties resource. */
+  private static final String DATABASE_PROPERTIES = "database.properties";
+
   /** The instance of the connection pool. */
   private static final ConnectionPool INSTANCE = new ConnectionPool();
 
   /** The properties. */
   private transient Properties properties;
 
-  /** The Basic Data Source. */
-  private transient final BasicDataSource BDS = new BasicDataSource();
+  /** The pool engine, or null if the pool could not be configured. */
+  private transient PoolEngine engine;
+
+  /** The borrow metrics. */
+  private transient final ConnectionPoolMetrics metrics =
+      new ConnectionPoolMetrics();
+
+  /** The configuration, or null if the pool could not be configured. */
+  private transient ConnectionPoolConfiguration configuration;
+
+  /** The reason the pool could not be configured, or null. */
+  private transient PersistenceException configurationError;
 
   /**
    * Instantiates a new connection pool.
@@ -57,17 +84,70 @@ public final class ConnectionPool {
       properties = new Properties();
     }
 
-    try {
-      properties.load(Thread.currentThread().getContextClassLoader()
-          .getResourceAsStream("database.properties"));
-
-      BDS.setDriverClassName(properties.getProperty("cp.driver.class"));
-      BDS.setUrl(properties.getProperty("cp.db.url"));
-      BDS.setUsername(properties.getProperty("cp.db.user"));
-      BDS.setPassword(properties.getProperty("cp.db.password"));
-      BDS.setInitialSize(Integer.valueOf(properties.getProperty("cp.size")));
+    try (InputStream stream = Thread.currentThread().getContextClassLoader()
+        .getResourceAsStream(DATABASE_PROPERTIES)) {
+      if (null == stream) {
+        throw new PersistenceException(
+            "Cannot find " + DATABASE_PROPERTIES + " on the classpath");
+      }
+
+      properties.load(stream);
+      configuration = new ConnectionPoolConfiguration(properties);
+      engine = createEngine(configuration);
     } catch (IOException exception) {
-      LOGGER.error("Cannot instniate Connection Pool: ", exception);
+      configurationError = new PersistenceException(exception);
+    } catch (PersistenceException exception) {
+      configurationError = exception;
+    }
+
+    if (null != configurationError) {
+      LOGGER.error("Cannot instantiate Connection Pool: ", configurationError);
+    }
+
+    registerMBean();
+  }
+
+  /**
+   * Register the pool statistics with the platform MBean server.
+   */
+  private void registerMBean() {
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+          new ObjectName(OBJECT_NAME));
+    } catch (JMException exception) {
+      LOGGER.warn("Cannot register the Connection Pool MBean: {}",
+          exception.getMessage());
+    }
+  }
+
+  /**
+   * Create the pool engine named by the configuration.
+   *
+   * @param config the configuration
+   * @return the pool engine
+   * @throws PersistenceException if the pool engine cannot be created
+   */
+  private static PoolEngine createEngine(
+      final ConnectionPoolConfiguration config) throws PersistenceException {
+    final String name = config.getEngine();
+
+    if (ConnectionPoolConfiguration.ENGINE_DBCP2.equals(name)) {
+      return new DbcpPoolEngine(config);
+    }
+
+    if (ConnectionPoolConfiguration.ENGINE_NATIVE.equals(name)) {
+      return new ConcurrentBagPoolEngine(config);
+    }
+
+    try {
+      return Class.forName(name).asSubclass(PoolEngine.class)
+          .getConstructor(ConnectionPoolConfiguration.class)
+          .newInstance(config);
+    } catch (InvocationTargetException exception) {
+      throw new PersistenceException(exception.getCause());
+    } catch (ReflectiveOperationException | ClassCastException exception) {
+      throw new PersistenceException(
+          "Cannot create the pool engine " + name, exception);
     }
   }
 
@@ -80,13 +160,22 @@ public final class ConnectionPool {
     return INSTANCE;
   }
 
+  /**
+   * Gets the configuration.
+   *
+   * @return the configuration, or null if the pool could not be configured
+   */
+  public ConnectionPoolConfiguration getConfiguration() {
+    return configuration;
+  }
+
   /**
    * Data source.
    *
    * @return the data source
    */
   public DataSource dataSource() {
-    return BDS;
+    return null == engine ? null : engine.getDataSource();
   }
 
   /**
@@ -96,10 +185,161 @@ public final class ConnectionPool {
    * @throws PersistenceException the persistence exception
    */
   public Connection getConnection() throws PersistenceException {
+    if (null != configurationError) {
+      throw new PersistenceException(configurationError.getMessage(),
+          configurationError);
+    }
+
+    final long start = System.nanoTime();
+
     try {
-      return BDS.getConnection();
+      final Connection connection = engine.getConnection();
+      metrics.borrowed(System.nanoTime() - start);
+      return connection;
     } catch (SQLException exception) {
+      metrics.failed(System.nanoTime() - start, exception);
       throw new PersistenceException(exception);
     }
   }
+
+  /**
+   * Gets the borrow metrics.
+   *
+   * @return the borrow metrics
+   */
+  public ConnectionPoolMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Adds a pool listener.
+   *
+   * @param listener the listener
+   */
+  public void addListener(final ConnectionPoolListener listener) {
+    metrics.addListener(listener);
+  }
+
+  /**
+   * Removes a pool listener.
+   *
+   * @param listener the listener
+   */
+  public void removeListener(final ConnectionPoolListener listener) {
+    metrics.removeListener(listener);
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.impl.ConnectionPoolMXBean#getNumActive()
+   */
+  public int getNumActive() {
+    return null == engine ? 0 : engine.getNumActive();
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.impl.ConnectionPoolMXBean#getNumIdle()
+   */
+  public int getNumIdle() {
+    return null == engine ? 0 : engine.getNumIdle();
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.impl.ConnectionPoolMXBean#getNumWaiters()
+   */
+  public int getNumWaiters() {
+    return null == engine ? 0 : engine.getNumWaiters();
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.impl.ConnectionPoolMXBean#getMaxTotal()
+   */
+  public int getMaxTotal() {
+    return null == engine ? 0 : engine.getMaxTotal();
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.impl.ConnectionPoolMXBean#getSaturation()
+   */
+  public double getSaturation() {
+    final int maxTotal = getMaxTotal();
+
+    return maxTotal > 0 ? (double) getNumActive() / maxTotal : 0.0;
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.impl.ConnectionPoolMXBean#getCreatedCount()
+   */
+  public long getCreatedCount() {
+    return null == engine ? 0 : engine.getCreatedCount();
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.impl.ConnectionPoolMXBean#getDestroyedCount()
+   */
+  public long getDestroyedCount() {
+    return null == engine ? 0 : engine.getDestroyedCount();
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.impl.ConnectionPoolMXBean#getBorrowCount()
+   */
+  public long getBorrowCount() {
+    return metrics.getBorrowLatency().getCount();
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.impl.ConnectionPoolMXBean#getTimeoutCount()
+   */
+  public long getTimeoutCount() {
+    return metrics.getTimeoutCount();
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.impl.ConnectionPoolMXBean#getFailureCount()
+   */
+  public long getFailureCount() {
+    return metrics.getFailureCount();
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.impl.ConnectionPoolMXBean#getMeanBorrowMicros()
+   */
+  public long getMeanBorrowMicros() {
+    return metrics.getBorrowLatency().getMeanMicros();
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.impl.ConnectionPoolMXBean#getMaxBorrowMicros()
+   */
+  public long getMaxBorrowMicros() {
+    return metrics.getBorrowLatency().getMaxMicros();
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.impl.ConnectionPoolMXBean#getBorrow50thPercentileMicros()
+   */
+  public long getBorrow50thPercentileMicros() {
+    return metrics.getBorrowLatency().getPercentileMicros(50.0);
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.impl.ConnectionPoolMXBean#getBorrow99thPercentileMicros()
+   */
+  public long getBorrow99thPercentileMicros() {
+    return metrics.getBorrowLatency().getPercentileMicros(99.0);
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.impl.ConnectionPoolMXBean#getBorrowHistogram()
+   */
+  public long[] getBorrowHistogram() {
+    return metrics.getBorrowLatency().getCounts();
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.impl.ConnectionPoolMXBean#getBorrowHistogramBounds()
+   */
+  public long[] getBorrowHistogramBounds() {
+    return metrics.getBorrowLatency().getBounds();
+  }
 }
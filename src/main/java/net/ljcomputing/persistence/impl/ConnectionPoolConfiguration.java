@@ -0,0 +1,526 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence.impl;
+
+import net.ljcomputing.exception.PersistenceException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Connection pool configuration, read from the <code>cp.*</code> keys of the
+ * database properties. Every key except the driver class and database URL has
+ * a default; the configuration is validated as a whole when it is read.
+ *
+ * @author James G. Willmore
+ */
+public class ConnectionPoolConfiguration {
+
+  /** The JDBC driver class key. */
+  public static final String DRIVER_CLASS = "cp.driver.class";
+
+  /** The database URL key. */
+  public static final String URL = "cp.db.url";
+
+  /** The database user key. */
+  public static final String USER = "cp.db.user";
+
+  /** The database password key. */
+  public static final String PASSWORD = "cp.db.password";
+
+  /** The initial pool size key. */
+  public static final String INITIAL_SIZE = "cp.size";
+
+  /** The maximum number of active connections key. */
+  public static final String MAX_TOTAL = "cp.max.total";
+
+  /** The maximum number of idle connections key. */
+  public static final String MAX_IDLE = "cp.max.idle";
+
+  /** The minimum number of idle connections key. */
+  public static final String MIN_IDLE = "cp.min.idle";
+
+  /** The maximum time to wait for a connection key. */
+  public static final String MAX_WAIT_MILLIS = "cp.max.wait.millis";
+
+  /** The validation query key. */
+  public static final String VALIDATION_QUERY = "cp.validation.query";
+
+  /** The validation timeout key. */
+  public static final String VALIDATION_TIMEOUT_SECONDS =
+      "cp.validation.timeout.seconds";
+
+  /** The test on borrow key. */
+  public static final String TEST_ON_BORROW = "cp.test.on.borrow";
+
+  /** The test while idle key. */
+  public static final String TEST_WHILE_IDLE = "cp.test.while.idle";
+
+  /** The idle evictor run interval key. */
+  public static final String EVICTION_INTERVAL_MILLIS =
+      "cp.eviction.interval.millis";
+
+  /** The minimum idle time before eviction key. */
+  public static final String MIN_EVICTABLE_IDLE_MILLIS =
+      "cp.min.evictable.idle.millis";
+
+  /** The number of connections tested per evictor run key. */
+  public static final String NUM_TESTS_PER_EVICTION =
+      "cp.num.tests.per.eviction";
+
+  /** The prepared statement pooling key. */
+  public static final String POOL_STATEMENTS = "cp.statements.pool";
+
+  /** The maximum number of open pooled statements per connection key. */
+  public static final String MAX_OPEN_STATEMENTS = "cp.statements.max";
+
+  /** The pool engine key. */
+  public static final String ENGINE = "cp.engine";
+
+  /** The commons-dbcp2 pool engine name. */
+  public static final String ENGINE_DBCP2 = "dbcp2";
+
+  /** The native, lock-free pool engine name. */
+  public static final String ENGINE_NATIVE = "native";
+
+  /** The problems found while reading the configuration. */
+  private final List<String> problems = new ArrayList<String>();
+
+  /** The pool engine name, or pool engine class name. */
+  private final String engine;
+
+  /** The JDBC driver class. */
+  private final String driverClass;
+
+  /** The database URL. */
+  private final String url;
+
+  /** The database user. */
+  private final String user;
+
+  /** The database password. */
+  private final String password;
+
+  /** The initial pool size. */
+  private final int initialSize;
+
+  /** The maximum number of active connections. */
+  private final int maxTotal;
+
+  /** The maximum number of idle connections. */
+  private final int maxIdle;
+
+  /** The minimum number of idle connections. */
+  private final int minIdle;
+
+  /** The maximum time to wait for a connection, in milliseconds. */
+  private final long maxWaitMillis;
+
+  /** The validation query, or null to use the JDBC driver validation. */
+  private final String validationQuery;
+
+  /** The validation timeout, in seconds. */
+  private final int validationTimeoutSeconds;
+
+  /** Validate connections when they are borrowed. */
+  private final boolean testOnBorrow;
+
+  /** Validate idle connections from the evictor. */
+  private final boolean testWhileIdle;
+
+  /** The idle evictor run interval, in milliseconds. */
+  private final long evictionIntervalMillis;
+
+  /** The minimum idle time before eviction, in milliseconds. */
+  private final long minEvictableIdleMillis;
+
+  /** The number of connections tested per evictor run. */
+  private final int numTestsPerEviction;
+
+  /** Pool prepared statements. */
+  private final boolean poolStatements;
+
+  /** The maximum number of open pooled statements per connection. */
+  private final int maxOpenStatements;
+
+  /**
+   * Instantiates a new connection pool configuration.
+   *
+   * @param properties the database properties
+   * @throws PersistenceException if the configuration is missing a required
+   *           key or is invalid
+   */
+  public ConnectionPoolConfiguration(final Properties properties)
+      throws PersistenceException {
+    engine = getOptional(properties, ENGINE, ENGINE_DBCP2);
+    driverClass = getRequired(properties, DRIVER_CLASS);
+    url = getRequired(properties, URL);
+    user = properties.getProperty(USER);
+    password = properties.getProperty(PASSWORD);
+    initialSize = getInt(properties, INITIAL_SIZE, 4);
+    maxTotal = getInt(properties, MAX_TOTAL, 20);
+    maxIdle = getInt(properties, MAX_IDLE, 10);
+    minIdle = getInt(properties, MIN_IDLE, 4);
+    maxWaitMillis = getLong(properties, MAX_WAIT_MILLIS, 30000L);
+    validationQuery = getOptional(properties, VALIDATION_QUERY);
+    validationTimeoutSeconds = getInt(properties, VALIDATION_TIMEOUT_SECONDS,
+        5);
+    testOnBorrow = getBoolean(properties, TEST_ON_BORROW, true);
+    testWhileIdle = getBoolean(properties, TEST_WHILE_IDLE, true);
+    evictionIntervalMillis = getLong(properties, EVICTION_INTERVAL_MILLIS,
+        30000L);
+    minEvictableIdleMillis = getLong(properties, MIN_EVICTABLE_IDLE_MILLIS,
+        60000L);
+    numTestsPerEviction = getInt(properties, NUM_TESTS_PER_EVICTION, 3);
+    poolStatements = getBoolean(properties, POOL_STATEMENTS, true);
+    maxOpenStatements = getInt(properties, MAX_OPEN_STATEMENTS, 100);
+
+    validate();
+
+    if (!problems.isEmpty()) {
+      throw new PersistenceException(
+          "Invalid connection pool configuration: " + problems);
+    }
+  }
+
+  /**
+   * Validate the relations between the configured values.
+   */
+  private void validate() {
+    if (maxTotal < 1) {
+      problems.add(MAX_TOTAL + " must be at least 1");
+    }
+
+    if (initialSize < 0 || initialSize > maxTotal) {
+      problems.add(INITIAL_SIZE + " must be between 0 and " + MAX_TOTAL);
+    }
+
+    if (minIdle < 0 || minIdle > maxIdle) {
+      problems.add(MIN_IDLE + " must be between 0 and " + MAX_IDLE);
+    }
+
+    if (maxIdle > maxTotal) {
+      problems.add(MAX_IDLE + " must not exceed " + MAX_TOTAL);
+    }
+
+    if (maxWaitMillis < 1 && maxWaitMillis != -1) {
+      problems.add(MAX_WAIT_MILLIS + " must be at least 1, or -1 to wait"
+          + " indefinitely");
+    }
+
+    if (validationTimeoutSeconds < 0) {
+      problems.add(VALIDATION_TIMEOUT_SECONDS + " must not be negative");
+    }
+
+    if (numTestsPerEviction < 1) {
+      problems.add(NUM_TESTS_PER_EVICTION + " must be at least 1");
+    }
+
+    if (maxOpenStatements < 1) {
+      problems.add(MAX_OPEN_STATEMENTS + " must be at least 1");
+    }
+  }
+
+  /**
+   * Gets a required property.
+   *
+   * @param properties the properties
+   * @param key the key
+   * @return the value, or null if missing
+   */
+  private String getRequired(final Properties properties, final String key) {
+    final String value = getOptional(properties, key);
+
+    if (null == value) {
+      problems.add(key + " is required");
+    }
+
+    return value;
+  }
+
+  /**
+   * Gets an optional property, treating a blank value as missing.
+   *
+   * @param properties the properties
+   * @param key the key
+   * @return the trimmed value, or null if missing
+   */
+  private static String getOptional(final Properties properties,
+      final String key) {
+    final String value = properties.getProperty(key);
+
+    return null == value || value.trim().isEmpty() ? null : value.trim();
+  }
+
+  /**
+   * Gets an optional property, with a default for a blank or missing value.
+   *
+   * @param properties the properties
+   * @param key the key
+   * @param defaultValue the default value
+   * @return the trimmed value, or the default value if missing
+   */
+  private static String getOptional(final Properties properties,
+      final String key, final String defaultValue) {
+    final String value = getOptional(properties, key);
+
+    return null == value ? defaultValue : value;
+  }
+
+  /**
+   * Gets an integer property.
+   *
+   * @param properties the properties
+   * @param key the key
+   * @param defaultValue the default value
+   * @return the value
+   */
+  private int getInt(final Properties properties, final String key,
+      final int defaultValue) {
+    final long value = getLong(properties, key, defaultValue);
+
+    if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+      problems.add(key + " is out of range: " + value);
+      return defaultValue;
+    }
+
+    return (int) value;
+  }
+
+  /**
+   * Gets a long property.
+   *
+   * @param properties the properties
+   * @param key the key
+   * @param defaultValue the default value
+   * @return the value
+   */
+  private long getLong(final Properties properties, final String key,
+      final long defaultValue) {
+    final String value = getOptional(properties, key);
+
+    if (null == value) {
+      return defaultValue;
+    }
+
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException exception) {
+      problems.add(key + " is not a number: " + value);
+      return defaultValue;
+    }
+  }
+
+  /**
+   * Gets a boolean property.
+   *
+   * @param properties the properties
+   * @param key the key
+   * @param defaultValue the default value
+   * @return the value
+   */
+  private boolean getBoolean(final Properties properties, final String key,
+      final boolean defaultValue) {
+    final String value = getOptional(properties, key);
+
+    if (null == value) {
+      return defaultValue;
+    }
+
+    if (!"true".equalsIgnoreCase(value) && !"false".equalsIgnoreCase(value)) {
+      problems.add(key + " is not true or false: " + value);
+      return defaultValue;
+    }
+
+    return Boolean.parseBoolean(value);
+  }
+
+  /**
+   * Gets the pool engine: {@link #ENGINE_DBCP2}, {@link #ENGINE_NATIVE}, or the
+   * class name of a {@link net.ljcomputing.persistence.PoolEngine}
+   * implementation.
+   *
+   * @return the pool engine
+   */
+  public String getEngine() {
+    return engine;
+  }
+
+  /**
+   * Gets the JDBC driver class.
+   *
+   * @return the JDBC driver class
+   */
+  public String getDriverClass() {
+    return driverClass;
+  }
+
+  /**
+   * Gets the database URL.
+   *
+   * @return the database URL
+   */
+  public String getUrl() {
+    return url;
+  }
+
+  /**
+   * Gets the database user.
+   *
+   * @return the database user
+   */
+  public String getUser() {
+    return user;
+  }
+
+  /**
+   * Gets the database password.
+   *
+   * @return the database password
+   */
+  public String getPassword() {
+    return password;
+  }
+
+  /**
+   * Gets the initial pool size.
+   *
+   * @return the initial pool size
+   */
+  public int getInitialSize() {
+    return initialSize;
+  }
+
+  /**
+   * Gets the maximum number of active connections.
+   *
+   * @return the maximum number of active connections
+   */
+  public int getMaxTotal() {
+    return maxTotal;
+  }
+
+  /**
+   * Gets the maximum number of idle connections.
+   *
+   * @return the maximum number of idle connections
+   */
+  public int getMaxIdle() {
+    return maxIdle;
+  }
+
+  /**
+   * Gets the minimum number of idle connections.
+   *
+   * @return the minimum number of idle connections
+   */
+  public int getMinIdle() {
+    return minIdle;
+  }
+
+  /**
+   * Gets the maximum time to wait for a connection.
+   *
+   * @return the maximum time to wait for a connection, in milliseconds, or -1
+   *         to wait indefinitely
+   */
+  public long getMaxWaitMillis() {
+    return maxWaitMillis;
+  }
+
+  /**
+   * Gets the validation query.
+   *
+   * @return the validation query, or null to use the JDBC driver validation
+   */
+  public String getValidationQuery() {
+    return validationQuery;
+  }
+
+  /**
+   * Gets the validation timeout.
+   *
+   * @return the validation timeout, in seconds
+   */
+  public int getValidationTimeoutSeconds() {
+    return validationTimeoutSeconds;
+  }
+
+  /**
+   * Checks if connections are validated when borrowed.
+   *
+   * @return true, if connections are validated when borrowed
+   */
+  public boolean isTestOnBorrow() {
+    return testOnBorrow;
+  }
+
+  /**
+   * Checks if idle connections are validated by the evictor.
+   *
+   * @return true, if idle connections are validated by the evictor
+   */
+  public boolean isTestWhileIdle() {
+    return testWhileIdle;
+  }
+
+  /**
+   * Gets the idle evictor run interval.
+   *
+   * @return the idle evictor run interval, in milliseconds
+   */
+  public long getEvictionIntervalMillis() {
+    return evictionIntervalMillis;
+  }
+
+  /**
+   * Gets the minimum idle time before eviction.
+   *
+   * @return the minimum idle time before eviction, in milliseconds
+   */
+  public long getMinEvictableIdleMillis() {
+    return minEvictableIdleMillis;
+  }
+
+  /**
+   * Gets the number of connections tested per evictor run.
+   *
+   * @return the number of connections tested per evictor run
+   */
+  public int getNumTestsPerEviction() {
+    return numTestsPerEviction;
+  }
+
+  /**
+   * Checks if prepared statements are pooled.
+   *
+   * @return true, if prepared statements are pooled
+   */
+  public boolean isPoolStatements() {
+    return poolStatements;
+  }
+
+  /**
+   * Gets the maximum number of open pooled statements per connection.
+   *
+   * @return the maximum number of open pooled statements per connection
+   */
+  public int getMaxOpenStatements() {
+    return maxOpenStatements;
+  }
+}
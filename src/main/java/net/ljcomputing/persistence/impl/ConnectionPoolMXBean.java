@@ -0,0 +1,139 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence.impl;
+
+/**
+ * JMX management interface of the connection pool, registered by
+ * {@link ConnectionPool} as
+ * <code>net.ljcomputing.persistence:type=ConnectionPool</code>.
+ *
+ * @author James G. Willmore
+ */
+public interface ConnectionPoolMXBean {
+
+  /**
+   * Gets the number of borrowed connections.
+   *
+   * @return the number of active connections
+   */
+  int getNumActive();
+
+  /**
+   * Gets the number of idle connections.
+   *
+   * @return the number of idle connections
+   */
+  int getNumIdle();
+
+  /**
+   * Gets the number of threads waiting for a connection.
+   *
+   * @return the number of waiting threads
+   */
+  int getNumWaiters();
+
+  /**
+   * Gets the maximum number of active connections.
+   *
+   * @return the maximum number of active connections
+   */
+  int getMaxTotal();
+
+  /**
+   * Gets the pool saturation: the active connections over the maximum.
+   *
+   * @return the saturation, between 0 and 1
+   */
+  double getSaturation();
+
+  /**
+   * Gets the number of connections created.
+   *
+   * @return the created count
+   */
+  long getCreatedCount();
+
+  /**
+   * Gets the number of connections destroyed.
+   *
+   * @return the destroyed count
+   */
+  long getDestroyedCount();
+
+  /**
+   * Gets the number of successful borrows.
+   *
+   * @return the borrow count
+   */
+  long getBorrowCount();
+
+  /**
+   * Gets the number of borrows that timed out.
+   *
+   * @return the time out count
+   */
+  long getTimeoutCount();
+
+  /**
+   * Gets the number of borrows that failed for other reasons.
+   *
+   * @return the failure count
+   */
+  long getFailureCount();
+
+  /**
+   * Gets the mean borrow latency.
+   *
+   * @return the mean borrow latency, in microseconds
+   */
+  long getMeanBorrowMicros();
+
+  /**
+   * Gets the maximum borrow latency.
+   *
+   * @return the maximum borrow latency, in microseconds
+   */
+  long getMaxBorrowMicros();
+
+  /**
+   * Gets the median borrow latency bucket bound.
+   *
+   * @return the median borrow latency, in microseconds
+   */
+  long getBorrow50thPercentileMicros();
+
+  /**
+   * Gets the 99th percentile borrow latency bucket bound.
+   *
+   * @return the 99th percentile borrow latency, in microseconds
+   */
+  long getBorrow99thPercentileMicros();
+
+  /**
+   * Gets the borrow latency histogram bucket counts.
+   *
+   * @return the bucket counts
+   */
+  long[] getBorrowHistogram();
+
+  /**
+   * Gets the borrow latency histogram bucket upper bounds.
+   *
+   * @return the bucket bounds, in microseconds
+   */
+  long[] getBorrowHistogramBounds();
+}
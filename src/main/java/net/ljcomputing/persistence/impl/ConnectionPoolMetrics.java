@@ -0,0 +1,162 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence.impl;
+
+import net.ljcomputing.persistence.ConnectionPoolListener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLTimeoutException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Connection pool borrow metrics: the borrow latency histogram, the time out
+ * and failure counts, and the registered {@link ConnectionPoolListener}s.
+ *
+ * @author James G. Willmore
+ */
+public class ConnectionPoolMetrics {
+
+  /** SLF4J logger. */
+  private static final Logger LOGGER = LoggerFactory
+      .getLogger(ConnectionPoolMetrics.class);
+
+  /** The borrow latency histogram. */
+  private final LatencyHistogram borrowLatency = new LatencyHistogram();
+
+  /** The borrow time outs. */
+  private final LongAdder timeouts = new LongAdder();
+
+  /** The borrow failures, other than time outs. */
+  private final LongAdder failures = new LongAdder();
+
+  /** The listeners. */
+  private final List<ConnectionPoolListener> listeners =
+      new CopyOnWriteArrayList<ConnectionPoolListener>();
+
+  /**
+   * Adds the listener.
+   *
+   * @param listener the listener
+   */
+  public void addListener(final ConnectionPoolListener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Removes the listener.
+   *
+   * @param listener the listener
+   */
+  public void removeListener(final ConnectionPoolListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Record a successful borrow.
+   *
+   * @param waitNanos the time the borrow took, in nanoseconds
+   */
+  void borrowed(final long waitNanos) {
+    borrowLatency.record(waitNanos);
+
+    for (final ConnectionPoolListener listener : listeners) {
+      try {
+        listener.connectionBorrowed(waitNanos);
+      } catch (RuntimeException exception) {
+        LOGGER.warn("Connection pool listener failed: ", exception);
+      }
+    }
+  }
+
+  /**
+   * Record a failed borrow, which is counted as a time out when the pool
+   * reports it was exhausted.
+   *
+   * @param waitNanos the time the borrow took, in nanoseconds
+   * @param cause the cause
+   */
+  void failed(final long waitNanos, final Throwable cause) {
+    final boolean timedOut = isTimeout(cause);
+
+    if (timedOut) {
+      timeouts.increment();
+    } else {
+      failures.increment();
+    }
+
+    for (final ConnectionPoolListener listener : listeners) {
+      try {
+        if (timedOut) {
+          listener.borrowTimedOut(waitNanos);
+        } else {
+          listener.borrowFailed(waitNanos, cause);
+        }
+      } catch (RuntimeException exception) {
+        LOGGER.warn("Connection pool listener failed: ", exception);
+      }
+    }
+  }
+
+  /**
+   * Checks if the cause is a pool time out.
+   *
+   * @param cause the cause
+   * @return true, if a time out
+   */
+  private static boolean isTimeout(final Throwable cause) {
+    for (Throwable t = cause; null != t; t = t.getCause()) {
+      if (t instanceof NoSuchElementException
+          || t instanceof SQLTimeoutException) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Gets the borrow latency histogram.
+   *
+   * @return the borrow latency histogram
+   */
+  public LatencyHistogram getBorrowLatency() {
+    return borrowLatency;
+  }
+
+  /**
+   * Gets the number of borrow time outs.
+   *
+   * @return the time out count
+   */
+  public long getTimeoutCount() {
+    return timeouts.sum();
+  }
+
+  /**
+   * Gets the number of borrow failures, other than time outs.
+   *
+   * @return the failure count
+   */
+  public long getFailureCount() {
+    return failures.sum();
+  }
+}
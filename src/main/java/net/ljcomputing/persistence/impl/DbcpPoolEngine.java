@@ -0,0 +1,124 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence.impl;
+
+import net.ljcomputing.persistence.PoolEngine;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+/**
+ * Pool engine backed by a commons-dbcp2 basic data source.
+ *
+ * @author James G. Willmore
+ */
+final class DbcpPoolEngine implements PoolEngine {
+
+  /** The Basic Data Source. */
+  private final InstrumentedDataSource bds = new InstrumentedDataSource();
+
+  /**
+   * Instantiates a new commons-dbcp2 pool engine.
+   *
+   * @param config the configuration
+   */
+  DbcpPoolEngine(final ConnectionPoolConfiguration config) {
+    bds.setDriverClassName(config.getDriverClass());
+    bds.setUrl(config.getUrl());
+    bds.setUsername(config.getUser());
+    bds.setPassword(config.getPassword());
+    bds.setInitialSize(config.getInitialSize());
+    bds.setMaxTotal(config.getMaxTotal());
+    bds.setMaxIdle(config.getMaxIdle());
+    bds.setMinIdle(config.getMinIdle());
+    bds.setMaxWaitMillis(config.getMaxWaitMillis());
+    bds.setValidationQuery(config.getValidationQuery());
+    bds.setValidationQueryTimeout(config.getValidationTimeoutSeconds());
+    bds.setTestOnBorrow(config.isTestOnBorrow());
+    bds.setTestWhileIdle(config.isTestWhileIdle());
+    bds.setTimeBetweenEvictionRunsMillis(config.getEvictionIntervalMillis());
+    bds.setMinEvictableIdleTimeMillis(config.getMinEvictableIdleMillis());
+    bds.setNumTestsPerEvictionRun(config.getNumTestsPerEviction());
+    bds.setPoolPreparedStatements(config.isPoolStatements());
+    bds.setMaxOpenPreparedStatements(config.getMaxOpenStatements());
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.PoolEngine#getConnection()
+   */
+  public Connection getConnection() throws SQLException {
+    return bds.getConnection();
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.PoolEngine#getDataSource()
+   */
+  public DataSource getDataSource() {
+    return bds;
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.PoolEngine#getNumActive()
+   */
+  public int getNumActive() {
+    return bds.getNumActive();
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.PoolEngine#getNumIdle()
+   */
+  public int getNumIdle() {
+    return bds.getNumIdle();
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.PoolEngine#getNumWaiters()
+   */
+  public int getNumWaiters() {
+    return bds.getNumWaiters();
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.PoolEngine#getMaxTotal()
+   */
+  public int getMaxTotal() {
+    return bds.getMaxTotal();
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.PoolEngine#getCreatedCount()
+   */
+  public long getCreatedCount() {
+    return bds.getCreatedCount();
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.PoolEngine#getDestroyedCount()
+   */
+  public long getDestroyedCount() {
+    return bds.getDestroyedCount();
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.PoolEngine#close()
+   */
+  public void close() throws SQLException {
+    bds.close();
+  }
+}
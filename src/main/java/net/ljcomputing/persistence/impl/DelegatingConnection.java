@@ -0,0 +1,557 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+/**
+ * Connection handle delegating to a physical connection until it is closed.
+ * The statements created through the handle are tracked, and those still open
+ * when the handle is closed are closed with it, along with their result sets,
+ * so they do not outlive the borrow. Like a connection, a handle is meant for
+ * use by one thread at a time.
+ *
+ * @author James G. Willmore
+ */
+abstract class DelegatingConnection implements Connection {
+
+  /** SLF4J logger. */
+  private static final Logger LOGGER = LoggerFactory
+      .getLogger(DelegatingConnection.class);
+
+  /** The number of tracked statements at which closed ones are dropped. */
+  private static final int PRUNE_SIZE = 64;
+
+  /** The physical connection. */
+  private final Connection connection;
+
+  /** The statements created through the handle. */
+  private final List<Statement> statements = new ArrayList<Statement>();
+
+  /** The handle is closed. */
+  private boolean handleClosed;
+
+  /**
+   * Instantiates a new delegating connection.
+   *
+   * @param connection the physical connection
+   */
+  DelegatingConnection(final Connection connection) {
+    this.connection = connection;
+  }
+
+  /**
+   * Release the physical connection, once the handle and its statements are
+   * closed.
+   */
+  protected abstract void release();
+
+  /**
+   * Gets the physical connection, if the handle is open.
+   *
+   * @return the physical connection
+   * @throws SQLException if the handle is closed
+   */
+  private Connection open() throws SQLException {
+    if (handleClosed) {
+      throw new SQLException("Connection is closed");
+    }
+
+    return connection;
+  }
+
+  /**
+   * Track a statement created through the handle, first dropping the closed
+   * statements once there are many.
+   *
+   * @param <S> the statement type
+   * @param statement the statement
+   * @return the statement
+   * @throws SQLException the SQL exception
+   */
+  private <S extends Statement> S track(final S statement)
+      throws SQLException {
+    if (statements.size() >= PRUNE_SIZE) {
+      for (int s = statements.size() - 1; s >= 0; s--) {
+        if (statements.get(s).isClosed()) {
+          statements.remove(s);
+        }
+      }
+    }
+
+    statements.add(statement);
+    return statement;
+  }
+
+  /**
+   * Close the handle: close the statements still open, and release the
+   * physical connection.
+   *
+   * @see java.sql.Connection#close()
+   */
+  public void close() {
+    if (handleClosed) {
+      return;
+    }
+
+    handleClosed = true;
+
+    for (final Statement statement : statements) {
+      try {
+        statement.close();
+      } catch (SQLException exception) {
+        LOGGER.debug("Cannot close a statement: {}", exception.getMessage());
+      }
+    }
+
+    statements.clear();
+    release();
+  }
+
+  /**
+   * @see java.sql.Connection#isClosed()
+   */
+  public boolean isClosed() throws SQLException {
+    return handleClosed || connection.isClosed();
+  }
+
+  /**
+   * @see java.sql.Connection#createStatement()
+   */
+  public Statement createStatement() throws SQLException {
+    return track(open().createStatement());
+  }
+
+  /**
+   * @see java.sql.Connection#createStatement(int, int)
+   */
+  public Statement createStatement(final int resultSetType,
+      final int resultSetConcurrency) throws SQLException {
+    return track(open().createStatement(resultSetType, resultSetConcurrency));
+  }
+
+  /**
+   * @see java.sql.Connection#createStatement(int, int, int)
+   */
+  public Statement createStatement(final int resultSetType,
+      final int resultSetConcurrency, final int resultSetHoldability)
+      throws SQLException {
+    return track(open().createStatement(resultSetType, resultSetConcurrency,
+        resultSetHoldability));
+  }
+
+  /**
+   * @see java.sql.Connection#prepareStatement(java.lang.String)
+   */
+  public PreparedStatement prepareStatement(final String sql)
+      throws SQLException {
+    return track(open().prepareStatement(sql));
+  }
+
+  /**
+   * @see java.sql.Connection#prepareStatement(java.lang.String, int, int)
+   */
+  public PreparedStatement prepareStatement(final String sql,
+      final int resultSetType, final int resultSetConcurrency)
+      throws SQLException {
+    return track(open().prepareStatement(sql, resultSetType,
+        resultSetConcurrency));
+  }
+
+  /**
+   * @see java.sql.Connection#prepareStatement(java.lang.String, int, int, int)
+   */
+  public PreparedStatement prepareStatement(final String sql,
+      final int resultSetType, final int resultSetConcurrency,
+      final int resultSetHoldability) throws SQLException {
+    return track(open().prepareStatement(sql, resultSetType,
+        resultSetConcurrency, resultSetHoldability));
+  }
+
+  /**
+   * @see java.sql.Connection#prepareStatement(java.lang.String, int)
+   */
+  public PreparedStatement prepareStatement(final String sql,
+      final int autoGeneratedKeys) throws SQLException {
+    return track(open().prepareStatement(sql, autoGeneratedKeys));
+  }
+
+  /**
+   * @see java.sql.Connection#prepareStatement(java.lang.String, int[])
+   */
+  public PreparedStatement prepareStatement(final String sql,
+      final int[] columnIndexes) throws SQLException {
+    return track(open().prepareStatement(sql, columnIndexes));
+  }
+
+  /**
+   * @see java.sql.Connection#prepareStatement(java.lang.String, java.lang.String[])
+   */
+  public PreparedStatement prepareStatement(final String sql,
+      final String[] columnNames) throws SQLException {
+    return track(open().prepareStatement(sql, columnNames));
+  }
+
+  /**
+   * @see java.sql.Connection#prepareCall(java.lang.String)
+   */
+  public CallableStatement prepareCall(final String sql) throws SQLException {
+    return track(open().prepareCall(sql));
+  }
+
+  /**
+   * @see java.sql.Connection#prepareCall(java.lang.String, int, int)
+   */
+  public CallableStatement prepareCall(final String sql,
+      final int resultSetType, final int resultSetConcurrency)
+      throws SQLException {
+    return track(open().prepareCall(sql, resultSetType,
+        resultSetConcurrency));
+  }
+
+  /**
+   * @see java.sql.Connection#prepareCall(java.lang.String, int, int, int)
+   */
+  public CallableStatement prepareCall(final String sql,
+      final int resultSetType, final int resultSetConcurrency,
+      final int resultSetHoldability) throws SQLException {
+    return track(open().prepareCall(sql, resultSetType, resultSetConcurrency,
+        resultSetHoldability));
+  }
+
+  /**
+   * @see java.sql.Connection#nativeSQL(java.lang.String)
+   */
+  public String nativeSQL(final String sql) throws SQLException {
+    return open().nativeSQL(sql);
+  }
+
+  /**
+   * @see java.sql.Connection#setAutoCommit(boolean)
+   */
+  public void setAutoCommit(final boolean autoCommit) throws SQLException {
+    open().setAutoCommit(autoCommit);
+  }
+
+  /**
+   * @see java.sql.Connection#getAutoCommit()
+   */
+  public boolean getAutoCommit() throws SQLException {
+    return open().getAutoCommit();
+  }
+
+  /**
+   * @see java.sql.Connection#commit()
+   */
+  public void commit() throws SQLException {
+    open().commit();
+  }
+
+  /**
+   * @see java.sql.Connection#rollback()
+   */
+  public void rollback() throws SQLException {
+    open().rollback();
+  }
+
+  /**
+   * @see java.sql.Connection#rollback(java.sql.Savepoint)
+   */
+  public void rollback(final Savepoint savepoint) throws SQLException {
+    open().rollback(savepoint);
+  }
+
+  /**
+   * @see java.sql.Connection#setSavepoint()
+   */
+  public Savepoint setSavepoint() throws SQLException {
+    return open().setSavepoint();
+  }
+
+  /**
+   * @see java.sql.Connection#setSavepoint(java.lang.String)
+   */
+  public Savepoint setSavepoint(final String name) throws SQLException {
+    return open().setSavepoint(name);
+  }
+
+  /**
+   * @see java.sql.Connection#releaseSavepoint(java.sql.Savepoint)
+   */
+  public void releaseSavepoint(final Savepoint savepoint)
+      throws SQLException {
+    open().releaseSavepoint(savepoint);
+  }
+
+  /**
+   * @see java.sql.Connection#getMetaData()
+   */
+  public DatabaseMetaData getMetaData() throws SQLException {
+    return open().getMetaData();
+  }
+
+  /**
+   * @see java.sql.Connection#setReadOnly(boolean)
+   */
+  public void setReadOnly(final boolean readOnly) throws SQLException {
+    open().setReadOnly(readOnly);
+  }
+
+  /**
+   * @see java.sql.Connection#isReadOnly()
+   */
+  public boolean isReadOnly() throws SQLException {
+    return open().isReadOnly();
+  }
+
+  /**
+   * @see java.sql.Connection#setCatalog(java.lang.String)
+   */
+  public void setCatalog(final String catalog) throws SQLException {
+    open().setCatalog(catalog);
+  }
+
+  /**
+   * @see java.sql.Connection#getCatalog()
+   */
+  public String getCatalog() throws SQLException {
+    return open().getCatalog();
+  }
+
+  /**
+   * @see java.sql.Connection#setSchema(java.lang.String)
+   */
+  public void setSchema(final String schema) throws SQLException {
+    open().setSchema(schema);
+  }
+
+  /**
+   * @see java.sql.Connection#getSchema()
+   */
+  public String getSchema() throws SQLException {
+    return open().getSchema();
+  }
+
+  /**
+   * @see java.sql.Connection#setTransactionIsolation(int)
+   */
+  public void setTransactionIsolation(final int level) throws SQLException {
+    open().setTransactionIsolation(level);
+  }
+
+  /**
+   * @see java.sql.Connection#getTransactionIsolation()
+   */
+  public int getTransactionIsolation() throws SQLException {
+    return open().getTransactionIsolation();
+  }
+
+  /**
+   * @see java.sql.Connection#getWarnings()
+   */
+  public SQLWarning getWarnings() throws SQLException {
+    return open().getWarnings();
+  }
+
+  /**
+   * @see java.sql.Connection#clearWarnings()
+   */
+  public void clearWarnings() throws SQLException {
+    open().clearWarnings();
+  }
+
+  /**
+   * @see java.sql.Connection#getTypeMap()
+   */
+  public Map<String, Class<?>> getTypeMap() throws SQLException {
+    return open().getTypeMap();
+  }
+
+  /**
+   * @see java.sql.Connection#setTypeMap(java.util.Map)
+   */
+  public void setTypeMap(final Map<String, Class<?>> map)
+      throws SQLException {
+    open().setTypeMap(map);
+  }
+
+  /**
+   * @see java.sql.Connection#setHoldability(int)
+   */
+  public void setHoldability(final int holdability) throws SQLException {
+    open().setHoldability(holdability);
+  }
+
+  /**
+   * @see java.sql.Connection#getHoldability()
+   */
+  public int getHoldability() throws SQLException {
+    return open().getHoldability();
+  }
+
+  /**
+   * @see java.sql.Connection#createClob()
+   */
+  public Clob createClob() throws SQLException {
+    return open().createClob();
+  }
+
+  /**
+   * @see java.sql.Connection#createBlob()
+   */
+  public Blob createBlob() throws SQLException {
+    return open().createBlob();
+  }
+
+  /**
+   * @see java.sql.Connection#createNClob()
+   */
+  public NClob createNClob() throws SQLException {
+    return open().createNClob();
+  }
+
+  /**
+   * @see java.sql.Connection#createSQLXML()
+   */
+  public SQLXML createSQLXML() throws SQLException {
+    return open().createSQLXML();
+  }
+
+  /**
+   * @see java.sql.Connection#createArrayOf(java.lang.String, java.lang.Object[])
+   */
+  public Array createArrayOf(final String typeName, final Object[] elements)
+      throws SQLException {
+    return open().createArrayOf(typeName, elements);
+  }
+
+  /**
+   * @see java.sql.Connection#createStruct(java.lang.String, java.lang.Object[])
+   */
+  public Struct createStruct(final String typeName,
+      final Object[] attributes) throws SQLException {
+    return open().createStruct(typeName, attributes);
+  }
+
+  /**
+   * @see java.sql.Connection#isValid(int)
+   */
+  public boolean isValid(final int timeout) throws SQLException {
+    return !handleClosed && connection.isValid(timeout);
+  }
+
+  /**
+   * @see java.sql.Connection#setClientInfo(java.lang.String, java.lang.String)
+   */
+  public void setClientInfo(final String name, final String value)
+      throws SQLClientInfoException {
+    checkClientInfo();
+    connection.setClientInfo(name, value);
+  }
+
+  /**
+   * @see java.sql.Connection#setClientInfo(java.util.Properties)
+   */
+  public void setClientInfo(final Properties properties)
+      throws SQLClientInfoException {
+    checkClientInfo();
+    connection.setClientInfo(properties);
+  }
+
+  /**
+   * Checks the handle is open before setting client info.
+   *
+   * @throws SQLClientInfoException if the handle is closed
+   */
+  private void checkClientInfo() throws SQLClientInfoException {
+    if (handleClosed) {
+      throw new SQLClientInfoException("Connection is closed", null);
+    }
+  }
+
+  /**
+   * @see java.sql.Connection#getClientInfo(java.lang.String)
+   */
+  public String getClientInfo(final String name) throws SQLException {
+    return open().getClientInfo(name);
+  }
+
+  /**
+   * @see java.sql.Connection#getClientInfo()
+   */
+  public Properties getClientInfo() throws SQLException {
+    return open().getClientInfo();
+  }
+
+  /**
+   * @see java.sql.Connection#abort(java.util.concurrent.Executor)
+   */
+  public void abort(final Executor executor) throws SQLException {
+    open().abort(executor);
+  }
+
+  /**
+   * @see java.sql.Connection#setNetworkTimeout(java.util.concurrent.Executor, int)
+   */
+  public void setNetworkTimeout(final Executor executor,
+      final int milliseconds) throws SQLException {
+    open().setNetworkTimeout(executor, milliseconds);
+  }
+
+  /**
+   * @see java.sql.Connection#getNetworkTimeout()
+   */
+  public int getNetworkTimeout() throws SQLException {
+    return open().getNetworkTimeout();
+  }
+
+  /**
+   * @see java.sql.Wrapper#unwrap(java.lang.Class)
+   */
+  public <W> W unwrap(final Class<W> iface) throws SQLException {
+    return open().unwrap(iface);
+  }
+
+  /**
+   * @see java.sql.Wrapper#isWrapperFor(java.lang.Class)
+   */
+  public boolean isWrapperFor(final Class<?> iface) throws SQLException {
+    return open().isWrapperFor(iface);
+  }
+}
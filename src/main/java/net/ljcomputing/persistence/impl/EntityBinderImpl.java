@@ -0,0 +1,112 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence.impl;
+
+import net.ljcomputing.StringUtils;
+import net.ljcomputing.exception.PersistenceException;
+import net.ljcomputing.persistence.EntityBinder;
+import net.ljcomputing.persistence.FieldAccessor;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Implementation of an entity binder, which binds entity members to prepared
+ * statement parameters through field accessors. The accessor and column type
+ * of a member are resolved once per entity class and column.
+ *
+ * @author James G. Willmore
+ */
+public class EntityBinderImpl implements EntityBinder {
+
+  /** The accessor strategy. */
+  private final AccessorStrategy strategy;
+
+  /** The bound members, keyed by entity class and column. */
+  private final ClassValue<ConcurrentMap<String, BoundMember>> members =
+      new ClassValue<ConcurrentMap<String, BoundMember>>() {
+        @Override
+        protected ConcurrentMap<String, BoundMember> computeValue(
+            final Class<?> type) {
+          return new ConcurrentHashMap<String, BoundMember>();
+        }
+      };
+
+  /**
+   * Instantiates a new entity binder using the default accessor strategy.
+   */
+  public EntityBinderImpl() {
+    this(AccessorStrategy.getDefault());
+  }
+
+  /**
+   * Instantiates a new entity binder.
+   *
+   * @param strategy the accessor strategy
+   */
+  public EntityBinderImpl(final AccessorStrategy strategy) {
+    this.strategy = strategy;
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.EntityBinder#bind(java.lang.Object, java.sql.PreparedStatement, int, java.lang.String)
+   */
+  public void bind(final Object entity,
+      final PreparedStatement preparedStatement, final int parameterIndex,
+      final String column) throws PersistenceException {
+    final ConcurrentMap<String, BoundMember> entityMembers = members
+        .get(entity.getClass());
+    BoundMember member = entityMembers.get(column);
+
+    if (null == member) {
+      member = new BoundMember(strategy.getAccessor(entity.getClass(),
+          StringUtils.toMemberCase(column)));
+      entityMembers.putIfAbsent(column, member);
+    }
+
+    try {
+      member.columnType.bind(preparedStatement, parameterIndex,
+          member.accessor, entity);
+    } catch (SQLException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * A member accessor and its column type.
+   */
+  private static final class BoundMember {
+
+    /** The accessor. */
+    private final FieldAccessor accessor;
+
+    /** The column type. */
+    private final ColumnType columnType;
+
+    /**
+     * Instantiates a new bound member.
+     *
+     * @param accessor the accessor
+     */
+    private BoundMember(final FieldAccessor accessor) {
+      this.accessor = accessor;
+      this.columnType = ColumnType.forMember(accessor.getType());
+    }
+  }
+}
@@ -0,0 +1,115 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence.impl;
+
+import net.ljcomputing.StringUtils;
+import net.ljcomputing.exception.PersistenceException;
+import net.ljcomputing.persistence.FieldAccessor;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Column to field mapping plan for an entity class and a result set shape.
+ * The plan resolves the entity members and their column types once, indexed
+ * by column position, so populating a row is a plain loop over the plan.
+ *
+ * @author James G. Willmore
+ */
+final class EntityMappingPlan {
+
+  /** The entity class. */
+  private final Class<?> entityClass;
+
+  /** The member accessors, indexed by column position less one. */
+  private final FieldAccessor[] members;
+
+  /** The column types, indexed by column position less one. */
+  private final ColumnType[] columnTypes;
+
+  /**
+   * Instantiates a new entity mapping plan.
+   *
+   * @param entityClass the entity class
+   * @param members the members
+   * @param columnTypes the column types
+   */
+  private EntityMappingPlan(final Class<?> entityClass,
+      final FieldAccessor[] members, final ColumnType... columnTypes) {
+    this.entityClass = entityClass;
+    this.members = members;
+    this.columnTypes = columnTypes;
+  }
+
+  /**
+   * Builds the mapping plan for the given entity class and result set shape.
+   *
+   * @param entityClass the entity class
+   * @param strategy the accessor strategy
+   * @param shape the result set shape
+   * @return the entity mapping plan
+   * @throws PersistenceException the persistence exception
+   */
+  static EntityMappingPlan build(final Class<?> entityClass,
+      final AccessorStrategy strategy, final ResultSetShape shape)
+      throws PersistenceException {
+    final int columnCount = shape.getColumnCount();
+    final FieldAccessor[] members = new FieldAccessor[columnCount];
+    final ColumnType[] columnTypes = new ColumnType[columnCount];
+
+    for (int c = 0; c < columnCount; c++) {
+      members[c] = strategy.findAccessor(entityClass,
+          StringUtils.toMemberCase(shape.getColumnName(c + 1)));
+
+      if (null != members[c]) {
+        columnTypes[c] = ColumnType.forColumn(members[c].getType(),
+            shape.getColumnType(c + 1));
+      }
+    }
+
+    return new EntityMappingPlan(entityClass, members, columnTypes);
+  }
+
+  /**
+   * Gets the entity class.
+   *
+   * @return the entity class
+   */
+  Class<?> getEntityClass() {
+    return entityClass;
+  }
+
+  /**
+   * Populate the entity from the current row of the result set.
+   *
+   * @param entity the entity
+   * @param resultSet the result set
+   * @throws PersistenceException the persistence exception
+   */
+  void populate(final Object entity, final ResultSet resultSet)
+      throws PersistenceException {
+    try {
+      for (int c = 0; c < members.length; c++) {
+        if (null != members[c]) {
+          columnTypes[c].read(resultSet, c + 1, members[c], entity);
+        }
+      }
+    } catch (SQLException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+}
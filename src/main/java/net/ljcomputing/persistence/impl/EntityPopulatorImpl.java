@@ -16,116 +16,183 @@
 
 package net.ljcomputing.persistence.impl;
 
-import net.ljcomputing.StringUtils;
 import net.ljcomputing.exception.PersistenceException;
 import net.ljcomputing.persistence.EntityPopulator;
 
-import java.lang.reflect.Field;
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
-import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Implementation of an entity populator, which populates entities from a result
- * set.
+ * set. The column to member mapping is resolved once per entity class and
+ * result set shape, and cached.
  * 
  * @author James G. Willmore
  *
  */
 public class EntityPopulatorImpl implements EntityPopulator {
 
+  /** The accessor strategy. */
+  private final AccessorStrategy strategy;
+
+  /**
+   * The mapping plans, keyed by entity class, accessor strategy and result set
+   * shape. The cache is unbounded: plans are never evicted, so it holds one
+   * plan per distinct shape read for as long as the class is loaded. That is
+   * bounded by the queries of the application, but queries built with varying
+   * column lists grow it without limit.
+   */
+  private static final ConcurrentMap<PlanKey, EntityMappingPlan> PLANS =
+      new ConcurrentHashMap<PlanKey, EntityMappingPlan>();
+
+  /**
+   * Instantiates a new entity populator using the default accessor strategy.
+   */
+  public EntityPopulatorImpl() {
+    this(AccessorStrategy.getDefault());
+  }
+
+  /**
+   * Instantiates a new entity populator.
+   *
+   * @param strategy the accessor strategy
+   */
+  public EntityPopulatorImpl(final AccessorStrategy strategy) {
+    this.strategy = strategy;
+  }
+
   /**
    * @see net.ljcomputing.persistence.EntityPopulator#populate(java.lang.Object, java.sql.ResultSet)
    */
   public void populate(final Object entity, final ResultSet resultSet)
       throws PersistenceException {
-    try {
-      final int columnCount = getResultSetMetaData(resultSet).getColumnCount()
-          + 1;
+    getPlan(entity.getClass(), resultSet).populate(entity, resultSet);
+  }
 
-      for (int column = 1; column < columnCount; column++) {
-        populateMember(entity, resultSet, column);
-      }
-    } catch (SQLException exception) {
-      throw new PersistenceException(exception);
-    }
+  /**
+   * @see net.ljcomputing.persistence.EntityPopulator#prepare(java.lang.Class, java.sql.ResultSet)
+   */
+  public EntityPopulator prepare(final Class<?> entityClass,
+      final ResultSet resultSet) throws PersistenceException {
+    return new PreparedPopulator(getPlan(entityClass, resultSet));
   }
 
   /**
-   * Gets the result set meta data.
+   * Gets the mapping plan for the entity class and result set shape, building
+   * and caching it on first use.
    *
+   * @param entityClass the entity class
    * @param resultSet the result set
-   * @return the result set meta data
+   * @return the mapping plan
    * @throws PersistenceException the persistence exception
    */
-  private ResultSetMetaData getResultSetMetaData(final ResultSet resultSet)
-      throws PersistenceException {
-    try {
-      return resultSet.getMetaData();
-    } catch (SQLException exception) {
-      throw new PersistenceException(exception);
+  EntityMappingPlan getPlan(final Class<?> entityClass,
+      final ResultSet resultSet) throws PersistenceException {
+    final ResultSetShape shape = ResultSetShape.of(resultSet);
+    final PlanKey key = new PlanKey(entityClass, strategy, shape);
+    EntityMappingPlan plan = PLANS.get(key);
+
+    if (null == plan) {
+      plan = EntityMappingPlan.build(entityClass, strategy, shape);
+      final EntityMappingPlan existing = PLANS.putIfAbsent(key, plan);
+
+      if (null != existing) {
+        plan = existing;
+      }
     }
+
+    return plan;
   }
 
   /**
-   * Populate the entity member.
-   *
-   * @param entity the entity
-   * @param resultSet the result set
-   * @param column the column
-   * @throws PersistenceException the persistence exception
+   * Entity populator bound to the mapping plan of a single result set.
    */
-  private void populateMember(final Object entity, final ResultSet resultSet,
-      final int column) throws PersistenceException {
-    try {
-      final ResultSetMetaData rsmd = getResultSetMetaData(resultSet);
-      final String columnName = rsmd.getColumnName(column);
-      final String fieldName = StringUtils.toMemberCase(columnName);
-      final Class<?> entityClass = entity.getClass();
-      final Field member = getEntityMember(entityClass, fieldName);
-
-      member.setAccessible(true);
-      member.set(entity, resultSet.getObject(column));
-    } catch (SecurityException | IllegalArgumentException
-        | IllegalAccessException | SQLException exception) {
-      throw new PersistenceException(exception);
+  private final class PreparedPopulator implements EntityPopulator {
+
+    /** The mapping plan. */
+    private final EntityMappingPlan plan;
+
+    /**
+     * Instantiates a new prepared populator.
+     *
+     * @param plan the plan
+     */
+    private PreparedPopulator(final EntityMappingPlan plan) {
+      this.plan = plan;
+    }
+
+    /**
+     * @see net.ljcomputing.persistence.EntityPopulator#populate(java.lang.Object, java.sql.ResultSet)
+     */
+    public void populate(final Object entity, final ResultSet resultSet)
+        throws PersistenceException {
+      if (plan.getEntityClass() == entity.getClass()) {
+        plan.populate(entity, resultSet);
+      } else {
+        EntityPopulatorImpl.this.populate(entity, resultSet);
+      }
     }
   }
 
   /**
-   * Gets the entity member.
-   *
-   * @param entityClass the entity class
-   * @param columnMember the column member
-   * @return the entity member
-   * @throws PersistenceException the persistence exception
+   * Mapping plan cache key.
    */
-  private Field getEntityMember(final Class<?> entityClass,
-      final String columnMember) throws PersistenceException {
-    Field field = null;
-
-    for (int f = 0; f < entityClass.getSuperclass()
-        .getDeclaredFields().length; f++) {
-      if (null != field) {
-        break;
-      }
+  private static final class PlanKey {
+
+    /** The entity class. */
+    private final Class<?> entityClass;
+
+    /** The accessor strategy. */
+    private final AccessorStrategy strategy;
+
+    /** The result set shape. */
+    private final ResultSetShape shape;
+
+    /** The hash code. */
+    private final int hash;
+
+    /**
+     * Instantiates a new plan key.
+     *
+     * @param entityClass the entity class
+     * @param strategy the accessor strategy
+     * @param shape the result set shape
+     */
+    private PlanKey(final Class<?> entityClass,
+        final AccessorStrategy strategy, final ResultSetShape shape) {
+      this.entityClass = entityClass;
+      this.strategy = strategy;
+      this.shape = shape;
+      this.hash = 31 * (31 * entityClass.hashCode() + strategy.hashCode())
+          + shape.hashCode();
+    }
 
-      if (columnMember.equals(
-          entityClass.getSuperclass().getDeclaredFields()[f].getName())) {
-        field = entityClass.getSuperclass().getDeclaredFields()[f];
-      }
+    /**
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+      return hash;
     }
 
-    for (int f = 0; f < entityClass.getDeclaredFields().length; f++) {
-      if (null != field) {
-        break;
+    /**
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(final Object obj) {
+      if (this == obj) {
+        return true;
       }
 
-      if (columnMember.equals(entityClass.getDeclaredFields()[f].getName())) {
-        field = entityClass.getDeclaredFields()[f];
+      if (!(obj instanceof PlanKey)) {
+        return false;
       }
-    }
 
-    return field;
+      final PlanKey other = (PlanKey) obj;
+
+      return entityClass == other.entityClass && strategy == other.strategy
+          && shape.equals(other.shape);
+    }
   }
 }
@@ -0,0 +1,104 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Identity map of a unit of work: the entities read within it, keyed by table
+ * and id, so each row read more than once resolves to the same instance
+ * without another query. The map is discarded when the unit of work
+ * completes. Like its unit of work, it is confined to one thread.
+ *
+ * @author James G. Willmore
+ */
+public final class IdentityMap {
+
+  /** The entities, keyed by table name and id. */
+  private final Map<String, Map<Integer, Object>> tables =
+      new HashMap<String, Map<Integer, Object>>();
+
+  /**
+   * Instantiates a new identity map.
+   */
+  IdentityMap() {
+  }
+
+  /**
+   * Gets the entity of the table with the id.
+   *
+   * @param table the table name
+   * @param id the id
+   * @return the entity, or null if not in the map
+   */
+  public Object get(final String table, final Integer id) {
+    final Map<Integer, Object> entities = tables.get(table);
+
+    return null == entities ? null : entities.get(id);
+  }
+
+  /**
+   * Put the entity of the table with the id, unless the map already has one.
+   *
+   * @param table the table name
+   * @param id the id
+   * @param entity the entity
+   * @return the entity in the map: the existing one, or else the given one
+   */
+  public Object putIfAbsent(final String table, final Integer id,
+      final Object entity) {
+    final Object existing = tables
+        .computeIfAbsent(table, t -> new HashMap<Integer, Object>())
+        .putIfAbsent(id, entity);
+
+    return null == existing ? entity : existing;
+  }
+
+  /**
+   * Put the entity of the table with the id, replacing any entity the map has.
+   *
+   * @param table the table name
+   * @param id the id
+   * @param entity the entity
+   */
+  public void put(final String table, final Integer id, final Object entity) {
+    tables.computeIfAbsent(table, t -> new HashMap<Integer, Object>())
+        .put(id, entity);
+  }
+
+  /**
+   * Remove the entity of the table with the id, so it is read again.
+   *
+   * @param table the table name
+   * @param id the id
+   */
+  public void remove(final String table, final Integer id) {
+    final Map<Integer, Object> entities = tables.get(table);
+
+    if (null != entities) {
+      entities.remove(id);
+    }
+  }
+
+  /**
+   * Remove every entity.
+   */
+  void clear() {
+    tables.clear();
+  }
+}
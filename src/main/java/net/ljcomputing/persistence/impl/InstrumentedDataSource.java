@@ -0,0 +1,62 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence.impl;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.apache.commons.dbcp2.PoolableConnection;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+
+/**
+ * Basic data source exposing the statistics of its underlying object pool.
+ *
+ * @author James G. Willmore
+ */
+class InstrumentedDataSource extends BasicDataSource {
+
+  /**
+   * Gets the number of threads waiting for a connection.
+   *
+   * @return the number of waiting threads
+   */
+  int getNumWaiters() {
+    final GenericObjectPool<PoolableConnection> pool = getConnectionPool();
+
+    return null == pool ? 0 : pool.getNumWaiters();
+  }
+
+  /**
+   * Gets the number of connections created by the pool.
+   *
+   * @return the created count
+   */
+  long getCreatedCount() {
+    final GenericObjectPool<PoolableConnection> pool = getConnectionPool();
+
+    return null == pool ? 0 : pool.getCreatedCount();
+  }
+
+  /**
+   * Gets the number of connections destroyed by the pool.
+   *
+   * @return the destroyed count
+   */
+  long getDestroyedCount() {
+    final GenericObjectPool<PoolableConnection> pool = getConnectionPool();
+
+    return null == pool ? 0 : pool.getDestroyedCount();
+  }
+}
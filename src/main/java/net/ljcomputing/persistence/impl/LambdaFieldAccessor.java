@@ -0,0 +1,426 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence.impl;
+
+import net.ljcomputing.exception.PersistenceException;
+import net.ljcomputing.persistence.FieldAccessor;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Field accessor using functions built by the {@link LambdaMetafactory} over
+ * the public bean getter and setter of the member. Each function is a generated
+ * class calling the bean method directly, so the JIT compiles and inlines the
+ * bean method into it as it would a hand written accessor. The call from the
+ * populator or binder into the accessor remains an interface call. Members of
+ * type int, long and double also get primitive functions, so the primitive
+ * accessors do not box.
+ *
+ * <p>
+ * The bean methods are invoked virtually, so an override in a subclass is
+ * honored. Members without a public getter and setter of the member type, or
+ * of classes not visible to the class loader of this class, are rejected with a
+ * {@link NoSuchMethodException}.
+ * </p>
+ *
+ * @author James G. Willmore
+ */
+final class LambdaFieldAccessor implements FieldAccessor {
+
+  /** The erased getter type. */
+  private static final MethodType GETTER_TYPE = MethodType
+      .methodType(Object.class, Object.class);
+
+  /** The erased setter type. */
+  private static final MethodType SETTER_TYPE = MethodType
+      .methodType(void.class, Object.class, Object.class);
+
+  /** The member type. */
+  private final Class<?> type;
+
+  /** The getter. */
+  private final Function<Object, Object> getter;
+
+  /** The setter. */
+  private final BiConsumer<Object, Object> setter;
+
+  /** The int getter, or null for members not of type int. */
+  private final ToIntFunction<Object> intGetter;
+
+  /** The int setter, or null for members not of type int. */
+  private final ObjIntConsumer<Object> intSetter;
+
+  /** The long getter, or null for members not of type long. */
+  private final ToLongFunction<Object> longGetter;
+
+  /** The long setter, or null for members not of type long. */
+  private final ObjLongConsumer<Object> longSetter;
+
+  /** The double getter, or null for members not of type double. */
+  private final ToDoubleFunction<Object> doubleGetter;
+
+  /** The double setter, or null for members not of type double. */
+  private final ObjDoubleConsumer<Object> doubleSetter;
+
+  /**
+   * Instantiates a new lambda field accessor.
+   *
+   * @param field the field
+   * @throws ReflectiveOperationException if the member has no usable bean
+   *           getter and setter
+   * @throws LambdaConversionException the lambda conversion exception
+   */
+  @SuppressWarnings("unchecked")
+  LambdaFieldAccessor(final Field field)
+      throws ReflectiveOperationException, LambdaConversionException {
+    final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    final Class<?> owner = field.getDeclaringClass();
+
+    this.type = field.getType();
+
+    if (!isVisible(owner) || !isVisible(type)) {
+      throw new NoSuchMethodException(
+          "Not visible: " + owner.getName() + "." + field.getName());
+    }
+
+    final MethodHandle beanGetter = lookup
+        .unreflect(findGetter(owner, field.getName(), type));
+    final MethodHandle beanSetter = lookup
+        .unreflect(findSetter(owner, field.getName(), type));
+    final Class<?> boxed = MethodType.methodType(type).wrap().returnType();
+
+    this.getter = (Function<Object, Object>) create(lookup, Function.class,
+        "apply", GETTER_TYPE, beanGetter,
+        MethodType.methodType(boxed, owner));
+    this.setter = (BiConsumer<Object, Object>) create(lookup,
+        BiConsumer.class, "accept", SETTER_TYPE, beanSetter,
+        MethodType.methodType(void.class, owner, boxed));
+
+    if (int.class == type) {
+      this.intGetter = (ToIntFunction<Object>) create(lookup,
+          ToIntFunction.class, "applyAsInt",
+          MethodType.methodType(int.class, Object.class), beanGetter,
+          beanGetter.type());
+      this.intSetter = (ObjIntConsumer<Object>) create(lookup,
+          ObjIntConsumer.class, "accept",
+          MethodType.methodType(void.class, Object.class, int.class),
+          beanSetter, beanSetter.type());
+    } else {
+      this.intGetter = null;
+      this.intSetter = null;
+    }
+
+    if (long.class == type) {
+      this.longGetter = (ToLongFunction<Object>) create(lookup,
+          ToLongFunction.class, "applyAsLong",
+          MethodType.methodType(long.class, Object.class), beanGetter,
+          beanGetter.type());
+      this.longSetter = (ObjLongConsumer<Object>) create(lookup,
+          ObjLongConsumer.class, "accept",
+          MethodType.methodType(void.class, Object.class, long.class),
+          beanSetter, beanSetter.type());
+    } else {
+      this.longGetter = null;
+      this.longSetter = null;
+    }
+
+    if (double.class == type) {
+      this.doubleGetter = (ToDoubleFunction<Object>) create(lookup,
+          ToDoubleFunction.class, "applyAsDouble",
+          MethodType.methodType(double.class, Object.class), beanGetter,
+          beanGetter.type());
+      this.doubleSetter = (ObjDoubleConsumer<Object>) create(lookup,
+          ObjDoubleConsumer.class, "accept",
+          MethodType.methodType(void.class, Object.class, double.class),
+          beanSetter, beanSetter.type());
+    } else {
+      this.doubleGetter = null;
+      this.doubleSetter = null;
+    }
+  }
+
+  /**
+   * Checks if the class is visible to the class loader of this class, which
+   * defines the generated functions.
+   *
+   * @param klass the class
+   * @return true, if visible
+   */
+  private static boolean isVisible(final Class<?> klass) {
+    if (klass.isPrimitive()) {
+      return true;
+    }
+
+    for (Class<?> type = klass; null != type; type = type
+        .getEnclosingClass()) {
+      if (!Modifier.isPublic(type.getModifiers())) {
+        return false;
+      }
+    }
+
+    try {
+      return klass == Class.forName(klass.getName(), false,
+          LambdaFieldAccessor.class.getClassLoader());
+    } catch (ClassNotFoundException exception) {
+      return false;
+    }
+  }
+
+  /**
+   * Find the public getter of the member.
+   *
+   * @param owner the class declaring the member
+   * @param memberName the member name
+   * @param type the member type
+   * @return the getter
+   * @throws NoSuchMethodException if there is no usable getter
+   */
+  private static Method findGetter(final Class<?> owner,
+      final String memberName, final Class<?> type)
+      throws NoSuchMethodException {
+    final String name = (boolean.class == type ? "is" : "get")
+        + capitalize(memberName);
+
+    return check(owner.getMethod(name), type);
+  }
+
+  /**
+   * Find the public setter of the member.
+   *
+   * @param owner the class declaring the member
+   * @param memberName the member name
+   * @param type the member type
+   * @return the setter
+   * @throws NoSuchMethodException if there is no usable setter
+   */
+  private static Method findSetter(final Class<?> owner,
+      final String memberName, final Class<?> type)
+      throws NoSuchMethodException {
+    return check(owner.getMethod("set" + capitalize(memberName), type),
+        void.class);
+  }
+
+  /**
+   * Check the bean method is an instance method of a visible class, returning
+   * the given type and declaring no exceptions.
+   *
+   * @param method the method
+   * @param returnType the expected return type
+   * @return the method
+   * @throws NoSuchMethodException if the method is not usable
+   */
+  private static Method check(final Method method, final Class<?> returnType)
+      throws NoSuchMethodException {
+    if (Modifier.isStatic(method.getModifiers())
+        || returnType != method.getReturnType()
+        || 0 != method.getExceptionTypes().length
+        || !isVisible(method.getDeclaringClass())) {
+      throw new NoSuchMethodException("Not a bean accessor: " + method);
+    }
+
+    return method;
+  }
+
+  /**
+   * Capitalize the member name.
+   *
+   * @param memberName the member name
+   * @return the capitalized name
+   */
+  private static String capitalize(final String memberName) {
+    return Character.toUpperCase(memberName.charAt(0))
+        + memberName.substring(1);
+  }
+
+  /**
+   * Create a function implementing the given interface method with the bean
+   * method.
+   *
+   * @param lookup the lookup
+   * @param functional the functional interface
+   * @param name the interface method name
+   * @param erased the erased interface method type
+   * @param implementation the bean method
+   * @param instantiated the interface method type, as instantiated
+   * @return the function
+   * @throws LambdaConversionException the lambda conversion exception
+   */
+  private static Object create(final MethodHandles.Lookup lookup,
+      final Class<?> functional, final String name, final MethodType erased,
+      final MethodHandle implementation, final MethodType instantiated)
+      throws LambdaConversionException {
+    final CallSite site = LambdaMetafactory.metafactory(lookup, name,
+        MethodType.methodType(functional), erased, implementation,
+        instantiated);
+
+    try {
+      return site.getTarget().invoke();
+    } catch (Error | RuntimeException exception) {
+      throw exception;
+    } catch (Throwable exception) {
+      throw new LambdaConversionException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#getType()
+   */
+  public Class<?> getType() {
+    return type;
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#get(java.lang.Object)
+   */
+  public Object get(final Object target) throws PersistenceException {
+    try {
+      return getter.apply(target);
+    } catch (RuntimeException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#set(java.lang.Object, java.lang.Object)
+   */
+  public void set(final Object target, final Object value)
+      throws PersistenceException {
+    try {
+      setter.accept(target, value);
+    } catch (RuntimeException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#getInt(java.lang.Object)
+   */
+  @Override
+  public int getInt(final Object target) throws PersistenceException {
+    if (null == intGetter) {
+      return FieldAccessor.super.getInt(target);
+    }
+
+    try {
+      return intGetter.applyAsInt(target);
+    } catch (RuntimeException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#setInt(java.lang.Object, int)
+   */
+  @Override
+  public void setInt(final Object target, final int value)
+      throws PersistenceException {
+    if (null == intSetter) {
+      FieldAccessor.super.setInt(target, value);
+      return;
+    }
+
+    try {
+      intSetter.accept(target, value);
+    } catch (RuntimeException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#getLong(java.lang.Object)
+   */
+  @Override
+  public long getLong(final Object target) throws PersistenceException {
+    if (null == longGetter) {
+      return FieldAccessor.super.getLong(target);
+    }
+
+    try {
+      return longGetter.applyAsLong(target);
+    } catch (RuntimeException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#setLong(java.lang.Object, long)
+   */
+  @Override
+  public void setLong(final Object target, final long value)
+      throws PersistenceException {
+    if (null == longSetter) {
+      FieldAccessor.super.setLong(target, value);
+      return;
+    }
+
+    try {
+      longSetter.accept(target, value);
+    } catch (RuntimeException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#getDouble(java.lang.Object)
+   */
+  @Override
+  public double getDouble(final Object target) throws PersistenceException {
+    if (null == doubleGetter) {
+      return FieldAccessor.super.getDouble(target);
+    }
+
+    try {
+      return doubleGetter.applyAsDouble(target);
+    } catch (RuntimeException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#setDouble(java.lang.Object, double)
+   */
+  @Override
+  public void setDouble(final Object target, final double value)
+      throws PersistenceException {
+    if (null == doubleSetter) {
+      FieldAccessor.super.setDouble(target, value);
+      return;
+    }
+
+    try {
+      doubleSetter.accept(target, value);
+    } catch (RuntimeException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+}
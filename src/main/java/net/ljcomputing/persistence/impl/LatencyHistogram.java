@@ -0,0 +1,170 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence.impl;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power of two microsecond buckets. Bucket
+ * <i>i</i> counts latencies below 2<sup>i</sup> microseconds and above the
+ * previous bucket; the last bucket counts everything longer.
+ *
+ * @author James G. Willmore
+ */
+public class LatencyHistogram {
+
+  /** The number of buckets; the last but one bound is about 33 seconds. */
+  private static final int BUCKETS = 27;
+
+  /** The bucket counts. */
+  private final LongAdder[] counts = new LongAdder[BUCKETS];
+
+  /** The total latency, in nanoseconds. */
+  private final LongAdder totalNanos = new LongAdder();
+
+  /** The maximum latency, in nanoseconds. */
+  private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+  /**
+   * Instantiates a new latency histogram.
+   */
+  public LatencyHistogram() {
+    for (int b = 0; b < BUCKETS; b++) {
+      counts[b] = new LongAdder();
+    }
+  }
+
+  /**
+   * Record a latency.
+   *
+   * @param nanos the latency, in nanoseconds
+   */
+  public void record(final long nanos) {
+    final long micros = Math.max(0L, nanos / 1000L);
+    final int bucket = Math.min(BUCKETS - 1,
+        64 - Long.numberOfLeadingZeros(micros));
+
+    counts[bucket].increment();
+    totalNanos.add(nanos);
+    maxNanos.accumulate(nanos);
+  }
+
+  /**
+   * Gets the number of recorded latencies.
+   *
+   * @return the count
+   */
+  public long getCount() {
+    long count = 0;
+
+    for (final LongAdder bucket : counts) {
+      count += bucket.sum();
+    }
+
+    return count;
+  }
+
+  /**
+   * Gets the mean latency.
+   *
+   * @return the mean latency, in microseconds
+   */
+  public long getMeanMicros() {
+    final long count = getCount();
+
+    return 0 == count ? 0 : totalNanos.sum() / count / 1000L;
+  }
+
+  /**
+   * Gets the maximum latency.
+   *
+   * @return the maximum latency, in microseconds
+   */
+  public long getMaxMicros() {
+    return maxNanos.get() / 1000L;
+  }
+
+  /**
+   * Gets the upper bound of the bucket holding the given percentile.
+   *
+   * @param percentile the percentile, between 0 and 100
+   * @return the latency bound, in microseconds; Long.MAX_VALUE for the
+   *         overflow bucket
+   */
+  public long getPercentileMicros(final double percentile) {
+    final long[] snapshot = getCounts();
+    long count = 0;
+
+    for (final long bucket : snapshot) {
+      count += bucket;
+    }
+
+    final long rank = (long) Math.ceil(count * percentile / 100.0);
+    long seen = 0;
+
+    for (int b = 0; b < BUCKETS; b++) {
+      seen += snapshot[b];
+
+      if (seen >= rank && seen > 0) {
+        return getBound(b);
+      }
+    }
+
+    return 0;
+  }
+
+  /**
+   * Gets the bucket counts.
+   *
+   * @return the bucket counts
+   */
+  public long[] getCounts() {
+    final long[] snapshot = new long[BUCKETS];
+
+    for (int b = 0; b < BUCKETS; b++) {
+      snapshot[b] = counts[b].sum();
+    }
+
+    return snapshot;
+  }
+
+  /**
+   * Gets the bucket upper bounds.
+   *
+   * @return the bucket upper bounds, in microseconds
+   */
+  public long[] getBounds() {
+    final long[] bounds = new long[BUCKETS];
+
+    for (int b = 0; b < BUCKETS; b++) {
+      bounds[b] = getBound(b);
+    }
+
+    return bounds;
+  }
+
+  /**
+   * Gets the (exclusive) upper bound of the bucket.
+   *
+   * @param bucket the bucket
+   * @return the bound, in microseconds
+   */
+  private static long getBound(final int bucket) {
+    return bucket == BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+  }
+}
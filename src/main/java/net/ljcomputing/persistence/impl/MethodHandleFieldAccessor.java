@@ -0,0 +1,390 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence.impl;
+
+import net.ljcomputing.exception.PersistenceException;
+import net.ljcomputing.persistence.FieldAccessor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * Field accessor using method handles. The getter and setter handles are
+ * adapted to erased signatures once, so every access is an exact invocation
+ * without the per call access and argument checks of reflection. The handles
+ * are instance fields, one accessor per field, so they are not constants the
+ * JIT can fold into the caller. Primitive members also get handles adapted to
+ * their primitive type, so the primitive accessors do not box.
+ *
+ * @author James G. Willmore
+ */
+final class MethodHandleFieldAccessor implements FieldAccessor {
+
+  /** The erased getter type. */
+  private static final MethodType GETTER_TYPE = MethodType
+      .methodType(Object.class, Object.class);
+
+  /** The erased setter type. */
+  private static final MethodType SETTER_TYPE = MethodType
+      .methodType(void.class, Object.class, Object.class);
+
+  /** The member type. */
+  private final Class<?> type;
+
+  /** The getter. */
+  private final MethodHandle getter;
+
+  /** The setter. */
+  private final MethodHandle setter;
+
+  /** The primitive getter, or null for reference members. */
+  private final MethodHandle primitiveGetter;
+
+  /** The primitive setter, or null for reference members. */
+  private final MethodHandle primitiveSetter;
+
+  /**
+   * Instantiates a new method handle field accessor.
+   *
+   * @param field the field
+   * @throws IllegalAccessException the illegal access exception
+   */
+  MethodHandleFieldAccessor(final Field field) throws IllegalAccessException {
+    final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    field.setAccessible(true);
+    this.type = field.getType();
+
+    final MethodHandle fieldGetter = lookup.unreflectGetter(field);
+    final MethodHandle fieldSetter = lookup.unreflectSetter(field);
+
+    this.getter = fieldGetter.asType(GETTER_TYPE);
+    this.setter = fieldSetter.asType(SETTER_TYPE);
+
+    if (type.isPrimitive()) {
+      this.primitiveGetter = fieldGetter
+          .asType(MethodType.methodType(type, Object.class));
+      this.primitiveSetter = fieldSetter
+          .asType(MethodType.methodType(void.class, Object.class, type));
+    } else {
+      this.primitiveGetter = null;
+      this.primitiveSetter = null;
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#getType()
+   */
+  public Class<?> getType() {
+    return type;
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#get(java.lang.Object)
+   */
+  public Object get(final Object target) throws PersistenceException {
+    try {
+      return (Object) getter.invokeExact(target);
+    } catch (Error error) {
+      throw error;
+    } catch (Throwable exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#set(java.lang.Object, java.lang.Object)
+   */
+  public void set(final Object target, final Object value)
+      throws PersistenceException {
+    try {
+      setter.invokeExact(target, value);
+    } catch (Error error) {
+      throw error;
+    } catch (Throwable exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#getInt(java.lang.Object)
+   */
+  @Override
+  public int getInt(final Object target) throws PersistenceException {
+    if (int.class != type) {
+      return FieldAccessor.super.getInt(target);
+    }
+
+    try {
+      return (int) primitiveGetter.invokeExact(target);
+    } catch (Error error) {
+      throw error;
+    } catch (Throwable exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#setInt(java.lang.Object, int)
+   */
+  @Override
+  public void setInt(final Object target, final int value)
+      throws PersistenceException {
+    if (int.class != type) {
+      FieldAccessor.super.setInt(target, value);
+      return;
+    }
+
+    try {
+      primitiveSetter.invokeExact(target, value);
+    } catch (Error error) {
+      throw error;
+    } catch (Throwable exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#getLong(java.lang.Object)
+   */
+  @Override
+  public long getLong(final Object target) throws PersistenceException {
+    if (long.class != type) {
+      return FieldAccessor.super.getLong(target);
+    }
+
+    try {
+      return (long) primitiveGetter.invokeExact(target);
+    } catch (Error error) {
+      throw error;
+    } catch (Throwable exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#setLong(java.lang.Object, long)
+   */
+  @Override
+  public void setLong(final Object target, final long value)
+      throws PersistenceException {
+    if (long.class != type) {
+      FieldAccessor.super.setLong(target, value);
+      return;
+    }
+
+    try {
+      primitiveSetter.invokeExact(target, value);
+    } catch (Error error) {
+      throw error;
+    } catch (Throwable exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#getDouble(java.lang.Object)
+   */
+  @Override
+  public double getDouble(final Object target) throws PersistenceException {
+    if (double.class != type) {
+      return FieldAccessor.super.getDouble(target);
+    }
+
+    try {
+      return (double) primitiveGetter.invokeExact(target);
+    } catch (Error error) {
+      throw error;
+    } catch (Throwable exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#setDouble(java.lang.Object, double)
+   */
+  @Override
+  public void setDouble(final Object target, final double value)
+      throws PersistenceException {
+    if (double.class != type) {
+      FieldAccessor.super.setDouble(target, value);
+      return;
+    }
+
+    try {
+      primitiveSetter.invokeExact(target, value);
+    } catch (Error error) {
+      throw error;
+    } catch (Throwable exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#getFloat(java.lang.Object)
+   */
+  @Override
+  public float getFloat(final Object target) throws PersistenceException {
+    if (float.class != type) {
+      return FieldAccessor.super.getFloat(target);
+    }
+
+    try {
+      return (float) primitiveGetter.invokeExact(target);
+    } catch (Error error) {
+      throw error;
+    } catch (Throwable exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#setFloat(java.lang.Object, float)
+   */
+  @Override
+  public void setFloat(final Object target, final float value)
+      throws PersistenceException {
+    if (float.class != type) {
+      FieldAccessor.super.setFloat(target, value);
+      return;
+    }
+
+    try {
+      primitiveSetter.invokeExact(target, value);
+    } catch (Error error) {
+      throw error;
+    } catch (Throwable exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#getShort(java.lang.Object)
+   */
+  @Override
+  public short getShort(final Object target) throws PersistenceException {
+    if (short.class != type) {
+      return FieldAccessor.super.getShort(target);
+    }
+
+    try {
+      return (short) primitiveGetter.invokeExact(target);
+    } catch (Error error) {
+      throw error;
+    } catch (Throwable exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#setShort(java.lang.Object, short)
+   */
+  @Override
+  public void setShort(final Object target, final short value)
+      throws PersistenceException {
+    if (short.class != type) {
+      FieldAccessor.super.setShort(target, value);
+      return;
+    }
+
+    try {
+      primitiveSetter.invokeExact(target, value);
+    } catch (Error error) {
+      throw error;
+    } catch (Throwable exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#getByte(java.lang.Object)
+   */
+  @Override
+  public byte getByte(final Object target) throws PersistenceException {
+    if (byte.class != type) {
+      return FieldAccessor.super.getByte(target);
+    }
+
+    try {
+      return (byte) primitiveGetter.invokeExact(target);
+    } catch (Error error) {
+      throw error;
+    } catch (Throwable exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#setByte(java.lang.Object, byte)
+   */
+  @Override
+  public void setByte(final Object target, final byte value)
+      throws PersistenceException {
+    if (byte.class != type) {
+      FieldAccessor.super.setByte(target, value);
+      return;
+    }
+
+    try {
+      primitiveSetter.invokeExact(target, value);
+    } catch (Error error) {
+      throw error;
+    } catch (Throwable exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#getBoolean(java.lang.Object)
+   */
+  @Override
+  public boolean getBoolean(final Object target) throws PersistenceException {
+    if (boolean.class != type) {
+      return FieldAccessor.super.getBoolean(target);
+    }
+
+    try {
+      return (boolean) primitiveGetter.invokeExact(target);
+    } catch (Error error) {
+      throw error;
+    } catch (Throwable exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#setBoolean(java.lang.Object, boolean)
+   */
+  @Override
+  public void setBoolean(final Object target, final boolean value)
+      throws PersistenceException {
+    if (boolean.class != type) {
+      FieldAccessor.super.setBoolean(target, value);
+      return;
+    }
+
+    try {
+      primitiveSetter.invokeExact(target, value);
+    } catch (Error error) {
+      throw error;
+    } catch (Throwable exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+}
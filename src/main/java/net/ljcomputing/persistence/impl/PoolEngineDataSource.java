@@ -0,0 +1,123 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence.impl;
+
+import net.ljcomputing.persistence.PoolEngine;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * Data source view of a pool engine. Connections are always borrowed with the
+ * configured credentials.
+ *
+ * @author James G. Willmore
+ */
+final class PoolEngineDataSource implements DataSource {
+
+  /** The pool engine. */
+  private final PoolEngine engine;
+
+  /** The log writer. */
+  private volatile PrintWriter logWriter;
+
+  /** The login timeout, in seconds. */
+  private volatile int loginTimeout;
+
+  /**
+   * Instantiates a new pool engine data source.
+   *
+   * @param engine the pool engine
+   */
+  PoolEngineDataSource(final PoolEngine engine) {
+    this.engine = engine;
+  }
+
+  /**
+   * @see javax.sql.DataSource#getConnection()
+   */
+  public Connection getConnection() throws SQLException {
+    return engine.getConnection();
+  }
+
+  /**
+   * @see javax.sql.DataSource#getConnection(java.lang.String, java.lang.String)
+   */
+  public Connection getConnection(final String username,
+      final String password) throws SQLException {
+    throw new SQLFeatureNotSupportedException(
+        "Connections are borrowed with the configured credentials");
+  }
+
+  /**
+   * @see javax.sql.CommonDataSource#getLogWriter()
+   */
+  public PrintWriter getLogWriter() {
+    return logWriter;
+  }
+
+  /**
+   * @see javax.sql.CommonDataSource#setLogWriter(java.io.PrintWriter)
+   */
+  public void setLogWriter(final PrintWriter out) {
+    this.logWriter = out;
+  }
+
+  /**
+   * @see javax.sql.CommonDataSource#setLoginTimeout(int)
+   */
+  public void setLoginTimeout(final int seconds) {
+    this.loginTimeout = seconds;
+  }
+
+  /**
+   * @see javax.sql.CommonDataSource#getLoginTimeout()
+   */
+  public int getLoginTimeout() {
+    return loginTimeout;
+  }
+
+  /**
+   * @see javax.sql.CommonDataSource#getParentLogger()
+   */
+  public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  /**
+   * @see java.sql.Wrapper#unwrap(java.lang.Class)
+   */
+  public <T> T unwrap(final Class<T> iface) throws SQLException {
+    if (iface.isInstance(this)) {
+      return iface.cast(this);
+    }
+
+    throw new SQLException("Not a wrapper for " + iface.getName());
+  }
+
+  /**
+   * @see java.sql.Wrapper#isWrapperFor(java.lang.Class)
+   */
+  public boolean isWrapperFor(final Class<?> iface) {
+    return iface.isInstance(this);
+  }
+}
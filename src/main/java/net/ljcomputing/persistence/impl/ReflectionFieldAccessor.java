@@ -0,0 +1,248 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence.impl;
+
+import net.ljcomputing.exception.PersistenceException;
+import net.ljcomputing.persistence.FieldAccessor;
+
+import java.lang.reflect.Field;
+
+/**
+ * Field accessor using core reflection.
+ *
+ * @author James G. Willmore
+ */
+final class ReflectionFieldAccessor implements FieldAccessor {
+
+  /** The field. */
+  private final Field field;
+
+  /**
+   * Instantiates a new reflection field accessor.
+   *
+   * @param field the field
+   */
+  ReflectionFieldAccessor(final Field field) {
+    field.setAccessible(true);
+    this.field = field;
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#get(java.lang.Object)
+   */
+  public Object get(final Object target) throws PersistenceException {
+    try {
+      return field.get(target);
+    } catch (IllegalArgumentException | IllegalAccessException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#set(java.lang.Object, java.lang.Object)
+   */
+  public void set(final Object target, final Object value)
+      throws PersistenceException {
+    try {
+      field.set(target, value);
+    } catch (IllegalArgumentException | IllegalAccessException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#getType()
+   */
+  public Class<?> getType() {
+    return field.getType();
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#getInt(java.lang.Object)
+   */
+  @Override
+  public int getInt(final Object target) throws PersistenceException {
+    try {
+      return field.getInt(target);
+    } catch (IllegalArgumentException | IllegalAccessException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#setInt(java.lang.Object, int)
+   */
+  @Override
+  public void setInt(final Object target, final int value)
+      throws PersistenceException {
+    try {
+      field.setInt(target, value);
+    } catch (IllegalArgumentException | IllegalAccessException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#getLong(java.lang.Object)
+   */
+  @Override
+  public long getLong(final Object target) throws PersistenceException {
+    try {
+      return field.getLong(target);
+    } catch (IllegalArgumentException | IllegalAccessException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#setLong(java.lang.Object, long)
+   */
+  @Override
+  public void setLong(final Object target, final long value)
+      throws PersistenceException {
+    try {
+      field.setLong(target, value);
+    } catch (IllegalArgumentException | IllegalAccessException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#getDouble(java.lang.Object)
+   */
+  @Override
+  public double getDouble(final Object target) throws PersistenceException {
+    try {
+      return field.getDouble(target);
+    } catch (IllegalArgumentException | IllegalAccessException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#setDouble(java.lang.Object, double)
+   */
+  @Override
+  public void setDouble(final Object target, final double value)
+      throws PersistenceException {
+    try {
+      field.setDouble(target, value);
+    } catch (IllegalArgumentException | IllegalAccessException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#getFloat(java.lang.Object)
+   */
+  @Override
+  public float getFloat(final Object target) throws PersistenceException {
+    try {
+      return field.getFloat(target);
+    } catch (IllegalArgumentException | IllegalAccessException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#setFloat(java.lang.Object, float)
+   */
+  @Override
+  public void setFloat(final Object target, final float value)
+      throws PersistenceException {
+    try {
+      field.setFloat(target, value);
+    } catch (IllegalArgumentException | IllegalAccessException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#getShort(java.lang.Object)
+   */
+  @Override
+  public short getShort(final Object target) throws PersistenceException {
+    try {
+      return field.getShort(target);
+    } catch (IllegalArgumentException | IllegalAccessException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#setShort(java.lang.Object, short)
+   */
+  @Override
+  public void setShort(final Object target, final short value)
+      throws PersistenceException {
+    try {
+      field.setShort(target, value);
+    } catch (IllegalArgumentException | IllegalAccessException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#getByte(java.lang.Object)
+   */
+  @Override
+  public byte getByte(final Object target) throws PersistenceException {
+    try {
+      return field.getByte(target);
+    } catch (IllegalArgumentException | IllegalAccessException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#setByte(java.lang.Object, byte)
+   */
+  @Override
+  public void setByte(final Object target, final byte value)
+      throws PersistenceException {
+    try {
+      field.setByte(target, value);
+    } catch (IllegalArgumentException | IllegalAccessException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#getBoolean(java.lang.Object)
+   */
+  @Override
+  public boolean getBoolean(final Object target) throws PersistenceException {
+    try {
+      return field.getBoolean(target);
+    } catch (IllegalArgumentException | IllegalAccessException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.persistence.FieldAccessor#setBoolean(java.lang.Object, boolean)
+   */
+  @Override
+  public void setBoolean(final Object target, final boolean value)
+      throws PersistenceException {
+    try {
+      field.setBoolean(target, value);
+    } catch (IllegalArgumentException | IllegalAccessException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+}
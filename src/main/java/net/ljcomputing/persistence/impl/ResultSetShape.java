@@ -0,0 +1,136 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence.impl;
+
+import net.ljcomputing.exception.PersistenceException;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * The shape of a result set: its column names and SQL types, in column order.
+ *
+ * @author James G. Willmore
+ */
+final class ResultSetShape {
+
+  /** The column names. */
+  private final String[] columnNames;
+
+  /** The column SQL types. */
+  private final int[] columnTypes;
+
+  /** The hash code. */
+  private final int hash;
+
+  /**
+   * Instantiates a new result set shape.
+   *
+   * @param columnNames the column names
+   * @param columnTypes the column SQL types
+   */
+  private ResultSetShape(final String[] columnNames, final int... columnTypes) {
+    this.columnNames = columnNames;
+    this.columnTypes = columnTypes;
+    this.hash = 31 * Arrays.hashCode(columnNames)
+        + Arrays.hashCode(columnTypes);
+  }
+
+  /**
+   * Gets the shape of the result set.
+   *
+   * @param resultSet the result set
+   * @return the result set shape
+   * @throws PersistenceException the persistence exception
+   */
+  static ResultSetShape of(final ResultSet resultSet)
+      throws PersistenceException {
+    try {
+      final ResultSetMetaData rsmd = resultSet.getMetaData();
+      final int columnCount = rsmd.getColumnCount();
+      final String[] columnNames = new String[columnCount];
+      final int[] columnTypes = new int[columnCount];
+
+      for (int c = 0; c < columnCount; c++) {
+        columnNames[c] = rsmd.getColumnName(c + 1);
+        columnTypes[c] = rsmd.getColumnType(c + 1);
+      }
+
+      return new ResultSetShape(columnNames, columnTypes);
+    } catch (SQLException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * Gets the column count.
+   *
+   * @return the column count
+   */
+  int getColumnCount() {
+    return columnNames.length;
+  }
+
+  /**
+   * Gets the name of the column.
+   *
+   * @param column the column position, starting at one
+   * @return the column name
+   */
+  String getColumnName(final int column) {
+    return columnNames[column - 1];
+  }
+
+  /**
+   * Gets the SQL type of the column.
+   *
+   * @param column the column position, starting at one
+   * @return the column SQL type
+   */
+  int getColumnType(final int column) {
+    return columnTypes[column - 1];
+  }
+
+  /**
+   * @see java.lang.Object#hashCode()
+   */
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  /**
+   * @see java.lang.Object#equals(java.lang.Object)
+   */
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+
+    if (!(obj instanceof ResultSetShape)) {
+      return false;
+    }
+
+    final ResultSetShape other = (ResultSetShape) obj;
+
+    return Arrays.equals(columnNames, other.columnNames)
+        && Arrays.equals(columnTypes, other.columnTypes);
+  }
+}
@@ -0,0 +1,301 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence.impl;
+
+import net.ljcomputing.exception.PersistenceException;
+import net.ljcomputing.persistence.UnitOfWorkListener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit of work, binding one pooled connection and transaction to the current
+ * thread. Repository calls made on the thread while the unit of work is
+ * active, on any repository, share its connection and are committed or rolled
+ * back together:
+ *
+ * <pre>
+ * try (UnitOfWork work = UnitOfWork.begin()) {
+ *   people.create(person, "name");
+ *   addresses.create(address, "street");
+ *   work.commit();
+ * }
+ * </pre>
+ *
+ * <p>
+ * Rows read by id, or in full, within a unit of work are kept in its
+ * {@link IdentityMap}, as are the models created or updated in it, so reading
+ * the same row again returns the instance last read or written, without a
+ * query.
+ * </p>
+ *
+ * <p>
+ * Closing a unit of work that was not committed rolls it back. Units of work
+ * do not nest, and are not visible to other threads.
+ * </p>
+ *
+ * @author James G. Willmore
+ */
+public final class UnitOfWork implements AutoCloseable {
+
+  /** SLF4J logger. */
+  private static final Logger LOGGER = LoggerFactory
+      .getLogger(UnitOfWork.class);
+
+  /** The unit of work bound to each thread. */
+  private static final ThreadLocal<UnitOfWork> CURRENT =
+      new ThreadLocal<UnitOfWork>();
+
+  /** The pooled connection. */
+  private final Connection connection;
+
+  /** The connection handed to repositories, which ignores close. */
+  private final Connection handle;
+
+  /** The completion listeners. */
+  private final List<UnitOfWorkListener> listeners =
+      new ArrayList<UnitOfWorkListener>();
+
+  /** The identity map. */
+  private final IdentityMap identityMap = new IdentityMap();
+
+  /** The unit of work is complete. */
+  private boolean completed;
+
+  /**
+   * Instantiates a new unit of work.
+   *
+   * @param connection the pooled connection
+   */
+  private UnitOfWork(final Connection connection) {
+    this.connection = connection;
+    this.handle = (Connection) Proxy.newProxyInstance(
+        Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+          case "close":
+            return null;
+          case "equals":
+            return proxy == args[0];
+          case "hashCode":
+            return System.identityHashCode(proxy);
+          default:
+            break;
+          }
+
+          try {
+            return method.invoke(connection, args);
+          } catch (InvocationTargetException exception) {
+            throw exception.getCause();
+          }
+        });
+  }
+
+  /**
+   * Begin a unit of work on the current thread.
+   *
+   * @return the unit of work
+   * @throws PersistenceException if a unit of work is already active on the
+   *           thread, or a connection cannot be obtained
+   */
+  public static UnitOfWork begin() throws PersistenceException {
+    if (null != CURRENT.get()) {
+      throw new PersistenceException(
+          "A unit of work is already active on this thread");
+    }
+
+    final Connection connection = ConnectionPool.getInstance().getConnection();
+
+    try {
+      connection.setAutoCommit(false);
+    } catch (SQLException exception) {
+      close(connection);
+      throw new PersistenceException(exception);
+    }
+
+    final UnitOfWork work = new UnitOfWork(connection);
+    CURRENT.set(work);
+    return work;
+  }
+
+  /**
+   * Gets the unit of work active on the current thread.
+   *
+   * @return the unit of work, or null if there is none
+   */
+  public static UnitOfWork current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Gets the connection of the unit of work. Closing it does not end the unit
+   * of work.
+   *
+   * @return the connection
+   * @throws PersistenceException if the unit of work is complete
+   */
+  public Connection getConnection() throws PersistenceException {
+    checkActive();
+    return handle;
+  }
+
+  /**
+   * Gets the identity map of the unit of work.
+   *
+   * @return the identity map
+   * @throws PersistenceException if the unit of work is complete
+   */
+  public IdentityMap getIdentityMap() throws PersistenceException {
+    checkActive();
+    return identityMap;
+  }
+
+  /**
+   * Adds a listener called when the unit of work completes.
+   *
+   * @param listener the listener
+   * @throws PersistenceException if the unit of work is complete
+   */
+  public void addListener(final UnitOfWorkListener listener)
+      throws PersistenceException {
+    checkActive();
+    listeners.add(listener);
+  }
+
+  /**
+   * Checks if the unit of work is complete.
+   *
+   * @return true, if committed or rolled back
+   */
+  public boolean isCompleted() {
+    return completed;
+  }
+
+  /**
+   * Commit the unit of work, and return its connection to the pool. If the
+   * commit fails, the unit of work is rolled back.
+   *
+   * @throws PersistenceException if the unit of work is complete, or the
+   *           commit fails
+   */
+  public void commit() throws PersistenceException {
+    checkActive();
+
+    try {
+      connection.commit();
+    } catch (SQLException exception) {
+      rollback();
+      throw new PersistenceException(exception);
+    }
+
+    complete(true);
+  }
+
+  /**
+   * Roll back the unit of work, and return its connection to the pool.
+   *
+   * @throws PersistenceException if the unit of work is complete, or the
+   *           roll back fails
+   */
+  public void rollback() throws PersistenceException {
+    checkActive();
+
+    try {
+      connection.rollback();
+    } catch (SQLException exception) {
+      complete(false);
+      throw new PersistenceException(exception);
+    }
+
+    complete(false);
+  }
+
+  /**
+   * Roll back the unit of work, unless it is complete.
+   *
+   * @throws PersistenceException if the roll back fails
+   * @see java.lang.AutoCloseable#close()
+   */
+  public void close() throws PersistenceException {
+    if (!completed) {
+      rollback();
+    }
+  }
+
+  /**
+   * Checks the unit of work is active.
+   *
+   * @throws PersistenceException if the unit of work is complete
+   */
+  private void checkActive() throws PersistenceException {
+    if (completed) {
+      throw new PersistenceException("The unit of work is complete");
+    }
+  }
+
+  /**
+   * Complete the unit of work: unbind it from the thread, discard its identity
+   * map, return the connection to the pool, and notify the listeners.
+   *
+   * @param committed true, if committed
+   */
+  private void complete(final boolean committed) {
+    completed = true;
+    CURRENT.remove();
+    identityMap.clear();
+
+    try {
+      connection.setAutoCommit(true);
+    } catch (SQLException exception) {
+      LOGGER.debug("Cannot restore auto commit: {}", exception.getMessage());
+    }
+
+    close(connection);
+
+    for (final UnitOfWorkListener listener : listeners) {
+      try {
+        if (committed) {
+          listener.afterCommit();
+        } else {
+          listener.afterRollback();
+        }
+      } catch (RuntimeException exception) {
+        LOGGER.warn("Unit of work listener failed: ", exception);
+      }
+    }
+  }
+
+  /**
+   * Close the connection, returning it to the pool.
+   *
+   * @param connection the connection
+   */
+  private static void close(final Connection connection) {
+    try {
+      connection.close();
+    } catch (SQLException exception) {
+      LOGGER.warn("Cannot close a connection: {}", exception.getMessage());
+    }
+  }
+}
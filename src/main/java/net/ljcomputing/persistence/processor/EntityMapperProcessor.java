@@ -0,0 +1,555 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * Annotation processor generating the entity mappers of
+ * {@link net.ljcomputing.persistence.PersistentEntity} models.
+ *
+ * @author James G. Willmore
+ */
+@SupportedAnnotationTypes("net.ljcomputing.persistence.PersistentEntity")
+public class EntityMapperProcessor extends AbstractProcessor {
+
+  /** The generated mapper base class. */
+  private static final String MAPPER_BASE_CLASS =
+      "net.ljcomputing.persistence.impl.AbstractEntityMapper";
+
+  /** The generated mapper class name suffix. */
+  private static final String MAPPER_SUFFIX = "EntityMapper";
+
+  /**
+   * The JDBC getter/setter suffix and null SQL type of the member types read
+   * and bound with type specific methods, keyed by member type.
+   */
+  private static final Map<String, String[]> JDBC_TYPES =
+      new HashMap<String, String[]>();
+
+  static {
+    JDBC_TYPES.put("int", new String[] { "Int", "INTEGER" });
+    JDBC_TYPES.put("long", new String[] { "Long", "BIGINT" });
+    JDBC_TYPES.put("double", new String[] { "Double", "DOUBLE" });
+    JDBC_TYPES.put("float", new String[] { "Float", "REAL" });
+    JDBC_TYPES.put("short", new String[] { "Short", "SMALLINT" });
+    JDBC_TYPES.put("byte", new String[] { "Byte", "TINYINT" });
+    JDBC_TYPES.put("boolean", new String[] { "Boolean", "BOOLEAN" });
+    JDBC_TYPES.put("java.lang.Integer", JDBC_TYPES.get("int"));
+    JDBC_TYPES.put("java.lang.Long", JDBC_TYPES.get("long"));
+    JDBC_TYPES.put("java.lang.Double", JDBC_TYPES.get("double"));
+    JDBC_TYPES.put("java.lang.Float", JDBC_TYPES.get("float"));
+    JDBC_TYPES.put("java.lang.Short", JDBC_TYPES.get("short"));
+    JDBC_TYPES.put("java.lang.Byte", JDBC_TYPES.get("byte"));
+    JDBC_TYPES.put("java.lang.Boolean", JDBC_TYPES.get("boolean"));
+    JDBC_TYPES.put("java.lang.String", new String[] { "String", "VARCHAR" });
+    JDBC_TYPES.put("java.math.BigDecimal",
+        new String[] { "BigDecimal", "DECIMAL" });
+    JDBC_TYPES.put("java.sql.Timestamp",
+        new String[] { "Timestamp", "TIMESTAMP" });
+    JDBC_TYPES.put("java.sql.Date", new String[] { "Date", "DATE" });
+    JDBC_TYPES.put("java.sql.Time", new String[] { "Time", "TIME" });
+    JDBC_TYPES.put("byte[]", new String[] { "Bytes", "VARBINARY" });
+  }
+
+  /**
+   * @see javax.annotation.processing.AbstractProcessor#getSupportedSourceVersion()
+   */
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  /**
+   * @see javax.annotation.processing.AbstractProcessor#process(java.util.Set, javax.annotation.processing.RoundEnvironment)
+   */
+  @Override
+  public boolean process(final Set<? extends TypeElement> annotations,
+      final RoundEnvironment roundEnv) {
+    for (final TypeElement annotation : annotations) {
+      for (final Element element : roundEnv
+          .getElementsAnnotatedWith(annotation)) {
+        if (ElementKind.CLASS != element.getKind()) {
+          processingEnv.getMessager().printMessage(Kind.ERROR,
+              "@PersistentEntity applies to classes only", element);
+          continue;
+        }
+
+        try {
+          generate((TypeElement) element);
+        } catch (IOException exception) {
+          processingEnv.getMessager().printMessage(Kind.ERROR,
+              "Cannot generate entity mapper: " + exception.getMessage(),
+              element);
+        }
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Generate the entity mapper of the model.
+   *
+   * @param model the model
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private void generate(final TypeElement model) throws IOException {
+    final String packageName = getPackage(model).getQualifiedName().toString();
+    final String modelName = model.getQualifiedName().toString();
+    final String qualifiedMapperName = getMapperName(processingEnv
+        .getElementUtils().getBinaryName(model).toString());
+    final String mapperName = qualifiedMapperName
+        .substring(qualifiedMapperName.lastIndexOf('.') + 1);
+    final List<Member> members = getMembers(model);
+
+    try (Writer writer = processingEnv.getFiler()
+        .createSourceFile(qualifiedMapperName, model).openWriter()) {
+      final StringBuilder source = new StringBuilder();
+
+      if (!packageName.isEmpty()) {
+        source.append("package ").append(packageName).append(";\n\n");
+      }
+
+      source.append("/**\n * Entity mapper of {@link ").append(modelName)
+          .append("}, generated by ").append(getClass().getName())
+          .append(".\n */\n");
+      source.append("public final class ").append(mapperName)
+          .append(" extends ").append(MAPPER_BASE_CLASS).append('<')
+          .append(modelName).append("> {\n\n");
+
+      source.append("  public ").append(mapperName).append("() {\n")
+          .append("    super(").append(modelName).append(".class");
+      for (final Member member : members) {
+        source.append(", \"").append(member.name).append('"');
+      }
+      source.append(");\n  }\n\n");
+
+      source.append("  @Override\n")
+          .append("  protected void populateMember(final ").append(modelName)
+          .append(" entity, final int member,\n")
+          .append("      final java.sql.ResultSet resultSet, final int column)")
+          .append(" throws java.sql.SQLException {\n")
+          .append("    switch (member) {\n");
+      for (int m = 0; m < members.size(); m++) {
+        final Member member = members.get(m);
+
+        if (null != member.writer) {
+          source.append("      case ").append(m).append(": {\n")
+              .append(member.populate()).append("        break;\n")
+              .append("      }\n");
+        }
+      }
+      source.append("      default:\n        break;\n    }\n  }\n\n");
+
+      source.append("  @Override\n")
+          .append("  protected void bindMember(final ").append(modelName)
+          .append(" entity, final int member,\n")
+          .append("      final java.sql.PreparedStatement preparedStatement,")
+          .append(" final int parameterIndex)\n")
+          .append("      throws java.sql.SQLException {\n")
+          .append("    switch (member) {\n");
+      for (int m = 0; m < members.size(); m++) {
+        final Member member = members.get(m);
+
+        if (null != member.reader) {
+          source.append("      case ").append(m).append(": {\n")
+              .append(member.bind()).append("        break;\n")
+              .append("      }\n");
+        }
+      }
+      source.append("      default:\n")
+          .append("        throw new java.sql.SQLException(\"Member \"")
+          .append(" + member + \" of ").append(modelName)
+          .append(" is not readable\");\n    }\n  }\n}\n");
+
+      writer.write(source.toString());
+    }
+  }
+
+  /**
+   * Gets the binary name of the mapper of the model of the given binary name,
+   * as <code>AbstractEntityMapper.getMapperName</code> does: the names of a
+   * nested model and its enclosing classes are joined by underscores, so the
+   * mapper is a top level class the runtime can find by name.
+   *
+   * @param modelName the binary name of the model
+   * @return the binary name of the mapper
+   */
+  private static String getMapperName(final String modelName) {
+    final int simple = modelName.lastIndexOf('.') + 1;
+
+    return modelName.substring(0, simple)
+        + modelName.substring(simple).replace('$', '_') + MAPPER_SUFFIX;
+  }
+
+  /**
+   * Gets the members of the model and its superclasses. As the reflective
+   * entity populator does, a field declared by a superclass takes precedence
+   * over a field of the same name declared by a subclass.
+   *
+   * @param model the model
+   * @return the members
+   */
+  private List<Member> getMembers(final TypeElement model) {
+    final Map<String, Member> members = new LinkedHashMap<String, Member>();
+    final List<TypeElement> hierarchy = new ArrayList<TypeElement>();
+
+    for (TypeElement type = model; null != type; type = getSuperclass(type)) {
+      hierarchy.add(0, type);
+    }
+
+    for (final TypeElement type : hierarchy) {
+      for (final VariableElement field : ElementFilter
+          .fieldsIn(type.getEnclosedElements())) {
+        final String name = field.getSimpleName().toString();
+
+        if (field.getModifiers().contains(Modifier.STATIC)
+            || members.containsKey(name)) {
+          continue;
+        }
+
+        final Member member = new Member(name, field.asType(),
+            findWriter(model, field), findReader(model, field));
+
+        if (null == member.writer) {
+          processingEnv.getMessager().printMessage(Kind.WARNING,
+              "No accessible setter for " + name + "; it will not be populated",
+              model);
+        }
+
+        if (null == member.reader) {
+          processingEnv.getMessager().printMessage(Kind.WARNING,
+              "No accessible getter for " + name + "; it cannot be bound",
+              model);
+        }
+
+        members.put(name, member);
+      }
+    }
+
+    return new ArrayList<Member>(members.values());
+  }
+
+  /**
+   * Gets the superclass of the type.
+   *
+   * @param type the type
+   * @return the superclass, or null for java.lang.Object
+   */
+  private TypeElement getSuperclass(final TypeElement type) {
+    final TypeMirror superclass = type.getSuperclass();
+
+    if (TypeKind.DECLARED != superclass.getKind()) {
+      return null;
+    }
+
+    final TypeElement element = (TypeElement) ((DeclaredType) superclass)
+        .asElement();
+
+    return "java.lang.Object".equals(element.getQualifiedName().toString())
+        ? null : element;
+  }
+
+  /**
+   * Find the expression writing the member, as a format taking the value.
+   *
+   * @param model the model
+   * @param field the field
+   * @return the writer format, or null if the member cannot be written
+   */
+  private String findWriter(final TypeElement model,
+      final VariableElement field) {
+    final String setter = "set" + capitalize(field.getSimpleName().toString());
+
+    for (final ExecutableElement method : ElementFilter
+        .methodsIn(processingEnv.getElementUtils().getAllMembers(model))) {
+      if (setter.contentEquals(method.getSimpleName())
+          && 1 == method.getParameters().size()
+          && isAccessible(model, method)
+          && processingEnv.getTypeUtils().isAssignable(field.asType(),
+              method.getParameters().get(0).asType())) {
+        return "entity." + setter + "(%s)";
+      }
+    }
+
+    if (isAccessible(model, field)
+        && !field.getModifiers().contains(Modifier.FINAL)) {
+      return "entity." + field.getSimpleName() + " = %s";
+    }
+
+    return null;
+  }
+
+  /**
+   * Find the expression reading the member.
+   *
+   * @param model the model
+   * @param field the field
+   * @return the reader expression, or null if the member cannot be read
+   */
+  private String findReader(final TypeElement model,
+      final VariableElement field) {
+    final String name = capitalize(field.getSimpleName().toString());
+
+    for (final ExecutableElement method : ElementFilter
+        .methodsIn(processingEnv.getElementUtils().getAllMembers(model))) {
+      final String methodName = method.getSimpleName().toString();
+
+      if ((("get" + name).equals(methodName)
+          || ("is" + name).equals(methodName))
+          && method.getParameters().isEmpty()
+          && isAccessible(model, method)
+          && processingEnv.getTypeUtils().isAssignable(method.getReturnType(),
+              field.asType())) {
+        return "entity." + methodName + "()";
+      }
+    }
+
+    if (isAccessible(model, field)) {
+      return "entity." + field.getSimpleName();
+    }
+
+    return null;
+  }
+
+  /**
+   * Checks if the element is accessible from the generated mapper, which is in
+   * the package of the model.
+   *
+   * @param model the model
+   * @param element the element
+   * @return true, if accessible
+   */
+  private boolean isAccessible(final TypeElement model, final Element element) {
+    final Set<Modifier> modifiers = element.getModifiers();
+
+    if (modifiers.contains(Modifier.STATIC)
+        || modifiers.contains(Modifier.PRIVATE)) {
+      return false;
+    }
+
+    return modifiers.contains(Modifier.PUBLIC)
+        || getPackage(model).equals(getPackage(element));
+  }
+
+  /**
+   * Gets the package of the element.
+   *
+   * @param element the element
+   * @return the package
+   */
+  private PackageElement getPackage(final Element element) {
+    return processingEnv.getElementUtils().getPackageOf(element);
+  }
+
+  /**
+   * Capitalize the first character of the value.
+   *
+   * @param value the value
+   * @return the capitalized value
+   */
+  private static String capitalize(final String value) {
+    return Character.toUpperCase(value.charAt(0)) + value.substring(1);
+  }
+
+  /**
+   * A model member and the expressions reading and writing it.
+   */
+  private final class Member {
+
+    /** The member name. */
+    private final String name;
+
+    /** The member type. */
+    private final TypeMirror type;
+
+    /** The writer format, or null. */
+    private final String writer;
+
+    /** The reader expression, or null. */
+    private final String reader;
+
+    /**
+     * Instantiates a new member.
+     *
+     * @param name the name
+     * @param type the type
+     * @param writer the writer format
+     * @param reader the reader expression
+     */
+    private Member(final String name, final TypeMirror type,
+        final String writer, final String reader) {
+      this.name = name;
+      this.type = type;
+      this.writer = writer;
+      this.reader = reader;
+    }
+
+    /**
+     * Gets the statements populating the member from the result set column,
+     * using the JDBC getter specific to the member type.
+     *
+     * @return the statements
+     */
+    private String populate() {
+      final String typeName = getTypeName();
+      final String[] jdbcType = JDBC_TYPES.get(typeName);
+
+      if (TypeKind.CHAR == type.getKind()) {
+        return statement("final String value = resultSet.getString(column)")
+            + statement(String.format(writer, "null == value || value.isEmpty()"
+                + " ? '\\0' : value.charAt(0)"));
+      }
+
+      if ("java.lang.Character".equals(typeName)) {
+        return statement("final String value = resultSet.getString(column)")
+            + statement(String.format(writer, "null == value ? null"
+                + " : Character.valueOf(value.isEmpty() ? '\\0'"
+                + " : value.charAt(0))"));
+      }
+
+      if (null == jdbcType) {
+        return statement(String.format(writer,
+            "(" + typeName + ") resultSet.getObject(column)"));
+      }
+
+      final String getter = "resultSet.get" + jdbcType[0] + "(column)";
+
+      if (type.getKind().isPrimitive() || !isBoxed(typeName)) {
+        return statement(String.format(writer, getter));
+      }
+
+      return statement("final " + unbox() + " value = " + getter)
+          + statement(String.format(writer, "resultSet.wasNull() ? null : "
+              + typeName + ".valueOf(value)"));
+    }
+
+    /**
+     * Gets the statements binding the member to the parameter, using the JDBC
+     * setter specific to the member type.
+     *
+     * @return the statements
+     */
+    private String bind() {
+      final String typeName = getTypeName();
+      final String[] jdbcType = JDBC_TYPES.get(typeName);
+
+      if (TypeKind.CHAR == type.getKind()) {
+        return statement("preparedStatement.setString(parameterIndex, "
+            + "String.valueOf(" + reader + "))");
+      }
+
+      if ("java.lang.Character".equals(typeName)) {
+        return statement("final Character value = " + reader)
+            + statement("if (null == value) {")
+            + statement("  preparedStatement.setNull(parameterIndex, "
+                + "java.sql.Types.CHAR)")
+            + statement("} else {")
+            + statement("  preparedStatement.setString(parameterIndex, "
+                + "value.toString())")
+            + statement("}");
+      }
+
+      if (null == jdbcType) {
+        return statement(
+            "preparedStatement.setObject(parameterIndex, " + reader + ")");
+      }
+
+      final String setter = "preparedStatement.set" + jdbcType[0]
+          + "(parameterIndex, ";
+
+      if (type.getKind().isPrimitive()) {
+        return statement(setter + reader + ")");
+      }
+
+      return statement("final " + typeName + " value = " + reader)
+          + statement("if (null == value) {")
+          + statement("  preparedStatement.setNull(parameterIndex, "
+              + "java.sql.Types." + jdbcType[1] + ")")
+          + statement("} else {")
+          + statement("  " + setter + "value)")
+          + statement("}");
+    }
+
+    /**
+     * Gets the erased name of the member type.
+     *
+     * @return the type name
+     */
+    private String getTypeName() {
+      return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    /**
+     * Checks if the type is a primitive wrapper.
+     *
+     * @param typeName the type name
+     * @return true, if boxed
+     */
+    private boolean isBoxed(final String typeName) {
+      return typeName.startsWith("java.lang.")
+          && !"java.lang.String".equals(typeName);
+    }
+
+    /**
+     * Gets the primitive type of the member wrapper type.
+     *
+     * @return the primitive type name
+     */
+    private String unbox() {
+      return processingEnv.getTypeUtils()
+          .unboxedType(type).getKind().name().toLowerCase();
+    }
+
+    /**
+     * Format the generated statement, indented within the case block.
+     *
+     * @param statement the statement
+     * @return the formatted statement
+     */
+    private String statement(final String statement) {
+      return "        " + statement
+          + (statement.endsWith("{") || statement.endsWith("}") ? "\n"
+              : ";\n");
+    }
+  }
+}
@@ -19,27 +19,63 @@ package net.ljcomputing.repository.impl;
 import net.ljcomputing.SqlUtils;
 import net.ljcomputing.StringUtils;
 import net.ljcomputing.exception.PersistenceException;
+import net.ljcomputing.exception.UncheckedPersistenceException;
 import net.ljcomputing.model.Model;
 import net.ljcomputing.persistence.DataSourceTable;
 import net.ljcomputing.persistence.Entity;
+import net.ljcomputing.persistence.EntityBinder;
 import net.ljcomputing.persistence.EntityPopulator;
+import net.ljcomputing.persistence.UnitOfWorkListener;
+import net.ljcomputing.persistence.impl.AbstractEntityMapper;
+import net.ljcomputing.persistence.impl.AccessorStrategy;
 import net.ljcomputing.persistence.impl.ConnectionPool;
+import net.ljcomputing.persistence.impl.EntityBinderImpl;
 import net.ljcomputing.persistence.impl.EntityPopulatorImpl;
+import net.ljcomputing.persistence.impl.IdentityMap;
+import net.ljcomputing.persistence.impl.UnitOfWork;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.Field;
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Spliterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
- * Abstract repository implementation.
+ * Abstract repository implementation. The JDBC resources are held for the
+ * duration of each call only, so a single repository instance may be shared
+ * by concurrent threads. Calls made within a {@link UnitOfWork} use its
+ * connection and transaction; other calls borrow a connection and auto commit.
+ * When an {@link EntityCache} or {@link OffHeapEntityCache} is enabled for the
+ * table, reads by id outside a unit of work go through them, in that order,
+ * and writes invalidate the models they change. Likewise, with a
+ * {@link QueryCache} enabled, <code>readAll</code> and <code>find</code>
+ * results are cached until the next write to the table. Within a unit of
+ * work, rows read by id or in full resolve to one instance per row through
+ * its {@link IdentityMap}.
  *
  * @author James G. Willmore
  *
@@ -48,307 +84,1869 @@ import java.util.List;
 public abstract class AbstractRepository<T extends Model>
     implements ModelRepository<T> {
 
- /** The SLF4J logger. */
- @SuppressWarnings("unused")
- private static final Logger LOGGER = 
-   LoggerFactory.getLogger(AbstractRepository.class);
+  /** The SLF4J logger. */
+  private static final Logger LOGGER =
+      LoggerFactory.getLogger(AbstractRepository.class);
 
   /** The primary key field. */
   private static final String PRIMARY_KEY = "id";
+
+  /** The insert operation. */
+  private static final String INSERT = "insert";
+
+  /** The update operation. */
+  private static final String UPDATE = "update";
+
+  /** The delete operation. */
+  private static final String DELETE = "delete";
+
+  /** The select by id operation. */
+  private static final String SELECT_BY_ID = "selectById";
+
+  /** The select all operation. */
+  private static final String SELECT_ALL = "selectAll";
+
+  /** The select page operation. */
+  private static final String SELECT_PAGE = "selectPage";
+
+  /** The select id range operation. */
+  private static final String SELECT_RANGE = "selectRange";
+
+  /** The select id bounds operation. */
+  private static final String SELECT_BOUNDS = "selectBounds";
+
+  /** The number of id ranges per scanning thread. */
+  private static final int RANGES_PER_THREAD = 4;
+
+  /** The select by criteria operation. */
+  private static final String SELECT_WHERE = "selectWhere";
+
+  /** The aggregate operation. */
+  private static final String AGGREGATE = "aggregate";
+
+  /** The exists by id operation. */
+  private static final String EXISTS_BY_ID = "existsById";
+
+  /** The select by ids operation. */
+  private static final String SELECT_IN = "selectIn";
+
+  /** The delete by ids operation. */
+  private static final String DELETE_IN = "deleteIn";
+
+  /** The default number of rows per batch. */
+  public static final int DEFAULT_BATCH_SIZE = 500;
+
+  /** No columns, which selects all columns. */
+  private static final String[] NO_COLUMNS = new String[0];
+
+  /** The default stream fetch size. */
+  public static final int DEFAULT_FETCH_SIZE = 100;
+
+  /** The default maximum number of ids per IN list. */
+  public static final int DEFAULT_IN_LIST_SIZE = 128;
   
   /** The entity populator. */
   protected transient final EntityPopulator entityPopulator;
-  
-  /** The connection. */
-  protected transient Connection connection;
-  
-  /** The prepared statement. */
-  protected transient PreparedStatement preparedStatement;
+
+  /** The entity binder. */
+  protected transient final EntityBinder entityBinder;
+
+  /** The field accessor strategy. */
+  protected transient final AccessorStrategy accessorStrategy;
   
   /** The associated data source table. */
-  protected transient DataSourceTable table;
+  protected transient final DataSourceTable table;
+
+  /** The generated SQL statement cache. */
+  protected transient final SqlTemplateCache sqlCache = new SqlTemplateCache();
+
+  /** The number of rows per batch. */
+  private transient volatile int batchSize = DEFAULT_BATCH_SIZE;
+
+  /** The maximum number of ids per IN list. */
+  private transient volatile int inListSize = DEFAULT_IN_LIST_SIZE;
+
+  /**
+   * The driver returns the generated keys of every row of a batch, or null if
+   * not yet known.
+   */
+  private transient volatile Boolean batchGeneratedKeys;
+
+  /**
+   * A batch of more than one row returned the generated key of every row, or
+   * null if no such batch has been executed yet.
+   */
+  private transient volatile Boolean batchKeysReturned;
+
+
+  /**
+   * Instantiates a new abstract repository.
+   *
+   * @param table the table
+   * @throws PersistenceException the persistence exception
+   */
+  public AbstractRepository(final DataSourceTable table)
+      throws PersistenceException {
+    this(table, AccessorStrategy.getDefault());
+  }
+
+  /**
+   * Instantiates a new abstract repository. The entity mapper generated for the
+   * model, if any, is used in place of the reflective populator and binder.
+   *
+   * @param table the table
+   * @param accessorStrategy the field accessor strategy
+   * @throws PersistenceException the persistence exception
+   */
+  public AbstractRepository(final DataSourceTable table,
+      final AccessorStrategy accessorStrategy) throws PersistenceException {
+    final AbstractEntityMapper<?> mapper = AbstractEntityMapper
+        .find(table.getModel());
+
+    this.table = table;
+    this.accessorStrategy = accessorStrategy;
+
+    if (null == mapper) {
+      this.entityPopulator = new EntityPopulatorImpl(accessorStrategy);
+      this.entityBinder = new EntityBinderImpl(accessorStrategy);
+    } else {
+      this.entityPopulator = mapper;
+      this.entityBinder = mapper;
+    }
+  }
+
+  /**
+   * Gets the model instance.
+   *
+   * @return the model instance
+   * @throws NoSuchMethodException the no such method exception
+   * @throws SecurityException the security exception
+   * @throws InstantiationException the instantiation exception
+   * @throws IllegalAccessException the illegal access exception
+   */
+  @SuppressWarnings("unchecked")
+  protected T getModelInstance() throws NoSuchMethodException,
+      SecurityException, InstantiationException, IllegalAccessException {
+    return (T) table.getModel().newInstance();
+  }
+
+  /**
+   * Gets the generated SQL statement cache, and its hit and miss counts.
+   *
+   * @return the SQL statement cache
+   */
+  public SqlTemplateCache getSqlCache() {
+    return sqlCache;
+  }
+
+  /**
+   * Gets the number of rows per batch.
+   *
+   * @return the number of rows per batch
+   */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * Sets the number of rows per batch.
+   *
+   * @param batchSize the number of rows per batch
+   */
+  public void setBatchSize(final int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batch size must be at least 1");
+    }
+
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Gets the maximum number of ids per IN list.
+   *
+   * @return the maximum number of ids per IN list
+   */
+  public int getInListSize() {
+    return inListSize;
+  }
+
+  /**
+   * Sets the maximum number of ids per IN list.
+   *
+   * @param inListSize the maximum number of ids per IN list
+   */
+  public void setInListSize(final int inListSize) {
+    if (inListSize < 1) {
+      throw new IllegalArgumentException("IN list size must be at least 1");
+    }
+
+    this.inListSize = inListSize;
+  }
+
+  /**
+   * Obtain a connection: that of the unit of work active on the current thread,
+   * or else a pooled connection. The caller is responsible for closing it;
+   * closing the connection of a unit of work leaves it open.
+   *
+   * @return the connection
+   * @throws PersistenceException the persistence exception
+   */
+  protected Connection obtainConnection() throws PersistenceException {
+    final UnitOfWork work = UnitOfWork.current();
+
+    return null == work ? ConnectionPool.getInstance().getConnection()
+        : work.getConnection();
+  }
+
+  /**
+   * Execute the callback in a transaction: that of the unit of work active on
+   * the current thread, or else a unit of work committed when the callback
+   * returns.
+   *
+   * @param <R> the result type
+   * @param callback the callback
+   * @return the result of the callback
+   * @throws PersistenceException the persistence exception
+   */
+  protected <R> R inTransaction(final ConnectionCallback<R> callback)
+      throws PersistenceException {
+    if (null != UnitOfWork.current()) {
+      return execute(callback);
+    }
+
+    try (UnitOfWork work = UnitOfWork.begin()) {
+      final R result = execute(callback);
+      work.commit();
+      return result;
+    }
+  }
+
+  /**
+   * Execute the callback with a connection.
+   *
+   * @param <R> the result type
+   * @param callback the callback
+   * @return the result of the callback
+   * @throws PersistenceException the persistence exception
+   */
+  private <R> R execute(final ConnectionCallback<R> callback)
+      throws PersistenceException {
+    try (Connection connection = obtainConnection()) {
+      return callback.execute(connection);
+    } catch (SQLException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * Creates the.
+   *
+   * @param model the model
+   * @param columns the columns
+   * @throws PersistenceException the persistence exception
+   * @see net.ljcomputing.repository.impl.ModelRepository#create(net.ljcomputing.model.Model, java.lang.String[])
+   */
+  public void create(final T model, final String... columns)
+      throws PersistenceException {
+    final String sql = sqlCache.get(() -> SqlUtils
+        .buildInsertStatement(table.getTableName(), columns), INSERT,
+        (Object[]) columns);
+
+    try (Connection connection = obtainConnection();
+        PreparedStatement preparedStatement = connection.prepareStatement(sql,
+            Statement.RETURN_GENERATED_KEYS)) {
+      bind(model, preparedStatement, columns);
+      preparedStatement.executeUpdate();
+      assignGeneratedKey(model, preparedStatement);
+    } catch (SQLException exception) {
+      throw new PersistenceException(exception);
+    }
+
+    written(Collections.singletonList(model));
+  }
+
+  /**
+   * Creates the given models in a single transaction, in batches of the batch
+   * size. If the driver cannot return the generated keys of a batch, the rows
+   * are inserted one at a time, still with one statement and transaction.
+   *
+   * @param models the models
+   * @param columns the columns
+   * @throws PersistenceException the persistence exception
+   * @see net.ljcomputing.repository.impl.ModelRepository#createAll(java.util.Collection, java.lang.String[])
+   */
+  public void createAll(final Collection<T> models, final String... columns)
+      throws PersistenceException {
+    if (models.isEmpty()) {
+      return;
+    }
+
+    inTransaction(connection -> {
+      insert(connection, models, columns);
+      written(models);
+      return null;
+    });
+  }
+
+  /**
+   * Insert the models with one statement, in batches if the driver returns the
+   * generated keys of a batch, assigning each model its generated id. Must be
+   * called in a transaction.
+   *
+   * @param connection the connection
+   * @param models the models
+   * @param columns the columns
+   * @throws SQLException the SQL exception
+   * @throws PersistenceException the persistence exception
+   */
+  private void insert(final Connection connection, final Collection<T> models,
+      final String... columns) throws SQLException, PersistenceException {
+    final String sql = sqlCache.get(() -> SqlUtils
+        .buildInsertStatement(table.getTableName(), columns), INSERT,
+        (Object[]) columns);
+
+    try (PreparedStatement preparedStatement = connection
+        .prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+      if (!Boolean.FALSE.equals(batchKeysReturned)
+          && isBatchGeneratedKeys(connection)) {
+        createBatched(connection, preparedStatement, models, columns);
+      } else {
+        createEach(preparedStatement, models, columns);
+      }
+    }
+  }
+
+  /**
+   * Insert the models one at a time.
+   *
+   * @param preparedStatement the prepared statement
+   * @param models the models
+   * @param columns the columns
+   * @throws SQLException the SQL exception
+   * @throws PersistenceException the persistence exception
+   */
+  private void createEach(final PreparedStatement preparedStatement,
+      final Collection<T> models, final String... columns)
+      throws SQLException, PersistenceException {
+    for (final T model : models) {
+      bind(model, preparedStatement, columns);
+      preparedStatement.executeUpdate();
+      assignGeneratedKey(model, preparedStatement);
+    }
+  }
+
+  /**
+   * Create or update the model: a model without an id is created, and a model
+   * with an id is updated or, if no row has its id, inserted and assigned the
+   * generated id, without reading the row first.
+   *
+   * <p>
+   * A MERGE statement is not used, as the row it inserts for an id not found
+   * gets a generated id that cannot be read back from it, which would leave
+   * the model with an id matching no row.
+   * </p>
+   *
+   * @param model the model
+   * @param columns the columns
+   * @throws PersistenceException the persistence exception
+   * @see net.ljcomputing.repository.impl.ModelRepository#upsert(net.ljcomputing.model.Model, java.lang.String[])
+   */
+  public void upsert(final T model, final String... columns)
+      throws PersistenceException {
+    if (null == model.getId()) {
+      create(model, columns);
+    } else {
+      upsertAll(Collections.singletonList(model), columns);
+    }
+  }
+
+  /**
+   * Create or update the models in a single transaction, as {@link #upsert}
+   * does. The models with ids are updated in batches of the batch size, then
+   * those not found are inserted with the models without ids.
+   *
+   * @param models the models
+   * @param columns the columns
+   * @throws PersistenceException the persistence exception
+   * @see net.ljcomputing.repository.impl.ModelRepository#upsertAll(java.util.Collection, java.lang.String[])
+   */
+  public void upsertAll(final Collection<T> models, final String... columns)
+      throws PersistenceException {
+    if (models.isEmpty()) {
+      return;
+    }
+
+    for (final String column : columns) {
+      Criteria.checkIdentifier(column);
+    }
+
+    final List<T> created = new ArrayList<T>();
+    final List<T> updated = new ArrayList<T>();
+
+    for (final T model : models) {
+      (null == model.getId() ? created : updated).add(model);
+    }
+
+    inTransaction(connection -> {
+      if (!updated.isEmpty()) {
+        created.addAll(updateFound(connection, updated, columns));
+      }
+
+      if (!created.isEmpty()) {
+        insert(connection, created, columns);
+      }
+
+      written(models);
+      return null;
+    });
+  }
+
+  /**
+   * Update the models in batches of the batch size.
+   *
+   * @param connection the connection
+   * @param models the models
+   * @param columns the columns
+   * @return the models no row was found for
+   * @throws SQLException the SQL exception
+   * @throws PersistenceException the persistence exception
+   */
+  private List<T> updateFound(final Connection connection,
+      final List<T> models, final String... columns)
+      throws SQLException, PersistenceException {
+    final String sql = sqlCache.get(() -> SqlUtils
+        .buildUpdateStatement(table.getTableName(), PRIMARY_KEY, columns),
+        UPDATE, (Object[]) columns);
+    final int size = batchSize;
+    final List<T> batch = new ArrayList<T>(Math.min(size, models.size()));
+    final List<T> missing = new ArrayList<T>();
+
+    try (PreparedStatement preparedStatement = connection
+        .prepareStatement(sql)) {
+      for (final T model : models) {
+        bindUpdate(model, preparedStatement, columns);
+        preparedStatement.addBatch();
+        batch.add(model);
+
+        if (batch.size() == size) {
+          executeUpdates(preparedStatement, batch, missing, columns);
+        }
+      }
+
+      if (!batch.isEmpty()) {
+        executeUpdates(preparedStatement, batch, missing, columns);
+      }
+    }
+
+    return missing;
+  }
+
+  /**
+   * Execute a batch of updates, adding the models no row was found for to the
+   * missing models, and clear the batch. A row the driver reports
+   * {@link Statement#SUCCESS_NO_INFO} for is updated again on its own, to
+   * learn whether it was found.
+   *
+   * @param preparedStatement the prepared statement
+   * @param batch the models of the batch
+   * @param missing the missing models
+   * @param columns the columns
+   * @throws SQLException the SQL exception
+   * @throws PersistenceException the persistence exception
+   */
+  private void executeUpdates(final PreparedStatement preparedStatement,
+      final List<T> batch, final List<T> missing, final String... columns)
+      throws SQLException, PersistenceException {
+    final int[] counts = preparedStatement.executeBatch();
+
+    for (int m = 0; m < batch.size(); m++) {
+      int count = m < counts.length ? counts[m] : Statement.SUCCESS_NO_INFO;
+
+      if (Statement.SUCCESS_NO_INFO == count) {
+        bindUpdate(batch.get(m), preparedStatement, columns);
+        count = preparedStatement.executeUpdate();
+      }
+
+      if (0 == count) {
+        missing.add(batch.get(m));
+      }
+    }
+
+    batch.clear();
+  }
+
+  /**
+   * Bind the columns and id of the model to the update statement parameters.
+   *
+   * @param model the model
+   * @param preparedStatement the prepared statement
+   * @param columns the columns
+   * @throws SQLException the SQL exception
+   * @throws PersistenceException the persistence exception
+   */
+  private void bindUpdate(final T model,
+      final PreparedStatement preparedStatement, final String... columns)
+      throws SQLException, PersistenceException {
+    bind(model, preparedStatement, columns);
+    preparedStatement.setObject(columns.length + 1, model.getId());
+  }
+
+  /**
+   * Insert the models in batches of the batch size. If the first batch of more
+   * than one row does not return the generated key of every row, as Apache
+   * Derby returns only the last, it is rolled back and the rest of the models
+   * are inserted one at a time, as are the models of later calls.
+   *
+   * @param connection the connection
+   * @param preparedStatement the prepared statement
+   * @param models the models
+   * @param columns the columns
+   * @throws SQLException the SQL exception
+   * @throws PersistenceException the persistence exception
+   */
+  private void createBatched(final Connection connection,
+      final PreparedStatement preparedStatement, final Collection<T> models,
+      final String... columns) throws SQLException, PersistenceException {
+    final int size = batchSize;
+    final List<T> batch = new ArrayList<T>(Math.min(size, models.size()));
+    final Iterator<T> iterator = models.iterator();
+
+    while (iterator.hasNext()) {
+      final T model = iterator.next();
+
+      bind(model, preparedStatement, columns);
+      preparedStatement.addBatch();
+      batch.add(model);
+
+      if ((batch.size() == size || !iterator.hasNext())
+          && !executeBatch(connection, preparedStatement, batch)) {
+        iterator.forEachRemaining(batch::add);
+        createEach(preparedStatement, batch, columns);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Execute a batch of inserts, assigning each model its generated key, and
+   * clear the batch. Until a batch of more than one row has returned every
+   * key, the batch is executed within a savepoint, and rolled back if keys
+   * are missing.
+   *
+   * @param connection the connection
+   * @param preparedStatement the prepared statement
+   * @param batch the models of the batch
+   * @return false if the batch was rolled back, as keys were missing
+   * @throws SQLException the SQL exception
+   * @throws PersistenceException if a generated key is missing from a batch
+   *           of a driver that returned every key before
+   */
+  private boolean executeBatch(final Connection connection,
+      final PreparedStatement preparedStatement, final List<T> batch)
+      throws SQLException, PersistenceException {
+    final Savepoint savepoint = null == batchKeysReturned && batch.size() > 1
+        ? connection.setSavepoint() : null;
+    final List<Integer> keys = new ArrayList<Integer>(batch.size());
+
+    preparedStatement.executeBatch();
+
+    try (ResultSet resultSet = preparedStatement.getGeneratedKeys()) {
+      while (resultSet.next()) {
+        keys.add(resultSet.getInt(1));
+      }
+    }
+
+    if (keys.size() < batch.size()) {
+      if (null == savepoint) {
+        throw new PersistenceException(
+            "Missing generated keys for a batch of " + batch.size());
+      }
+
+      connection.rollback(savepoint);
+      batchKeysReturned = false;
+      return false;
+    }
+
+    if (null != savepoint) {
+      connection.releaseSavepoint(savepoint);
+      batchKeysReturned = true;
+    }
+
+    for (int m = 0; m < batch.size(); m++) {
+      batch.get(m).setId(keys.get(m));
+    }
+
+    batch.clear();
+    return true;
+  }
+
+  /**
+   * Checks if the driver reports it returns generated keys and executes
+   * batches; whether a batch returns the key of every row is checked when the
+   * first is executed.
+   *
+   * @param connection the connection
+   * @return true, if so
+   * @throws SQLException the SQL exception
+   */
+  protected boolean isBatchGeneratedKeys(final Connection connection)
+      throws SQLException {
+    Boolean supported = batchGeneratedKeys;
+
+    if (null == supported) {
+      final DatabaseMetaData metaData = connection.getMetaData();
+      supported = metaData.supportsBatchUpdates()
+          && metaData.supportsGetGeneratedKeys();
+      batchGeneratedKeys = supported;
+    }
+
+    return supported;
+  }
+
+  /**
+   * Bind the columns of the model to the statement parameters.
+   *
+   * @param model the model
+   * @param preparedStatement the prepared statement
+   * @param columns the columns
+   * @throws PersistenceException the persistence exception
+   */
+  private void bind(final T model, final PreparedStatement preparedStatement,
+      final String... columns) throws PersistenceException {
+    for (int c = 0; c < columns.length; c++) {
+      entityBinder.bind(model, preparedStatement, c + 1, columns[c]);
+    }
+  }
+
+  /**
+   * Assign the model the key generated by the statement, or -1 if none.
+   *
+   * @param model the model
+   * @param preparedStatement the prepared statement
+   * @throws SQLException the SQL exception
+   */
+  private static void assignGeneratedKey(final Model model,
+      final PreparedStatement preparedStatement) throws SQLException {
+    try (ResultSet resultSet = preparedStatement.getGeneratedKeys()) {
+      model.setId(resultSet.next() ? resultSet.getInt(1) : -1);
+    }
+  }
+
+  /**
+   * Update.
+   *
+   * @param model the model
+   * @param columns the columns
+   * @throws PersistenceException the persistence exception
+   * @see net.ljcomputing.repository.impl.ModelRepository#update(net.ljcomputing.model.Model, java.lang.String[])
+   */
+  public void update(final T model, final String... columns)
+      throws PersistenceException {
+    final String sql = sqlCache.get(() -> SqlUtils
+        .buildUpdateStatement(table.getTableName(), PRIMARY_KEY, columns),
+        UPDATE, (Object[]) columns);
+
+    try (Connection connection = obtainConnection();
+        PreparedStatement preparedStatement = connection
+            .prepareStatement(sql)) {
+      bind(model, preparedStatement, columns);
+      preparedStatement.setObject(columns.length + 1, model.getId());
+      preparedStatement.executeUpdate();
+    } catch (SQLException exception) {
+      throw new PersistenceException(exception);
+    }
+
+    written(Collections.singletonList(model));
+  }
+
+  /**
+   * Update the given models in a single transaction, in batches of the batch
+   * size.
+   *
+   * @param models the models
+   * @param columns the columns
+   * @return the update count of each model, in order; a driver may report
+   *         {@link Statement#SUCCESS_NO_INFO} for a row
+   * @throws PersistenceException the persistence exception
+   * @see net.ljcomputing.repository.impl.ModelRepository#updateAll(java.util.Collection, java.lang.String[])
+   */
+  public int[] updateAll(final Collection<T> models, final String... columns)
+      throws PersistenceException {
+    if (models.isEmpty()) {
+      return new int[0];
+    }
+
+    final String sql = sqlCache.get(() -> SqlUtils
+        .buildUpdateStatement(table.getTableName(), PRIMARY_KEY, columns),
+        UPDATE, (Object[]) columns);
+
+    return inTransaction(connection -> {
+      final int[] counts = new int[models.size()];
+      final int size = batchSize;
+      int rows = 0;
+
+      try (PreparedStatement preparedStatement = connection
+          .prepareStatement(sql)) {
+        for (final T model : models) {
+          bind(model, preparedStatement, columns);
+          preparedStatement.setObject(columns.length + 1, model.getId());
+          preparedStatement.addBatch();
+
+          if (++rows % size == 0) {
+            copy(preparedStatement.executeBatch(), counts, rows);
+          }
+        }
+
+        if (rows % size != 0) {
+          copy(preparedStatement.executeBatch(), counts, rows);
+        }
+      }
+
+      written(models);
+      return counts;
+    });
+  }
+
+  /**
+   * Copy the update counts of a batch ending at the given row.
+   *
+   * @param batch the update counts of the batch
+   * @param counts the update counts
+   * @param rows the number of rows executed
+   */
+  private static void copy(final int[] batch, final int[] counts,
+      final int rows) {
+    System.arraycopy(batch, 0, counts, rows - batch.length, batch.length);
+  }
+
+  /**
+   * Delete the models with the given ids in a single transaction, with IN
+   * lists of at most the IN list size.
+   *
+   * @param ids the ids
+   * @return the number of models deleted
+   * @throws PersistenceException the persistence exception
+   * @see net.ljcomputing.repository.impl.ModelRepository#deleteAll(java.util.Collection)
+   */
+  public int deleteAll(final Collection<Integer> ids)
+      throws PersistenceException {
+    if (ids.isEmpty()) {
+      return 0;
+    }
+
+    final Integer[] values = ids.toArray(new Integer[ids.size()]);
+
+    return inTransaction(connection -> {
+      int deleted = 0;
+
+      for (int from = 0; from < values.length; from += inListSize) {
+        final int count = Math.min(inListSize, values.length - from);
+        final int parameters = getInListParameters(count);
+        final String sql = sqlCache.get(() -> "delete from "
+            + table.getTableName() + " where " + PRIMARY_KEY + " in ("
+            + getInList(parameters) + ")", DELETE_IN, parameters);
+
+        try (PreparedStatement preparedStatement = connection
+            .prepareStatement(sql)) {
+          bindInList(preparedStatement, values, from, count, parameters);
+          deleted += preparedStatement.executeUpdate();
+        }
+      }
+
+      deleted(ids);
+      return deleted;
+    });
+  }
+
+  /**
+   * Gets the number of IN list parameters for the given number of ids: the
+   * next power of two, capped at the IN list size, so only a few distinct
+   * statements are prepared.
+   *
+   * @param count the number of ids
+   * @return the number of parameters
+   */
+  private int getInListParameters(final int count) {
+    final int parameters = Integer.highestOneBit(count) == count ? count
+        : Integer.highestOneBit(count) << 1;
+
+    return Math.min(parameters, inListSize);
+  }
+
+  /**
+   * Gets an IN list of the given number of parameters.
+   *
+   * @param parameters the number of parameters
+   * @return the IN list
+   */
+  private static String getInList(final int parameters) {
+    final StringBuilder inList = new StringBuilder(parameters * 2);
+
+    for (int p = 0; p < parameters; p++) {
+      inList.append(p == 0 ? "?" : ",?");
+    }
+
+    return inList.toString();
+  }
+
+  /**
+   * Bind the ids to the IN list parameters, repeating the last id in any
+   * unused parameters.
+   *
+   * @param preparedStatement the prepared statement
+   * @param ids the ids
+   * @param from the index of the first id
+   * @param count the number of ids
+   * @param parameters the number of parameters
+   * @throws SQLException the SQL exception
+   */
+  private static void bindInList(final PreparedStatement preparedStatement,
+      final Integer[] ids, final int from, final int count,
+      final int parameters) throws SQLException {
+    for (int p = 0; p < parameters; p++) {
+      preparedStatement.setObject(p + 1, ids[from + Math.min(p, count - 1)]);
+    }
+  }
+
+  /**
+   * Delete.
+   *
+   * @param model the model
+   * @throws PersistenceException the persistence exception
+   * @see net.ljcomputing.repository.impl.ModelRepository#delete(net.ljcomputing.model.Model)
+   */
+  public void delete(final T model) throws PersistenceException {
+    delete(model.getId());
+  }
+
+  /**
+   * Delete.
+   *
+   * @param id the id
+   * @throws PersistenceException the persistence exception
+   * @see net.ljcomputing.repository.impl.ModelRepository#delete(java.lang.Integer)
+   */
+  public void delete(final Integer id) throws PersistenceException {
+    final String sql = sqlCache.get(() -> SqlUtils
+        .buildDeleteStatement(table.getTableName(), PRIMARY_KEY), DELETE);
+
+    try (Connection connection = obtainConnection();
+        PreparedStatement preparedStatement = connection
+            .prepareStatement(sql)) {
+      preparedStatement.setObject(1, id);
+      preparedStatement.executeUpdate();
+    } catch (SQLException exception) {
+      throw new PersistenceException(exception);
+    }
+
+    deleted(Collections.singletonList(id));
+  }
+
+  /**
+   * Read by id.
+   *
+   * @param id the id
+   * @return the t
+   * @throws PersistenceException the persistence exception
+   * @see net.ljcomputing.repository.impl.ModelRepository#readById(java.lang.Integer)
+   */
+  public T readById(final Integer id) throws PersistenceException {
+    final UnitOfWork work = UnitOfWork.current();
+
+    if (null != work) {
+      return readById(work.getIdentityMap(), id);
+    }
+
+    final List<CacheTier<T>> tiers = getCacheTiers();
+    final long[] stamps = new long[tiers.size()];
+    T model = null;
+    int tier = 0;
+
+    for (; tier < tiers.size() && null == model; tier++) {
+      stamps[tier] = tiers.get(tier).stamp();
+      model = tiers.get(tier).get(id);
+    }
+
+    if (null == model) {
+      model = readById(id, NO_COLUMNS);
+    } else {
+      tier--;
+    }
+
+    for (int earlier = 0; null != model && earlier < tier; earlier++) {
+      tiers.get(earlier).put(model, stamps[earlier]);
+    }
+
+    return model;
+  }
+
+  /**
+   * Read by id through the identity map of the unit of work.
+   *
+   * @param identities the identity map
+   * @param id the id
+   * @return the model in the identity map, or null if not found
+   * @throws PersistenceException the persistence exception
+   */
+  @SuppressWarnings("unchecked")
+  private T readById(final IdentityMap identities, final Integer id)
+      throws PersistenceException {
+    final T mapped = (T) identities.get(table.getTableName(), id);
+
+    if (null != mapped) {
+      return mapped;
+    }
+
+    final T model = readById(id, NO_COLUMNS);
+
+    return null == model ? null
+        : (T) identities.putIfAbsent(table.getTableName(), id, model);
+  }
+
+  /**
+   * Resolve the models read in full to the instances in the identity map of
+   * the unit of work, if any, adding those not yet in it.
+   *
+   * @param models the models
+   * @return the models
+   * @throws PersistenceException the persistence exception
+   */
+  @SuppressWarnings("unchecked")
+  private List<T> resolveIdentities(final List<T> models)
+      throws PersistenceException {
+    final UnitOfWork work = UnitOfWork.current();
+
+    if (null != work) {
+      final IdentityMap identities = work.getIdentityMap();
+
+      for (int m = 0; m < models.size(); m++) {
+        models.set(m, (T) identities.putIfAbsent(table.getTableName(),
+            models.get(m).getId(), models.get(m)));
+      }
+    }
+
+    return models;
+  }
+
+  /**
+   * Read by id, loading only the id and the given columns; the other members
+   * of the model keep their initial values.
+   *
+   * @param id the id
+   * @param columns the columns to load; all columns if none
+   * @return the t
+   * @throws PersistenceException the persistence exception
+   * @see net.ljcomputing.repository.impl.ModelRepository#readById(java.lang.Integer, java.lang.String[])
+   */
+  public T readById(final Integer id, final String... columns)
+      throws PersistenceException {
+    final String sql = sqlCache.get(() -> "select " + getSelectList(columns)
+        + " from " + table.getTableName() + " where " + PRIMARY_KEY + " =?",
+        SELECT_BY_ID, (Object[]) columns);
+    T model = null;
+
+    try (Connection connection = obtainConnection();
+        PreparedStatement preparedStatement = connection
+            .prepareStatement(sql)) {
+      preparedStatement.setObject(1, id);
+
+      try (ResultSet resultSet = preparedStatement.executeQuery()) {
+        if (resultSet.next()) {
+          model = getPersistedModel(entityPopulator, resultSet);
+        }
+      }
+    } catch (SQLException | InstantiationException | IllegalAccessException
+        | IllegalArgumentException | NoSuchMethodException
+        | SecurityException exception) {
+      throw new PersistenceException(exception);
+    }
+
+    return model;
+  }
+
+  /**
+   * Gets the cache tiers enabled for the table, in read order. Reads within a
+   * unit of work skip them, as they may see its uncommitted changes.
+   *
+   * @return the cache tiers
+   */
+  @SuppressWarnings("unchecked")
+  private List<CacheTier<T>> getCacheTiers() {
+    final CacheTier<T> onHeap = (CacheTier<T>) EntityCache.of(table);
+    final CacheTier<T> offHeap = (CacheTier<T>) OffHeapEntityCache.of(table);
+
+    if (null == onHeap) {
+      return null == offHeap ? Collections.<CacheTier<T>> emptyList()
+          : Collections.singletonList(offHeap);
+    }
+
+    return null == offHeap ? Collections.singletonList(onHeap)
+        : Arrays.asList(onHeap, offHeap);
+  }
+
+  /**
+   * Invalidate the cached query results of the table, and the cached models,
+   * after the models are created or updated, and call {@link #afterCommit}
+   * once the write is committed. Within a unit of work, the models replace any
+   * instances of their rows in its identity map, so reading them again
+   * resolves to the instances written; the caches are invalidated again when
+   * it completes, as a concurrent read may cache them before the commit.
+   *
+   * @param models the models written
+   * @throws PersistenceException the persistence exception
+   */
+  private void written(final Collection<T> models)
+      throws PersistenceException {
+    invalidate(getIds(models), identities -> {
+      for (final T model : models) {
+        if (null != model.getId()) {
+          identities.put(table.getTableName(), model.getId(), model);
+        }
+      }
+    });
+  }
+
+  /**
+   * Invalidate the caches after the models with the given ids are deleted, as
+   * {@link #written(Collection)} does; within a unit of work, the models are
+   * removed from its identity map.
+   *
+   * @param ids the ids of the models deleted
+   * @throws PersistenceException the persistence exception
+   */
+  private void deleted(final Collection<Integer> ids)
+      throws PersistenceException {
+    invalidate(ids, identities -> {
+      for (final Integer id : ids) {
+        identities.remove(table.getTableName(), id);
+      }
+    });
+  }
+
+  /**
+   * Invalidate the cached query results of the table, and the cached models
+   * with the given ids, after a write to the table, update the identity map of
+   * the current unit of work, if any, and call {@link #afterCommit} once the
+   * write is committed.
+   *
+   * @param ids the ids of the models written
+   * @param mapping the update of the identity map
+   * @throws PersistenceException the persistence exception
+   */
+  private void invalidate(final Collection<Integer> ids,
+      final Consumer<IdentityMap> mapping) throws PersistenceException {
+    final List<CacheTier<T>> tiers = getCacheTiers();
+    final QueryCache queries = QueryCache.of(table);
+    final List<Integer> invalid = new ArrayList<Integer>(ids);
+    final Runnable invalidation = () -> {
+      if (null != queries) {
+        queries.bump();
+      }
+
+      for (final CacheTier<T> tier : tiers) {
+        invalid.forEach(tier::invalidate);
+      }
+    };
+
+    invalidation.run();
+
+    final UnitOfWork work = UnitOfWork.current();
+
+    if (null == work) {
+      afterCommit(invalid);
+      return;
+    }
+
+    mapping.accept(work.getIdentityMap());
+    work.addListener(new UnitOfWorkListener() {
+      @Override
+      public void afterCommit() {
+        invalidation.run();
+        AbstractRepository.this.afterCommit(invalid);
+      }
+
+      @Override
+      public void afterRollback() {
+        invalidation.run();
+      }
+    });
+  }
+
+  /**
+   * Called once models written through the repository are committed.
+   *
+   * @param ids the ids of the models written
+   */
+  protected void afterCommit(final Collection<Integer> ids) {
+  }
+
+  /**
+   * Gets the ids of the models.
+   *
+   * @param models the models
+   * @return the ids
+   */
+  private static List<Integer> getIds(
+      final Collection<? extends Model> models) {
+    final List<Integer> ids = new ArrayList<Integer>(models.size());
+
+    for (final Model model : models) {
+      ids.add(model.getId());
+    }
+
+    return ids;
+  }
+
+  /**
+   * Gets the select list of the id and the given columns, or all columns if
+   * none are given.
+   *
+   * @param columns the columns
+   * @return the select list
+   */
+  private static String getSelectList(final String... columns) {
+    if (columns.length == 0) {
+      return "*";
+    }
+
+    final StringBuilder selectList = new StringBuilder(PRIMARY_KEY);
+
+    for (final String column : columns) {
+      if (!PRIMARY_KEY.equalsIgnoreCase(column)) {
+        selectList.append(", ").append(Criteria.checkIdentifier(column));
+      }
+    }
+
+    return selectList.toString();
+  }
+
+  /**
+   * Read the models with the given ids, with IN lists of at most the IN list
+   * size, over one connection.
+   *
+   * @param ids the ids
+   * @return the models, keyed by id
+   * @throws PersistenceException the persistence exception
+   * @see net.ljcomputing.repository.impl.ModelRepository#readByIds(java.util.Collection)
+   */
+  public Map<Integer, T> readByIds(final Collection<Integer> ids)
+      throws PersistenceException {
+    final Map<Integer, T> models = new HashMap<Integer, T>(
+        ids.size() * 4 / 3 + 1);
+    final UnitOfWork work = UnitOfWork.current();
+
+    if (null != work) {
+      return readByIds(work.getIdentityMap(), ids, models);
+    }
+
+    final List<CacheTier<T>> tiers = getCacheTiers();
+
+    if (tiers.isEmpty()) {
+      return readByIds(ids, models);
+    }
+
+    final long[] stamps = new long[tiers.size()];
+    Collection<Integer> missing = ids;
+
+    for (int tier = 0; tier < tiers.size(); tier++) {
+      final List<Integer> stillMissing = new ArrayList<Integer>();
+
+      stamps[tier] = tiers.get(tier).stamp();
+
+      for (final Integer id : missing) {
+        final T model = tiers.get(tier).get(id);
+
+        if (null == model) {
+          stillMissing.add(id);
+        } else {
+          models.put(id, model);
+
+          for (int earlier = 0; earlier < tier; earlier++) {
+            tiers.get(earlier).put(model, stamps[earlier]);
+          }
+        }
+      }
+
+      missing = stillMissing;
+    }
+
+    final Map<Integer, T> read = readByIds(missing,
+        new HashMap<Integer, T>(missing.size() * 4 / 3 + 1));
+
+    for (final T model : read.values()) {
+      for (int tier = 0; tier < tiers.size(); tier++) {
+        tiers.get(tier).put(model, stamps[tier]);
+      }
+    }
+
+    models.putAll(read);
+    return models;
+  }
 
   /**
-   * Instantiates a new abstract repository.
+   * Read the models with the given ids through the identity map of the unit
+   * of work into the map.
    *
-   * @param table the table
+   * @param identities the identity map
+   * @param ids the ids
+   * @param models the map of models, keyed by id
+   * @return the map of models
    * @throws PersistenceException the persistence exception
    */
-  public AbstractRepository(final DataSourceTable table)
+  @SuppressWarnings("unchecked")
+  private Map<Integer, T> readByIds(final IdentityMap identities,
+      final Collection<Integer> ids, final Map<Integer, T> models)
       throws PersistenceException {
-    this.table = table;
-    this.entityPopulator = new EntityPopulatorImpl();
+    final List<Integer> missing = new ArrayList<Integer>();
+
+    for (final Integer id : ids) {
+      final T mapped = (T) identities.get(table.getTableName(), id);
+
+      if (null == mapped) {
+        missing.add(id);
+      } else {
+        models.put(id, mapped);
+      }
+    }
+
+    for (final T model : readByIds(missing, new HashMap<Integer, T>(
+        missing.size() * 4 / 3 + 1)).values()) {
+      models.put(model.getId(), (T) identities
+          .putIfAbsent(table.getTableName(), model.getId(), model));
+    }
+
+    return models;
   }
 
   /**
-   * Gets the model instance.
+   * Read the models with the given ids from the database into the map.
    *
-   * @return the model instance
-   * @throws NoSuchMethodException the no such method exception
-   * @throws SecurityException the security exception
-   * @throws InstantiationException the instantiation exception
-   * @throws IllegalAccessException the illegal access exception
+   * @param ids the ids
+   * @param models the map of models, keyed by id
+   * @return the map of models
+   * @throws PersistenceException the persistence exception
    */
-  @SuppressWarnings("unchecked")
-  protected T getModelInstance() throws NoSuchMethodException,
-      SecurityException, InstantiationException, IllegalAccessException {
-    return (T) table.getModel().newInstance();
+  private Map<Integer, T> readByIds(final Collection<Integer> ids,
+      final Map<Integer, T> models) throws PersistenceException {
+    if (ids.isEmpty()) {
+      return models;
+    }
+
+    final Integer[] values = ids.toArray(new Integer[ids.size()]);
+
+    return execute(connection -> {
+      for (int from = 0; from < values.length; from += inListSize) {
+        final int count = Math.min(inListSize, values.length - from);
+        final int parameters = getInListParameters(count);
+        final String sql = sqlCache.get(() -> "select * from "
+            + table.getTableName() + " where " + PRIMARY_KEY + " in ("
+            + getInList(parameters) + ")", SELECT_IN, parameters);
+
+        try (PreparedStatement preparedStatement = connection
+            .prepareStatement(sql)) {
+          bindInList(preparedStatement, values, from, count, parameters);
+
+          try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            final EntityPopulator populator = entityPopulator
+                .prepare(table.getModel(), resultSet);
+
+            while (resultSet.next()) {
+              final T model = getPersistedModel(populator, resultSet);
+              models.put(model.getId(), model);
+            }
+          }
+        } catch (InstantiationException | IllegalAccessException
+            | IllegalArgumentException | NoSuchMethodException
+            | SecurityException exception) {
+          throw new PersistenceException(exception);
+        }
+      }
+
+      return models;
+    });
   }
 
   /**
-   * Obtain connection.
+   * Read all.
    *
+   * @return the list
    * @throws PersistenceException the persistence exception
+   * @see net.ljcomputing.repository.impl.ModelRepository#readAll()
    */
-  protected void obtainConnection() throws PersistenceException {
-    connection = ConnectionPool.getInstance().getConnection();
+  public List<T> readAll() throws PersistenceException {
+    return readAll(NO_COLUMNS);
   }
 
   /**
-   * Obtain prepared statement.
+   * Read all, loading only the id and the given columns; the other members of
+   * the models keep their initial values.
    *
-   * @param sql the sql
-   * @return the prepared statement
+   * @param columns the columns to load; all columns if none
+   * @return the list
    * @throws PersistenceException the persistence exception
+   * @see net.ljcomputing.repository.impl.ModelRepository#readAll(java.lang.String[])
    */
-  protected PreparedStatement obtainPreparedStatement(final String sql)
+  public List<T> readAll(final String... columns)
       throws PersistenceException {
-    try {
-      // verify we have a connection, and it is opened
-      if (null == connection || connection.isClosed()) {
-        obtainConnection();
-      }
+    final String sql = sqlCache.get(() -> "select " + getSelectList(columns)
+        + " from " + table.getTableName(), SELECT_ALL, (Object[]) columns);
 
-      return connection.prepareStatement(sql);
-    } catch (SQLException exception) {
-      throw new PersistenceException(exception);
+    return query(Arrays.asList(SELECT_ALL, Arrays.asList(columns)),
+        connection -> {
+          try (PreparedStatement preparedStatement = connection
+              .prepareStatement(sql);
+              ResultSet resultSet = preparedStatement.executeQuery()) {
+            return columns.length == 0
+                ? resolveIdentities(getPersistedModels(resultSet))
+                : getPersistedModels(resultSet);
+          }
+        });
+  }
+  
+  /**
+   * Read the models matching the criteria. The SQL is generated once per
+   * criteria shape and cached.
+   *
+   * @param criteria the criteria
+   * @return the list
+   * @throws PersistenceException the persistence exception
+   * @see net.ljcomputing.repository.impl.ModelRepository#find(net.ljcomputing.repository.impl.Criteria)
+   */
+  public List<T> find(final Criteria criteria) throws PersistenceException {
+    final String sql = sqlCache.get(() -> "select * from "
+        + table.getTableName() + criteria.getWhereClause()
+        + criteria.getOrderByClause(), SELECT_WHERE, criteria.getShape());
+
+    return query(Arrays.asList(SELECT_WHERE, criteria.getKey()),
+        connection -> {
+          try (PreparedStatement preparedStatement = connection
+              .prepareStatement(sql)) {
+            criteria.bind(preparedStatement, 1);
+            preparedStatement.setMaxRows(criteria.getLimit());
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+              return resolveIdentities(getPersistedModels(resultSet));
+            }
+          }
+        });
+  }
+
+  /**
+   * Execute the query, or get a copy of its result from the query cache of
+   * the table. Queries within a unit of work skip the cache, as they may see
+   * its uncommitted changes.
+   *
+   * @param key the query shape and parameter values
+   * @param query the query
+   * @return the models
+   * @throws PersistenceException the persistence exception
+   */
+  private List<T> query(final Object key,
+      final ConnectionCallback<List<T>> query) throws PersistenceException {
+    final QueryCache cache = null == UnitOfWork.current()
+        ? QueryCache.of(table) : null;
+
+    if (null == cache) {
+      return execute(query);
     }
+
+    final List<T> cached = cache.get(key);
+
+    if (null != cached) {
+      return cached;
+    }
+
+    final long version = cache.version();
+    final List<T> result = execute(query);
+
+    cache.put(key, result, version);
+    return result;
   }
 
   /**
-   * Close prepared statement.
+   * Gets the persisted models of the remaining rows of the result set.
+   *
+   * @param resultSet the result set
+   * @return the models
+   * @throws SQLException the SQL exception
+   * @throws PersistenceException the persistence exception
    */
-  protected void closePreparedStatement() {
-    if (null != preparedStatement) {
-      try {
-        preparedStatement.close();
-      } catch (SQLException exception) {
-        // do nothing
+  private List<T> getPersistedModels(final ResultSet resultSet)
+      throws SQLException, PersistenceException {
+    final List<T> list = new ArrayList<T>();
+    final EntityPopulator populator = entityPopulator
+        .prepare(table.getModel(), resultSet);
+
+    try {
+      while (resultSet.next()) {
+        list.add(getPersistedModel(populator, resultSet));
       }
+    } catch (InstantiationException | IllegalAccessException
+        | IllegalArgumentException | NoSuchMethodException
+        | SecurityException exception) {
+      throw new PersistenceException(exception);
     }
+
+    return list;
   }
 
   /**
-   * Close connection.
+   * Count all the models.
+   *
+   * @return the count
+   * @throws PersistenceException the persistence exception
+   * @see net.ljcomputing.repository.impl.ModelRepository#count()
    */
-  protected void closeConnection() {
-    if (null != connection) {
-      try {
-        connection.close();
-      } catch (SQLException exception) {
-        // do nothing
+  public long count() throws PersistenceException {
+    return count(Criteria.create());
+  }
+
+  /**
+   * Count the models matching the criteria, in the database.
+   *
+   * @param criteria the criteria
+   * @return the count
+   * @throws PersistenceException the persistence exception
+   * @see net.ljcomputing.repository.impl.ModelRepository#count(net.ljcomputing.repository.impl.Criteria)
+   */
+  public long count(final Criteria criteria) throws PersistenceException {
+    return aggregate("count(*)", criteria).orElse(0);
+  }
+
+  /**
+   * Checks a model with the given id exists, without reading it.
+   *
+   * @param id the id
+   * @return true, if it exists
+   * @throws PersistenceException the persistence exception
+   * @see net.ljcomputing.repository.impl.ModelRepository#existsById(java.lang.Integer)
+   */
+  public boolean existsById(final Integer id) throws PersistenceException {
+    final String sql = sqlCache.get(() -> "select 1 from "
+        + table.getTableName() + " where " + PRIMARY_KEY + " =?",
+        EXISTS_BY_ID);
+
+    try (Connection connection = obtainConnection();
+        PreparedStatement preparedStatement = connection
+            .prepareStatement(sql)) {
+      preparedStatement.setObject(1, id);
+      preparedStatement.setMaxRows(1);
+
+      try (ResultSet resultSet = preparedStatement.executeQuery()) {
+        return resultSet.next();
       }
+    } catch (SQLException exception) {
+      throw new PersistenceException(exception);
     }
   }
 
   /**
-   * Creates the.
+   * Gets the lowest value of an integral column, in the database.
    *
-   * @param model the model
-   * @param columns the columns
+   * @param column the column
+   * @return the lowest value, or empty if there are no non null values
    * @throws PersistenceException the persistence exception
-   * @see net.ljcomputing.repository.impl.ModelRepository#create(net.ljcomputing.model.Model, java.lang.String[])
+   * @see net.ljcomputing.repository.impl.ModelRepository#min(java.lang.String)
    */
-  public void create(final T model, final String... columns)
-      throws PersistenceException {
-    ResultSet resultSet = null;
-    int key = -1;
+  public OptionalLong min(final String column) throws PersistenceException {
+    return aggregate("min(" + Criteria.checkIdentifier(column) + ")",
+        Criteria.create());
+  }
 
-    try {
-      obtainConnection();
+  /**
+   * Gets the highest value of an integral column, in the database.
+   *
+   * @param column the column
+   * @return the highest value, or empty if there are no non null values
+   * @throws PersistenceException the persistence exception
+   * @see net.ljcomputing.repository.impl.ModelRepository#max(java.lang.String)
+   */
+  public OptionalLong max(final String column) throws PersistenceException {
+    return aggregate("max(" + Criteria.checkIdentifier(column) + ")",
+        Criteria.create());
+  }
 
-      preparedStatement = connection.prepareStatement(
-          SqlUtils.buildInsertStatement(table.getTableName(), columns),
-          Statement.RETURN_GENERATED_KEYS);
+  /**
+   * Gets the sum of an integral column, in the database.
+   *
+   * @param column the column
+   * @return the sum, or 0 if there are no non null values
+   * @throws PersistenceException the persistence exception
+   * @see net.ljcomputing.repository.impl.ModelRepository#sum(java.lang.String)
+   */
+  public long sum(final String column) throws PersistenceException {
+    return aggregate("sum(cast(" + Criteria.checkIdentifier(column)
+        + " as bigint))", Criteria.create()).orElse(0);
+  }
 
-      for (int c = 0; c < columns.length; c++) {
-        preparedStatement.setObject(c + 1, getModelValue(model, columns[c]));
-      }
+  /**
+   * Evaluate an aggregate expression over the models matching the criteria.
+   *
+   * @param expression the aggregate expression
+   * @param criteria the criteria
+   * @return the value, or empty if null
+   * @throws PersistenceException the persistence exception
+   */
+  private OptionalLong aggregate(final String expression,
+      final Criteria criteria) throws PersistenceException {
+    final String sql = sqlCache.get(() -> "select " + expression + " from "
+        + table.getTableName() + criteria.getWhereClause(), AGGREGATE,
+        expression, criteria.getShape());
 
-      preparedStatement.executeUpdate();
+    try (Connection connection = obtainConnection();
+        PreparedStatement preparedStatement = connection
+            .prepareStatement(sql)) {
+      criteria.bind(preparedStatement, 1);
 
-      resultSet = preparedStatement.getGeneratedKeys();
+      try (ResultSet resultSet = preparedStatement.executeQuery()) {
+        resultSet.next();
+        final long value = resultSet.getLong(1);
 
-      if (resultSet.next()) {
-        key = resultSet.getInt(1);
+        return resultSet.wasNull() ? OptionalLong.empty()
+            : OptionalLong.of(value);
       }
-
-      model.setId(key);
-      closePreparedStatement();
-      closeConnection();
     } catch (SQLException exception) {
       throw new PersistenceException(exception);
-    } finally {
-      if (null != resultSet) {
-        try {
-          resultSet.close();
-        } catch (SQLException e) {
-          // do nothing
-        }
-      }
     }
   }
 
   /**
-   * Update.
+   * Read a page of models in id order, seeking past the given id on the primary
+   * key, so every page costs the same however deep it is. One model more than
+   * the limit is read to tell whether there is a next page.
    *
-   * @param model the model
-   * @param columns the columns
+   * @param afterId the id to read after, or null for the first page
+   * @param limit the maximum number of models
+   * @return the page
    * @throws PersistenceException the persistence exception
-   * @see net.ljcomputing.repository.impl.ModelRepository#update(net.ljcomputing.model.Model, java.lang.String[])
+   * @see net.ljcomputing.repository.impl.ModelRepository#readPage(java.lang.Integer, int)
    */
-  public void update(final T model, final String... columns)
+  public Page<T> readPage(final Integer afterId, final int limit)
       throws PersistenceException {
-    final String sql = SqlUtils.buildUpdateStatement(table.getTableName(),
-        PRIMARY_KEY, columns);
+    if (limit < 1) {
+      throw new IllegalArgumentException("limit must be at least 1");
+    }
 
-    try {
-      preparedStatement = obtainPreparedStatement(sql);
+    final String sql = sqlCache.get(() -> "select * from "
+        + table.getTableName() + " where " + PRIMARY_KEY + " > ? order by "
+        + PRIMARY_KEY, SELECT_PAGE);
+    final List<T> models = new ArrayList<T>(Math.min(limit, 1024));
+    boolean more = false;
 
-      int column = 1;
-      for (final Object value : getModelValues(model, columns)) {
-        preparedStatement.setObject(column++, value);
-      }
+    try (Connection connection = obtainConnection();
+        PreparedStatement preparedStatement = connection
+            .prepareStatement(sql)) {
+      preparedStatement.setInt(1,
+          null == afterId ? Integer.MIN_VALUE : afterId);
+      preparedStatement.setMaxRows(limit == Integer.MAX_VALUE ? 0 : limit + 1);
 
-      preparedStatement.setObject(column, model.getId());
+      try (ResultSet resultSet = preparedStatement.executeQuery()) {
+        final EntityPopulator populator = entityPopulator
+            .prepare(table.getModel(), resultSet);
 
-      preparedStatement.executeUpdate();
-      closePreparedStatement();
-      closeConnection();
-    } catch (SQLException exception) {
+        while (resultSet.next()) {
+          if (models.size() == limit) {
+            more = true;
+            break;
+          }
+
+          models.add(getPersistedModel(populator, resultSet));
+        }
+      }
+    } catch (SQLException | InstantiationException | IllegalAccessException
+        | IllegalArgumentException | NoSuchMethodException
+        | SecurityException exception) {
       throw new PersistenceException(exception);
     }
+
+    return new Page<T>(models,
+        more ? models.get(models.size() - 1).getId() : null);
   }
 
   /**
-   * Delete.
+   * Scan all the models in parallel. The id key space, between the lowest and
+   * highest ids, is split into ranges that are read on their own pooled
+   * connections by a pool of scanning threads; several ranges per thread even
+   * out sparse or skewed ids. The parallelism is capped at the maximum size of
+   * the connection pool.
    *
-   * @param model the model
+   * <p>
+   * The scanning threads do not take part in a unit of work active on the
+   * calling thread, and so do not see its uncommitted changes.
+   * </p>
+   *
+   * @param parallelism the number of threads and connections to scan with
+   * @param consumer the thread safe consumer of the models
+   * @return the number of models scanned
    * @throws PersistenceException the persistence exception
-   * @see net.ljcomputing.repository.impl.ModelRepository#delete(net.ljcomputing.model.Model)
+   * @see net.ljcomputing.repository.impl.ModelRepository#scanParallel(int, java.util.function.Consumer)
    */
-  public void delete(final T model) throws PersistenceException {
-    delete(model.getId());
+  public long scanParallel(final int parallelism,
+      final Consumer<? super T> consumer) throws PersistenceException {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be at least 1");
+    }
+
+    final long[] bounds = readIdBounds();
+
+    if (null == bounds) {
+      return 0;
+    }
+
+    final int threads = Math.min(parallelism,
+        Math.max(1, ConnectionPool.getInstance().getMaxTotal()));
+    final long span = bounds[1] - bounds[0] + 1;
+    final long ranges = Math.min(span, (long) threads * RANGES_PER_THREAD);
+    final AtomicInteger threadNumber = new AtomicInteger();
+    final ExecutorService executor = Executors.newFixedThreadPool(threads,
+        runnable -> {
+          final Thread thread = new Thread(runnable,
+              table.getTableName() + "-scan-" + threadNumber.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    final List<Future<Long>> futures = new ArrayList<Future<Long>>();
+
+    try {
+      for (long r = 0; r < ranges; r++) {
+        final long from = bounds[0] + span * r / ranges;
+        final long to = bounds[0] + span * (r + 1) / ranges - 1;
+
+        futures.add(executor.submit(() -> scanRange((int) from, (int) to,
+            consumer)));
+      }
+
+      long scanned = 0;
+
+      for (final Future<Long> future : futures) {
+        scanned += future.get();
+      }
+
+      return scanned;
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new PersistenceException(exception);
+    } catch (ExecutionException exception) {
+      throw exception.getCause() instanceof PersistenceException
+          ? (PersistenceException) exception.getCause()
+          : new PersistenceException(exception.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
   }
 
   /**
-   * Delete.
+   * Read the lowest and highest ids.
    *
-   * @param id the id
+   * @return the lowest and highest ids, or null if there are no models
    * @throws PersistenceException the persistence exception
-   * @see net.ljcomputing.repository.impl.ModelRepository#delete(java.lang.Integer)
    */
-  public void delete(final Integer id) throws PersistenceException {
-    final String sql = SqlUtils.buildDeleteStatement(table.getTableName(),
-        PRIMARY_KEY);
+  private long[] readIdBounds() throws PersistenceException {
+    final String sql = sqlCache.get(() -> "select min(" + PRIMARY_KEY
+        + "), max(" + PRIMARY_KEY + ") from " + table.getTableName(),
+        SELECT_BOUNDS);
 
-    try {
-      preparedStatement = obtainPreparedStatement(sql);
-      preparedStatement.setObject(1, id);
-      preparedStatement.executeUpdate();
-      closePreparedStatement();
-      closeConnection();
+    try (Connection connection = obtainConnection();
+        PreparedStatement preparedStatement = connection
+            .prepareStatement(sql);
+        ResultSet resultSet = preparedStatement.executeQuery()) {
+      resultSet.next();
+      final long min = resultSet.getLong(1);
+
+      return resultSet.wasNull() ? null
+          : new long[] { min, resultSet.getLong(2) };
     } catch (SQLException exception) {
       throw new PersistenceException(exception);
     }
   }
 
   /**
-   * Read by id.
+   * Scan the models of an id range on a pooled connection.
    *
-   * @param id the id
-   * @return the t
+   * @param from the lowest id of the range
+   * @param to the highest id of the range
+   * @param consumer the consumer of the models
+   * @return the number of models scanned
    * @throws PersistenceException the persistence exception
-   * @see net.ljcomputing.repository.impl.ModelRepository#readById(java.lang.Integer)
    */
-  public T readById(final Integer id) throws PersistenceException {
-    final String sql = "select * from " + table.getTableName() + " where "
-        + PRIMARY_KEY + " =?";
-    T model = null;
-    ResultSet resultSet = null;
-
-    try {
-      preparedStatement = obtainPreparedStatement(sql);
+  private long scanRange(final int from, final int to,
+      final Consumer<? super T> consumer) throws PersistenceException {
+    final String sql = sqlCache.get(() -> "select * from "
+        + table.getTableName() + " where " + PRIMARY_KEY + " between ? and ?",
+        SELECT_RANGE);
+    long scanned = 0;
 
-      preparedStatement.setObject(1, id);
+    try (Connection connection = obtainConnection();
+        PreparedStatement preparedStatement = connection
+            .prepareStatement(sql)) {
+      preparedStatement.setInt(1, from);
+      preparedStatement.setInt(2, to);
+      preparedStatement.setFetchSize(DEFAULT_FETCH_SIZE);
 
-      resultSet = preparedStatement.executeQuery();
+      try (ResultSet resultSet = preparedStatement.executeQuery()) {
+        final EntityPopulator populator = entityPopulator
+            .prepare(table.getModel(), resultSet);
 
-      while (resultSet.next()) {
-        model = getPersistedModel(resultSet);
+        while (resultSet.next()) {
+          consumer.accept(getPersistedModel(populator, resultSet));
+          scanned++;
+        }
       }
-
-      closePreparedStatement();
-      closeConnection();
     } catch (SQLException | InstantiationException | IllegalAccessException
         | IllegalArgumentException | NoSuchMethodException
         | SecurityException exception) {
       throw new PersistenceException(exception);
-    } finally {
-      if (null != resultSet) {
-        try {
-          resultSet.close();
-        } catch (SQLException e) {
-          // do nothing
-        }
-      }
     }
 
-    return model;
+    return scanned;
   }
 
   /**
-   * Read all.
+   * Stream all the models with the default fetch size.
    *
-   * @return the list
+   * @return the stream of models
    * @throws PersistenceException the persistence exception
-   * @see net.ljcomputing.repository.impl.ModelRepository#readAll()
+   * @see net.ljcomputing.repository.impl.ModelRepository#stream()
    */
-  public List<T> readAll() throws PersistenceException {
-    final String sql = "select * from " + table.getTableName();
-    final List<T> list = new ArrayList<T>();
+  public Stream<T> stream() throws PersistenceException {
+    return stream(DEFAULT_FETCH_SIZE);
+  }
+
+  /**
+   * Stream all the models, populating each as the cursor reaches it. The
+   * connection, statement and result set are released when the stream is
+   * closed or consumed to the end. Failures while streaming are thrown as
+   * {@link UncheckedPersistenceException}s.
+   *
+   * @param fetchSize the fetch size
+   * @return the stream of models
+   * @throws PersistenceException the persistence exception
+   * @see net.ljcomputing.repository.impl.ModelRepository#stream(int)
+   */
+  public Stream<T> stream(final int fetchSize) throws PersistenceException {
+    final String sql = sqlCache.get(() -> "select * from "
+        + table.getTableName(), SELECT_ALL);
+    final Connection connection = obtainConnection();
+    PreparedStatement preparedStatement = null;
     ResultSet resultSet = null;
 
     try {
-      preparedStatement = obtainPreparedStatement(sql);
+      preparedStatement = connection.prepareStatement(sql,
+          ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      preparedStatement.setFetchSize(fetchSize);
       resultSet = preparedStatement.executeQuery();
 
-      while (resultSet.next()) {
-        list.add(getPersistedModel(resultSet));
-      }
+      final Cursor cursor = new Cursor(connection, preparedStatement,
+          resultSet);
 
-      closePreparedStatement();
-      closeConnection();
-    } catch (SQLException | InstantiationException | IllegalAccessException
-        | IllegalArgumentException | NoSuchMethodException
-        | SecurityException exception) {
+      return StreamSupport.stream(cursor, false).onClose(cursor::close);
+    } catch (SQLException exception) {
+      close(resultSet, preparedStatement, connection);
       throw new PersistenceException(exception);
-    } finally {
-      if (null != resultSet) {
+    } catch (PersistenceException | RuntimeException exception) {
+      close(resultSet, preparedStatement, connection);
+      throw exception;
+    }
+  }
+
+  /**
+   * Close the JDBC resources, logging rather than throwing any failure.
+   *
+   * @param resources the resources, which may be null
+   */
+  private static void close(final AutoCloseable... resources) {
+    for (final AutoCloseable resource : resources) {
+      if (null != resource) {
         try {
-          resultSet.close();
-        } catch (SQLException e) {
-          // do nothing
+          resource.close();
+        } catch (Exception exception) {
+          LOGGER.warn("Cannot close {}: {}", resource, exception.getMessage());
+        }
+      }
+    }
+  }
+
+  /**
+   * Cursor over an open result set, populating a model from each row.
+   */
+  private final class Cursor extends Spliterators.AbstractSpliterator<T> {
+
+    /** The connection. */
+    private final Connection connection;
+
+    /** The prepared statement. */
+    private final PreparedStatement preparedStatement;
+
+    /** The result set. */
+    private final ResultSet resultSet;
+
+    /** The entity populator prepared for the result set. */
+    private final EntityPopulator populator;
+
+    /** The cursor is closed. */
+    private boolean closed;
+
+    /**
+     * Instantiates a new cursor.
+     *
+     * @param connection the connection
+     * @param preparedStatement the prepared statement
+     * @param resultSet the result set
+     * @throws PersistenceException the persistence exception
+     */
+    private Cursor(final Connection connection,
+        final PreparedStatement preparedStatement, final ResultSet resultSet)
+        throws PersistenceException {
+      super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+      this.connection = connection;
+      this.preparedStatement = preparedStatement;
+      this.resultSet = resultSet;
+      this.populator = entityPopulator.prepare(table.getModel(), resultSet);
+    }
+
+    /**
+     * @see java.util.Spliterator#tryAdvance(java.util.function.Consumer)
+     */
+    public boolean tryAdvance(final Consumer<? super T> action) {
+      if (closed) {
+        return false;
+      }
+
+      try {
+        if (!resultSet.next()) {
+          close();
+          return false;
         }
+
+        action.accept(getPersistedModel(populator, resultSet));
+        return true;
+      } catch (SQLException | InstantiationException | IllegalAccessException
+          | IllegalArgumentException | NoSuchMethodException
+          | SecurityException exception) {
+        close();
+        throw new UncheckedPersistenceException(
+            new PersistenceException(exception));
+      } catch (PersistenceException exception) {
+        close();
+        throw new UncheckedPersistenceException(exception);
       }
     }
 
-    return list;
+    /**
+     * Close the result set, statement and connection, once.
+     */
+    private void close() {
+      if (!closed) {
+        closed = true;
+        AbstractRepository.close(resultSet, preparedStatement, connection);
+      }
+    }
   }
-  
+
   /**
    * Gets the persisted model.
    *
+   * @param populator the entity populator
    * @param resultSet the result set
    * @return the persisted model
    * @throws NoSuchMethodException the no such method exception
@@ -358,11 +1956,12 @@ public abstract class AbstractRepository<T extends Model>
    * @throws PersistenceException the persistence exception
    */
   @SuppressWarnings("unchecked")
-  private T getPersistedModel(ResultSet resultSet) 
+  private T getPersistedModel(final EntityPopulator populator,
+      final ResultSet resultSet) 
       throws NoSuchMethodException, SecurityException, InstantiationException, 
         IllegalAccessException, PersistenceException {
     final Entity entity = (Entity) getModelInstance();
-    entity.populate(entityPopulator, resultSet);
+    entity.populate(populator, resultSet);
     return (T) entity;    
   }
 
@@ -395,15 +1994,26 @@ public abstract class AbstractRepository<T extends Model>
    */
   protected Object getModelValue(final T model, final String fieldName)
       throws PersistenceException {
-    try {
-      final String newFieldName = StringUtils.toMemberCase(fieldName);
-      final Class<? extends Model> klass = model.getClass();
-      final Field field = klass.getDeclaredField(newFieldName);
-      field.setAccessible(true);
-      return field.get(model);
-    } catch (NoSuchFieldException | SecurityException | IllegalArgumentException
-        | IllegalAccessException exception) {
-      throw new PersistenceException(exception);
-    }
+    return accessorStrategy.getAccessor(model.getClass(),
+        StringUtils.toMemberCase(fieldName)).get(model);
+  }
+
+  /**
+   * Callback executed with a connection.
+   *
+   * @param <R> the result type
+   */
+  @FunctionalInterface
+  protected interface ConnectionCallback<R> {
+
+    /**
+     * Execute with the connection.
+     *
+     * @param connection the connection
+     * @return the result
+     * @throws SQLException the SQL exception
+     * @throws PersistenceException the persistence exception
+     */
+    R execute(Connection connection) throws SQLException, PersistenceException;
   }
 }
@@ -0,0 +1,66 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.repository.impl;
+
+import net.ljcomputing.exception.PersistenceException;
+import net.ljcomputing.model.Model;
+
+/**
+ * A tier of the model cache of a table. Repositories read through the tiers
+ * in order, promote models found in a later tier to the earlier ones, and
+ * invalidate the models they write in every tier.
+ *
+ * @author James G. Willmore
+ *
+ * @param <T> the Model cached
+ */
+abstract class CacheTier<T extends Model> {
+
+  /**
+   * Gets the current invalidation stamp, to be passed to {@link #put} for a
+   * model read after it.
+   *
+   * @return the stamp
+   */
+  abstract long stamp();
+
+  /**
+   * Gets the cached model.
+   *
+   * @param id the id
+   * @return the model, or null if not cached
+   * @throws PersistenceException the persistence exception
+   */
+  abstract T get(Integer id) throws PersistenceException;
+
+  /**
+   * Cache a model read from the table, unless an invalidation happened since
+   * the read began.
+   *
+   * @param model the model
+   * @param stamp the stamp taken before the read
+   * @throws PersistenceException the persistence exception
+   */
+  abstract void put(T model, long stamp) throws PersistenceException;
+
+  /**
+   * Invalidate the cached model.
+   *
+   * @param id the id
+   */
+  abstract void invalidate(Integer id);
+}
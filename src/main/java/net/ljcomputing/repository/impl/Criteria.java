@@ -0,0 +1,350 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.repository.impl;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Query criteria: conditions on columns, all of which must hold, an ordering
+ * and a limit. Values are always bound as statement parameters, and column
+ * names are checked to be plain identifiers, so the generated SQL is safe to
+ * cache and reuse per criteria shape:
+ *
+ * <pre>
+ * repository.find(Criteria.create().eq("name", "alice").gt("id", 100)
+ *     .orderByDesc("id").limit(10));
+ * </pre>
+ *
+ * @author James G. Willmore
+ */
+public final class Criteria {
+
+  /** A plain SQL identifier. */
+  private static final Pattern IDENTIFIER = Pattern
+      .compile("[A-Za-z_][A-Za-z0-9_]*");
+
+  /** The where clause, without the where keyword. */
+  private final StringBuilder where = new StringBuilder();
+
+  /** The order by clause, without the order by keywords. */
+  private final StringBuilder orderBy = new StringBuilder();
+
+  /** The parameter values, in order. */
+  private final List<Object> values = new ArrayList<Object>();
+
+  /** The shape of the criteria, which determines its SQL. */
+  private final List<Object> shape = new ArrayList<Object>();
+
+  /** The maximum number of rows, or 0 for no limit. */
+  private int limit;
+
+  /**
+   * Instantiates new criteria.
+   */
+  private Criteria() {
+  }
+
+  /**
+   * Create empty criteria, which match every row.
+   *
+   * @return the criteria
+   */
+  public static Criteria create() {
+    return new Criteria();
+  }
+
+  /**
+   * The column equals the value; a null value matches null columns.
+   *
+   * @param column the column
+   * @param value the value
+   * @return the criteria
+   */
+  public Criteria eq(final String column, final Object value) {
+    return null == value ? isNull(column) : condition(column, " = ?", value);
+  }
+
+  /**
+   * The column does not equal the value.
+   *
+   * @param column the column
+   * @param value the value
+   * @return the criteria
+   */
+  public Criteria ne(final String column, final Object value) {
+    return condition(column, " <> ?", value);
+  }
+
+  /**
+   * The column is less than the value.
+   *
+   * @param column the column
+   * @param value the value
+   * @return the criteria
+   */
+  public Criteria lt(final String column, final Object value) {
+    return condition(column, " < ?", value);
+  }
+
+  /**
+   * The column is less than or equal to the value.
+   *
+   * @param column the column
+   * @param value the value
+   * @return the criteria
+   */
+  public Criteria le(final String column, final Object value) {
+    return condition(column, " <= ?", value);
+  }
+
+  /**
+   * The column is greater than the value.
+   *
+   * @param column the column
+   * @param value the value
+   * @return the criteria
+   */
+  public Criteria gt(final String column, final Object value) {
+    return condition(column, " > ?", value);
+  }
+
+  /**
+   * The column is greater than or equal to the value.
+   *
+   * @param column the column
+   * @param value the value
+   * @return the criteria
+   */
+  public Criteria ge(final String column, final Object value) {
+    return condition(column, " >= ?", value);
+  }
+
+  /**
+   * The column is between the values, inclusive.
+   *
+   * @param column the column
+   * @param low the low value
+   * @param high the high value
+   * @return the criteria
+   */
+  public Criteria between(final String column, final Object low,
+      final Object high) {
+    condition(column, " between ? and ?", low);
+    values.add(high);
+    return this;
+  }
+
+  /**
+   * The column is one of the values; no values match no rows.
+   *
+   * @param column the column
+   * @param in the values
+   * @return the criteria
+   */
+  public Criteria in(final String column, final Collection<?> in) {
+    if (in.isEmpty()) {
+      appendCondition("1 = 0");
+      shape.add("none");
+      return this;
+    }
+
+    final StringBuilder list = new StringBuilder(" in (");
+
+    for (int v = 0; v < in.size(); v++) {
+      list.append(v == 0 ? "?" : ",?");
+    }
+
+    appendCondition(checkIdentifier(column) + list.append(')'));
+    shape.add(column);
+    shape.add(in.size());
+    values.addAll(in);
+    return this;
+  }
+
+  /**
+   * The column is null.
+   *
+   * @param column the column
+   * @return the criteria
+   */
+  public Criteria isNull(final String column) {
+    appendCondition(checkIdentifier(column) + " is null");
+    shape.add(column);
+    shape.add(" is null");
+    return this;
+  }
+
+  /**
+   * Order by the column, ascending, after any previous ordering.
+   *
+   * @param column the column
+   * @return the criteria
+   */
+  public Criteria orderBy(final String column) {
+    return order(column, " asc");
+  }
+
+  /**
+   * Order by the column, descending, after any previous ordering.
+   *
+   * @param column the column
+   * @return the criteria
+   */
+  public Criteria orderByDesc(final String column) {
+    return order(column, " desc");
+  }
+
+  /**
+   * Limit the number of rows.
+   *
+   * @param maxRows the maximum number of rows
+   * @return the criteria
+   */
+  public Criteria limit(final int maxRows) {
+    if (maxRows < 1) {
+      throw new IllegalArgumentException("limit must be at least 1");
+    }
+
+    this.limit = maxRows;
+    return this;
+  }
+
+  /**
+   * Add a condition of one parameter.
+   *
+   * @param column the column
+   * @param operator the operator and parameter
+   * @param value the value
+   * @return the criteria
+   */
+  private Criteria condition(final String column, final String operator,
+      final Object value) {
+    appendCondition(checkIdentifier(column) + operator);
+    shape.add(column);
+    shape.add(operator);
+    values.add(value);
+    return this;
+  }
+
+  /**
+   * Append a condition to the where clause.
+   *
+   * @param condition the condition
+   */
+  private void appendCondition(final String condition) {
+    where.append(where.length() == 0 ? "" : " and ").append(condition);
+  }
+
+  /**
+   * Add an ordering.
+   *
+   * @param column the column
+   * @param direction the direction
+   * @return the criteria
+   */
+  private Criteria order(final String column, final String direction) {
+    orderBy.append(orderBy.length() == 0 ? "" : ", ")
+        .append(checkIdentifier(column)).append(direction);
+    shape.add("order");
+    shape.add(column);
+    shape.add(direction);
+    return this;
+  }
+
+  /**
+   * Check the column is a plain identifier.
+   *
+   * @param column the column
+   * @return the column
+   */
+  static String checkIdentifier(final String column) {
+    if (null == column || !IDENTIFIER.matcher(column).matches()) {
+      throw new IllegalArgumentException("Invalid column name: " + column);
+    }
+
+    return column;
+  }
+
+  /**
+   * Gets the shape of the criteria, which determines its SQL.
+   *
+   * @return the shape
+   */
+  Object[] getShape() {
+    return shape.toArray();
+  }
+
+  /**
+   * Gets the key of the criteria results: its shape, parameter values and
+   * limit.
+   *
+   * @return the key
+   */
+  Object getKey() {
+    return Arrays.asList(new ArrayList<Object>(shape),
+        new ArrayList<Object>(values), limit);
+  }
+
+  /**
+   * Gets the where clause, including the where keyword, or an empty string if
+   * there are no conditions.
+   *
+   * @return the where clause
+   */
+  String getWhereClause() {
+    return where.length() == 0 ? "" : " where " + where;
+  }
+
+  /**
+   * Gets the order by clause, including the order by keywords, or an empty
+   * string if there is no ordering.
+   *
+   * @return the order by clause
+   */
+  String getOrderByClause() {
+    return orderBy.length() == 0 ? "" : " order by " + orderBy;
+  }
+
+  /**
+   * Gets the maximum number of rows.
+   *
+   * @return the maximum number of rows, or 0 for no limit
+   */
+  int getLimit() {
+    return limit;
+  }
+
+  /**
+   * Bind the parameter values to the statement.
+   *
+   * @param preparedStatement the prepared statement
+   * @param first the index of the first parameter
+   * @throws SQLException the SQL exception
+   */
+  void bind(final PreparedStatement preparedStatement, final int first)
+      throws SQLException {
+    for (int v = 0; v < values.size(); v++) {
+      preparedStatement.setObject(first + v, values.get(v));
+    }
+  }
+}
@@ -0,0 +1,373 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.repository.impl;
+
+import net.ljcomputing.exception.PersistenceException;
+import net.ljcomputing.model.Model;
+import net.ljcomputing.persistence.DataSourceTable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Second level cache of the models of a table, shared by every repository of
+ * the table once enabled with {@link #enable}. Reads are lock free; when the
+ * cache grows past its maximum size, one writer evicts the least recently
+ * read tenth of the entries while other threads carry on. Entries also expire
+ * after the time to live.
+ *
+ * <p>
+ * Repositories read through the cache in <code>readById</code> and
+ * <code>readByIds</code>, outside a unit of work, and invalidate the models
+ * they write. The cache holds copies of the models put in it, and a hit
+ * returns a new copy, so callers may modify the models they read.
+ * </p>
+ *
+ * @author James G. Willmore
+ *
+ * @param <T> the Model cached
+ */
+public final class EntityCache<T extends Model> extends CacheTier<T> {
+
+  /** The caches, keyed by table name. */
+  private static final ConcurrentMap<String, EntityCache<?>> CACHES =
+      new ConcurrentHashMap<String, EntityCache<?>>();
+
+  /** The fraction of the maximum size kept by an eviction. */
+  private static final double EVICT_TO = 0.9;
+
+  /** The model codec, copying the models. */
+  private final ModelCodec<T> codec;
+
+  /** The cached entries. */
+  private final ConcurrentMap<Integer, Entry<T>> entries;
+
+  /** The maximum number of entries. */
+  private final int maxSize;
+
+  /** The time to live, in nanoseconds. */
+  private final long ttlNanos;
+
+  /** The invalidation count, guarding puts racing an invalidation. */
+  private final AtomicLong invalidations = new AtomicLong();
+
+  /** The eviction lock, held by at most one evicting writer. */
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  /** The hits. */
+  private final LongAdder hits = new LongAdder();
+
+  /** The misses. */
+  private final LongAdder misses = new LongAdder();
+
+  /** The evictions. */
+  private final LongAdder evictions = new LongAdder();
+
+  /** The expirations. */
+  private final LongAdder expirations = new LongAdder();
+
+  /**
+   * Instantiates a new entity cache.
+   *
+   * @param modelClass the model class
+   * @param maxSize the maximum number of entries
+   * @param ttl the time to live
+   * @param unit the time to live unit
+   * @throws PersistenceException if the model class cannot be copied
+   */
+  EntityCache(final Class<T> modelClass, final int maxSize, final long ttl,
+      final TimeUnit unit) throws PersistenceException {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("maximum size must be at least 1");
+    }
+
+    if (ttl < 1) {
+      throw new IllegalArgumentException("time to live must be at least 1");
+    }
+
+    this.codec = new ModelCodec<T>(modelClass);
+    this.entries = new ConcurrentHashMap<Integer, Entry<T>>(
+        Math.min(maxSize, 1 << 16));
+    this.maxSize = maxSize;
+    this.ttlNanos = unit.toNanos(ttl);
+  }
+
+  /**
+   * Enable caching of the models of the table, replacing any existing cache of
+   * the table.
+   *
+   * @param table the table
+   * @param maxSize the maximum number of cached models
+   * @param ttl the time to live
+   * @param unit the time to live unit
+   * @return the cache
+   * @throws PersistenceException if the model of the table cannot be copied
+   */
+  public static EntityCache<?> enable(final DataSourceTable table,
+      final int maxSize, final long ttl, final TimeUnit unit)
+      throws PersistenceException {
+    final EntityCache<?> cache = create(
+        table.getModel().asSubclass(Model.class), maxSize, ttl, unit);
+
+    CACHES.put(table.getTableName(), cache);
+    return cache;
+  }
+
+  /**
+   * Creates an entity cache of the model class.
+   *
+   * @param <M> the Model cached
+   * @param modelClass the model class
+   * @param maxSize the maximum number of cached models
+   * @param ttl the time to live
+   * @param unit the time to live unit
+   * @return the cache
+   * @throws PersistenceException if the model class cannot be copied
+   */
+  private static <M extends Model> EntityCache<M> create(
+      final Class<M> modelClass, final int maxSize, final long ttl,
+      final TimeUnit unit) throws PersistenceException {
+    return new EntityCache<M>(modelClass, maxSize, ttl, unit);
+  }
+
+  /**
+   * Disable caching of the models of the table.
+   *
+   * @param table the table
+   */
+  public static void disable(final DataSourceTable table) {
+    CACHES.remove(table.getTableName());
+  }
+
+  /**
+   * Gets the cache of the table.
+   *
+   * @param table the table
+   * @return the cache, or null if caching is not enabled for the table
+   */
+  public static EntityCache<?> of(final DataSourceTable table) {
+    return CACHES.get(table.getTableName());
+  }
+
+  /**
+   * @see net.ljcomputing.repository.impl.CacheTier#stamp()
+   */
+  @Override
+  long stamp() {
+    return invalidations.get();
+  }
+
+  /**
+   * @see net.ljcomputing.repository.impl.CacheTier#get(java.lang.Integer)
+   */
+  @Override
+  T get(final Integer id) throws PersistenceException {
+    final Entry<T> entry = entries.get(id);
+
+    if (null == entry) {
+      misses.increment();
+      return null;
+    }
+
+    if (System.nanoTime() - entry.expiresAt > 0) {
+      if (entries.remove(id, entry)) {
+        expirations.increment();
+      }
+
+      misses.increment();
+      return null;
+    }
+
+    entry.accessed = System.nanoTime();
+    hits.increment();
+    return codec.copy(entry.model);
+  }
+
+  /**
+   * @see net.ljcomputing.repository.impl.CacheTier#put(net.ljcomputing.model.Model, long)
+   */
+  @Override
+  void put(final T model, final long stamp) throws PersistenceException {
+    if (stamp != invalidations.get()) {
+      return;
+    }
+
+    entries.put(model.getId(), new Entry<T>(codec.copy(model),
+        System.nanoTime() + ttlNanos, System.nanoTime()));
+
+    if (stamp != invalidations.get()) {
+      entries.remove(model.getId());
+    }
+
+    if (entries.size() > maxSize) {
+      evict();
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.repository.impl.CacheTier#invalidate(java.lang.Integer)
+   */
+  @Override
+  void invalidate(final Integer id) {
+    invalidations.incrementAndGet();
+    entries.remove(id);
+  }
+
+  /**
+   * Invalidate every cached model.
+   */
+  public void clear() {
+    invalidations.incrementAndGet();
+    entries.clear();
+  }
+
+  /**
+   * Evict the least recently read entries down to nine tenths of the maximum
+   * size, unless another thread is already evicting.
+   */
+  private void evict() {
+    if (!evictionLock.tryLock()) {
+      return;
+    }
+
+    try {
+      final int excess = entries.size() - (int) (maxSize * EVICT_TO);
+
+      if (excess <= 0) {
+        return;
+      }
+
+      final List<Map.Entry<Integer, Entry<T>>> snapshot =
+          new ArrayList<Map.Entry<Integer, Entry<T>>>(entries.entrySet());
+
+      snapshot.sort(Comparator.comparingLong(e -> e.getValue().accessed));
+
+      for (int e = 0; e < excess && e < snapshot.size(); e++) {
+        if (entries.remove(snapshot.get(e).getKey(),
+            snapshot.get(e).getValue())) {
+          evictions.increment();
+        }
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Gets the number of cached models.
+   *
+   * @return the size
+   */
+  public int getSize() {
+    return entries.size();
+  }
+
+  /**
+   * Gets the maximum number of cached models.
+   *
+   * @return the maximum size
+   */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Gets the hits.
+   *
+   * @return the hits
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * Gets the misses.
+   *
+   * @return the misses
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * Gets the hit ratio.
+   *
+   * @return the hit ratio, between 0 and 1
+   */
+  public double getHitRatio() {
+    final long hitCount = hits.sum();
+    final long total = hitCount + misses.sum();
+
+    return total == 0 ? 0.0 : (double) hitCount / total;
+  }
+
+  /**
+   * Gets the number of models evicted to keep within the maximum size.
+   *
+   * @return the evictions
+   */
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * Gets the number of models expired after their time to live.
+   *
+   * @return the expirations
+   */
+  public long getExpirations() {
+    return expirations.sum();
+  }
+
+  /**
+   * A cached model.
+   *
+   * @param <T> the Model cached
+   */
+  private static final class Entry<T> {
+
+    /** The model. */
+    private final T model;
+
+    /** The expiry time, in nanoseconds. */
+    private final long expiresAt;
+
+    /** The time of the last read, in nanoseconds. */
+    private volatile long accessed;
+
+    /**
+     * Instantiates a new entry.
+     *
+     * @param model the model
+     * @param expiresAt the expiry time
+     * @param accessed the time of the last read
+     */
+    private Entry(final T model, final long expiresAt, final long accessed) {
+      this.model = model;
+      this.expiresAt = expiresAt;
+      this.accessed = accessed;
+    }
+  }
+}
@@ -0,0 +1,235 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.repository.impl;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash index of int keys to non negative long values, held in
+ * two primitive arrays with linear probing, so an index of millions of keys
+ * allocates no entry objects. Removals shift the following entries back
+ * rather than leaving tombstones. The index is not thread safe.
+ *
+ * @author James G. Willmore
+ */
+final class IntLongIndex {
+
+  /** The value of a free slot, and the value returned for absent keys. */
+  static final long NO_VALUE = -1L;
+
+  /** The maximum load factor. */
+  private static final double LOAD_FACTOR = 0.75;
+
+  /** The keys. */
+  private int[] keys;
+
+  /** The values, or NO_VALUE for free slots. */
+  private long[] values;
+
+  /** The slot mask. */
+  private int mask;
+
+  /** The number of keys. */
+  private int size;
+
+  /** The number of keys at which the index grows. */
+  private int threshold;
+
+  /**
+   * Instantiates a new index.
+   *
+   * @param expectedSize the expected number of keys
+   */
+  IntLongIndex(final int expectedSize) {
+    allocate(Integer.highestOneBit(
+        Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1);
+  }
+
+  /**
+   * Allocate the slots.
+   *
+   * @param capacity the number of slots, a power of two
+   */
+  private void allocate(final int capacity) {
+    keys = new int[capacity];
+    values = new long[capacity];
+    Arrays.fill(values, NO_VALUE);
+    mask = capacity - 1;
+    threshold = (int) (capacity * LOAD_FACTOR);
+  }
+
+  /**
+   * Gets the home slot of the key.
+   *
+   * @param key the key
+   * @return the slot
+   */
+  private int slot(final int key) {
+    final int hash = key * 0x9E3779B9;
+
+    return (hash ^ hash >>> 16) & mask;
+  }
+
+  /**
+   * Gets the value of the key.
+   *
+   * @param key the key
+   * @return the value, or NO_VALUE if absent
+   */
+  long get(final int key) {
+    for (int slot = slot(key);; slot = slot + 1 & mask) {
+      if (NO_VALUE == values[slot] || keys[slot] == key) {
+        return values[slot];
+      }
+    }
+  }
+
+  /**
+   * Put the value of the key.
+   *
+   * @param key the key
+   * @param value the value, not negative
+   */
+  void put(final int key, final long value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("value must not be negative");
+    }
+
+    int slot = slot(key);
+
+    while (NO_VALUE != values[slot] && keys[slot] != key) {
+      slot = slot + 1 & mask;
+    }
+
+    if (NO_VALUE == values[slot]) {
+      if (size >= threshold) {
+        grow();
+        put(key, value);
+        return;
+      }
+
+      size++;
+    }
+
+    keys[slot] = key;
+    values[slot] = value;
+  }
+
+  /**
+   * Remove the key.
+   *
+   * @param key the key
+   * @return the removed value, or NO_VALUE if absent
+   */
+  long remove(final int key) {
+    int slot = slot(key);
+
+    while (NO_VALUE != values[slot]) {
+      if (keys[slot] == key) {
+        final long value = values[slot];
+        removeSlot(slot);
+        return value;
+      }
+
+      slot = slot + 1 & mask;
+    }
+
+    return NO_VALUE;
+  }
+
+  /**
+   * Remove the key, if it has the given value.
+   *
+   * @param key the key
+   * @param value the value
+   * @return true, if removed
+   */
+  boolean remove(final int key, final long value) {
+    int slot = slot(key);
+
+    while (NO_VALUE != values[slot]) {
+      if (keys[slot] == key) {
+        if (values[slot] != value) {
+          return false;
+        }
+
+        removeSlot(slot);
+        return true;
+      }
+
+      slot = slot + 1 & mask;
+    }
+
+    return false;
+  }
+
+  /**
+   * Free the slot, shifting back the following entries of the probe run that
+   * would no longer be found past the gap.
+   *
+   * @param slot the slot
+   */
+  private void removeSlot(final int slot) {
+    int gap = slot;
+
+    for (int next = gap + 1 & mask; NO_VALUE != values[next];
+        next = next + 1 & mask) {
+      if ((next - slot(keys[next]) & mask) >= (next - gap & mask)) {
+        keys[gap] = keys[next];
+        values[gap] = values[next];
+        gap = next;
+      }
+    }
+
+    values[gap] = NO_VALUE;
+    size--;
+  }
+
+  /**
+   * Double the number of slots.
+   */
+  private void grow() {
+    final int[] oldKeys = keys;
+    final long[] oldValues = values;
+
+    allocate(keys.length << 1);
+    size = 0;
+
+    for (int slot = 0; slot < oldKeys.length; slot++) {
+      if (NO_VALUE != oldValues[slot]) {
+        put(oldKeys[slot], oldValues[slot]);
+      }
+    }
+  }
+
+  /**
+   * Gets the number of keys.
+   *
+   * @return the size
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Remove every key.
+   */
+  void clear() {
+    Arrays.fill(values, NO_VALUE);
+    size = 0;
+  }
+}
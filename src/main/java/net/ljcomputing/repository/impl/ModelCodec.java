@@ -0,0 +1,598 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.repository.impl;
+
+import net.ljcomputing.exception.PersistenceException;
+import net.ljcomputing.model.Model;
+import net.ljcomputing.persistence.FieldAccessor;
+import net.ljcomputing.persistence.impl.AccessorStrategy;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary codec of the persistent members of a model class, used to hold models
+ * outside the heap. Members are written in a fixed order, resolved once per
+ * class: primitive members as their value, other members as a null flag
+ * followed by their value. The codec also copies models on the heap, member by
+ * member, copying the values of mutable types.
+ *
+ * @author James G. Willmore
+ *
+ * @param <T> the Model encoded
+ */
+final class ModelCodec<T extends Model> {
+
+  /** The model class. */
+  private final Class<T> modelClass;
+
+  /** The members, in encoding order. */
+  private final Member[] members;
+
+  /**
+   * Instantiates a new model codec.
+   *
+   * @param modelClass the model class
+   * @throws PersistenceException if a member is of a type that cannot be
+   *           encoded
+   */
+  ModelCodec(final Class<T> modelClass) throws PersistenceException {
+    final Map<String, Field> fields = new LinkedHashMap<String, Field>();
+    final List<Class<?>> hierarchy = new ArrayList<Class<?>>();
+
+    for (Class<?> type = modelClass; null != type
+        && Object.class != type; type = type.getSuperclass()) {
+      hierarchy.add(0, type);
+    }
+
+    for (final Class<?> type : hierarchy) {
+      for (final Field field : type.getDeclaredFields()) {
+        final int modifiers = field.getModifiers();
+
+        if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)
+            && !field.isSynthetic()) {
+          fields.putIfAbsent(field.getName(), field);
+        }
+      }
+    }
+
+    final List<Member> resolved = new ArrayList<Member>(fields.size());
+
+    for (final Field field : fields.values()) {
+      final ValueType valueType = ValueType.forType(field.getType());
+
+      if (null == valueType) {
+        throw new PersistenceException("Cannot encode " + field
+            + " of type " + field.getType().getName());
+      }
+
+      resolved.add(new Member(AccessorStrategy.getDefault()
+          .getAccessor(modelClass, field.getName()), valueType,
+          field.getType().isPrimitive()));
+    }
+
+    this.modelClass = modelClass;
+    this.members = resolved.toArray(new Member[resolved.size()]);
+  }
+
+  /**
+   * Encode the model into the buffer.
+   *
+   * @param model the model
+   * @param buffer the buffer
+   * @throws PersistenceException the persistence exception
+   * @throws java.nio.BufferOverflowException if the buffer is too small
+   */
+  void encode(final T model, final ByteBuffer buffer)
+      throws PersistenceException {
+    for (final Member member : members) {
+      if (member.primitive) {
+        member.type.writePrimitive(buffer, member.accessor, model);
+      } else {
+        final Object value = member.accessor.get(model);
+
+        buffer.put((byte) (null == value ? 0 : 1));
+
+        if (null != value) {
+          member.type.write(buffer, value);
+        }
+      }
+    }
+  }
+
+  /**
+   * Decode a new model from the buffer.
+   *
+   * @param buffer the buffer
+   * @return the model
+   * @throws PersistenceException the persistence exception
+   */
+  T decode(final ByteBuffer buffer) throws PersistenceException {
+    final T model = newModel();
+
+    for (final Member member : members) {
+      if (member.primitive) {
+        member.type.readPrimitive(buffer, member.accessor, model);
+      } else if (0 != buffer.get()) {
+        member.accessor.set(model, member.type.read(buffer));
+      }
+    }
+
+    return model;
+  }
+
+  /**
+   * Copy the model: a new model with the values of its members, copying the
+   * values of mutable types, so neither model shares state with the other.
+   *
+   * @param model the model
+   * @return the copy
+   * @throws PersistenceException the persistence exception
+   */
+  T copy(final T model) throws PersistenceException {
+    final T copy = newModel();
+
+    for (final Member member : members) {
+      final Object value = member.accessor.get(model);
+
+      if (null != value) {
+        member.accessor.set(copy, member.type.copy(value));
+      }
+    }
+
+    return copy;
+  }
+
+  /**
+   * Instantiate a new model.
+   *
+   * @return the model
+   * @throws PersistenceException the persistence exception
+   */
+  private T newModel() throws PersistenceException {
+    try {
+      return modelClass.getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException exception) {
+      throw new PersistenceException(exception);
+    }
+  }
+
+  /**
+   * An encoded member.
+   */
+  private static final class Member {
+
+    /** The accessor. */
+    private final FieldAccessor accessor;
+
+    /** The value type. */
+    private final ValueType type;
+
+    /** Whether the member is primitive, and so never null. */
+    private final boolean primitive;
+
+    /**
+     * Instantiates a new member.
+     *
+     * @param accessor the accessor
+     * @param type the value type
+     * @param primitive whether the member is primitive
+     */
+    private Member(final FieldAccessor accessor, final ValueType type,
+        final boolean primitive) {
+      this.accessor = accessor;
+      this.type = type;
+      this.primitive = primitive;
+    }
+  }
+
+  /**
+   * Encoded value types. Primitive members are read and written boxed unless
+   * the type reads and writes them through the primitive accessors.
+   */
+  private enum ValueType {
+
+    /** int and Integer. */
+    INT(int.class, Integer.class) {
+      @Override
+      void write(final ByteBuffer buffer, final Object value) {
+        buffer.putInt((Integer) value);
+      }
+
+      @Override
+      Object read(final ByteBuffer buffer) {
+        return buffer.getInt();
+      }
+
+      @Override
+      void writePrimitive(final ByteBuffer buffer,
+          final FieldAccessor accessor, final Object model)
+          throws PersistenceException {
+        buffer.putInt(accessor.getInt(model));
+      }
+
+      @Override
+      void readPrimitive(final ByteBuffer buffer, final FieldAccessor accessor,
+          final Object model) throws PersistenceException {
+        accessor.setInt(model, buffer.getInt());
+      }
+    },
+
+    /** long and Long. */
+    LONG(long.class, Long.class) {
+      @Override
+      void write(final ByteBuffer buffer, final Object value) {
+        buffer.putLong((Long) value);
+      }
+
+      @Override
+      Object read(final ByteBuffer buffer) {
+        return buffer.getLong();
+      }
+
+      @Override
+      void writePrimitive(final ByteBuffer buffer,
+          final FieldAccessor accessor, final Object model)
+          throws PersistenceException {
+        buffer.putLong(accessor.getLong(model));
+      }
+
+      @Override
+      void readPrimitive(final ByteBuffer buffer, final FieldAccessor accessor,
+          final Object model) throws PersistenceException {
+        accessor.setLong(model, buffer.getLong());
+      }
+    },
+
+    /** double and Double. */
+    DOUBLE(double.class, Double.class) {
+      @Override
+      void write(final ByteBuffer buffer, final Object value) {
+        buffer.putDouble((Double) value);
+      }
+
+      @Override
+      Object read(final ByteBuffer buffer) {
+        return buffer.getDouble();
+      }
+
+      @Override
+      void writePrimitive(final ByteBuffer buffer,
+          final FieldAccessor accessor, final Object model)
+          throws PersistenceException {
+        buffer.putDouble(accessor.getDouble(model));
+      }
+
+      @Override
+      void readPrimitive(final ByteBuffer buffer, final FieldAccessor accessor,
+          final Object model) throws PersistenceException {
+        accessor.setDouble(model, buffer.getDouble());
+      }
+    },
+
+    /** float and Float. */
+    FLOAT(float.class, Float.class) {
+      @Override
+      void write(final ByteBuffer buffer, final Object value) {
+        buffer.putFloat((Float) value);
+      }
+
+      @Override
+      Object read(final ByteBuffer buffer) {
+        return buffer.getFloat();
+      }
+    },
+
+    /** short and Short. */
+    SHORT(short.class, Short.class) {
+      @Override
+      void write(final ByteBuffer buffer, final Object value) {
+        buffer.putShort((Short) value);
+      }
+
+      @Override
+      Object read(final ByteBuffer buffer) {
+        return buffer.getShort();
+      }
+    },
+
+    /** byte and Byte. */
+    BYTE(byte.class, Byte.class) {
+      @Override
+      void write(final ByteBuffer buffer, final Object value) {
+        buffer.put((Byte) value);
+      }
+
+      @Override
+      Object read(final ByteBuffer buffer) {
+        return buffer.get();
+      }
+    },
+
+    /** boolean and Boolean. */
+    BOOLEAN(boolean.class, Boolean.class) {
+      @Override
+      void write(final ByteBuffer buffer, final Object value) {
+        buffer.put((byte) ((Boolean) value ? 1 : 0));
+      }
+
+      @Override
+      Object read(final ByteBuffer buffer) {
+        return 0 != buffer.get();
+      }
+    },
+
+    /** char and Character. */
+    CHAR(char.class, Character.class) {
+      @Override
+      void write(final ByteBuffer buffer, final Object value) {
+        buffer.putChar((Character) value);
+      }
+
+      @Override
+      Object read(final ByteBuffer buffer) {
+        return buffer.getChar();
+      }
+    },
+
+    /** String, as UTF-8. */
+    STRING(String.class) {
+      @Override
+      void write(final ByteBuffer buffer, final Object value) {
+        writeBytes(buffer, ((String) value).getBytes(StandardCharsets.UTF_8));
+      }
+
+      @Override
+      Object read(final ByteBuffer buffer) {
+        return new String(readBytes(buffer), StandardCharsets.UTF_8);
+      }
+    },
+
+    /** byte arrays. */
+    BYTES(byte[].class) {
+      @Override
+      void write(final ByteBuffer buffer, final Object value) {
+        writeBytes(buffer, (byte[]) value);
+      }
+
+      @Override
+      Object read(final ByteBuffer buffer) {
+        return readBytes(buffer);
+      }
+
+      @Override
+      Object copy(final Object value) {
+        return ((byte[]) value).clone();
+      }
+    },
+
+    /** BigDecimal, as its scale and unscaled value. */
+    BIG_DECIMAL(BigDecimal.class) {
+      @Override
+      void write(final ByteBuffer buffer, final Object value) {
+        buffer.putInt(((BigDecimal) value).scale());
+        writeBytes(buffer, ((BigDecimal) value).unscaledValue().toByteArray());
+      }
+
+      @Override
+      Object read(final ByteBuffer buffer) {
+        final int scale = buffer.getInt();
+
+        return new BigDecimal(new BigInteger(readBytes(buffer)), scale);
+      }
+    },
+
+    /** java.util.Date, as its time. */
+    DATE(Date.class) {
+      @Override
+      void write(final ByteBuffer buffer, final Object value) {
+        buffer.putLong(((Date) value).getTime());
+      }
+
+      @Override
+      Object read(final ByteBuffer buffer) {
+        return new Date(buffer.getLong());
+      }
+
+      @Override
+      Object copy(final Object value) {
+        return ((Date) value).clone();
+      }
+    },
+
+    /** java.sql.Date, as its time. */
+    SQL_DATE(java.sql.Date.class) {
+      @Override
+      void write(final ByteBuffer buffer, final Object value) {
+        buffer.putLong(((Date) value).getTime());
+      }
+
+      @Override
+      Object read(final ByteBuffer buffer) {
+        return new java.sql.Date(buffer.getLong());
+      }
+
+      @Override
+      Object copy(final Object value) {
+        return ((Date) value).clone();
+      }
+    },
+
+    /** java.sql.Time, as its time. */
+    TIME(Time.class) {
+      @Override
+      void write(final ByteBuffer buffer, final Object value) {
+        buffer.putLong(((Date) value).getTime());
+      }
+
+      @Override
+      Object read(final ByteBuffer buffer) {
+        return new Time(buffer.getLong());
+      }
+
+      @Override
+      Object copy(final Object value) {
+        return ((Date) value).clone();
+      }
+    },
+
+    /** java.sql.Timestamp, as its time and nanoseconds. */
+    TIMESTAMP(Timestamp.class) {
+      @Override
+      void write(final ByteBuffer buffer, final Object value) {
+        buffer.putLong(((Timestamp) value).getTime());
+        buffer.putInt(((Timestamp) value).getNanos());
+      }
+
+      @Override
+      Object read(final ByteBuffer buffer) {
+        final Timestamp timestamp = new Timestamp(buffer.getLong());
+
+        timestamp.setNanos(buffer.getInt());
+        return timestamp;
+      }
+
+      @Override
+      Object copy(final Object value) {
+        return ((Date) value).clone();
+      }
+    };
+
+    /** The value types, keyed by member type. */
+    private static final Map<Class<?>, ValueType> TYPES =
+        new HashMap<Class<?>, ValueType>();
+
+    static {
+      for (final ValueType valueType : values()) {
+        for (final Class<?> type : valueType.types) {
+          TYPES.put(type, valueType);
+        }
+      }
+    }
+
+    /** The member types. */
+    private final Class<?>[] types;
+
+    /**
+     * Instantiates a new value type.
+     *
+     * @param types the member types
+     */
+    ValueType(final Class<?>... types) {
+      this.types = types;
+    }
+
+    /**
+     * Gets the value type of the member type.
+     *
+     * @param type the member type
+     * @return the value type, or null if the type cannot be encoded
+     */
+    static ValueType forType(final Class<?> type) {
+      return TYPES.get(type);
+    }
+
+    /**
+     * Write a non null value.
+     *
+     * @param buffer the buffer
+     * @param value the value
+     */
+    abstract void write(ByteBuffer buffer, Object value);
+
+    /**
+     * Read a non null value.
+     *
+     * @param buffer the buffer
+     * @return the value
+     */
+    abstract Object read(ByteBuffer buffer);
+
+    /**
+     * Copy a non null value; values of immutable types are returned as is.
+     *
+     * @param value the value
+     * @return the copy
+     */
+    Object copy(final Object value) {
+      return value;
+    }
+
+    /**
+     * Write the value of a primitive member.
+     *
+     * @param buffer the buffer
+     * @param accessor the member accessor
+     * @param model the model
+     * @throws PersistenceException the persistence exception
+     */
+    void writePrimitive(final ByteBuffer buffer, final FieldAccessor accessor,
+        final Object model) throws PersistenceException {
+      write(buffer, accessor.get(model));
+    }
+
+    /**
+     * Read the value of a primitive member.
+     *
+     * @param buffer the buffer
+     * @param accessor the member accessor
+     * @param model the model
+     * @throws PersistenceException the persistence exception
+     */
+    void readPrimitive(final ByteBuffer buffer, final FieldAccessor accessor,
+        final Object model) throws PersistenceException {
+      accessor.set(model, read(buffer));
+    }
+
+    /**
+     * Write a length prefixed byte array.
+     *
+     * @param buffer the buffer
+     * @param bytes the bytes
+     */
+    private static void writeBytes(final ByteBuffer buffer,
+        final byte[] bytes) {
+      buffer.putInt(bytes.length);
+      buffer.put(bytes);
+    }
+
+    /**
+     * Read a length prefixed byte array.
+     *
+     * @param buffer the buffer
+     * @return the bytes
+     */
+    private static byte[] readBytes(final ByteBuffer buffer) {
+      final byte[] bytes = new byte[buffer.getInt()];
+
+      buffer.get(bytes);
+      return bytes;
+    }
+  }
+}
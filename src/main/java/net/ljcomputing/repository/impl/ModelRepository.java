@@ -19,7 +19,12 @@ package net.ljcomputing.repository.impl;
 import net.ljcomputing.exception.PersistenceException;
 import net.ljcomputing.model.Model;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Model repository interface.
@@ -38,6 +43,38 @@ public interface ModelRepository<T extends Model> {
    */
   void create(T model, String... columns) throws PersistenceException;
 
+  /**
+   * Creates the given models in a single transaction, assigning each its
+   * generated id.
+   *
+   * @param models the models
+   * @param columns the columns
+   * @throws PersistenceException the persistence exception
+   */
+  void createAll(Collection<T> models, String... columns)
+      throws PersistenceException;
+
+  /**
+   * Create the model if it has no id, or else update it, inserting it if it
+   * is not found.
+   *
+   * @param model the model
+   * @param columns the columns
+   * @throws PersistenceException the persistence exception
+   */
+  void upsert(T model, String... columns) throws PersistenceException;
+
+  /**
+   * Create or update the given models, as {@link #upsert} does, in a single
+   * transaction.
+   *
+   * @param models the models
+   * @param columns the columns
+   * @throws PersistenceException the persistence exception
+   */
+  void upsertAll(Collection<T> models, String... columns)
+      throws PersistenceException;
+
   /**
    * Update the given model.
    *
@@ -47,6 +84,17 @@ public interface ModelRepository<T extends Model> {
    */
   void update(T model, String... columns) throws PersistenceException;
 
+  /**
+   * Update the given models in a single transaction.
+   *
+   * @param models the models
+   * @param columns the columns
+   * @return the update count of each model, in order
+   * @throws PersistenceException the persistence exception
+   */
+  int[] updateAll(Collection<T> models, String... columns)
+      throws PersistenceException;
+
   /**
    * Delete a model by id.
    *
@@ -63,6 +111,15 @@ public interface ModelRepository<T extends Model> {
    */
   void delete(T model) throws PersistenceException;
 
+  /**
+   * Delete the models with the given ids in a single transaction.
+   *
+   * @param ids the ids
+   * @return the number of models deleted
+   * @throws PersistenceException the persistence exception
+   */
+  int deleteAll(Collection<Integer> ids) throws PersistenceException;
+
   /**
    * Read the model by id.
    *
@@ -72,6 +129,26 @@ public interface ModelRepository<T extends Model> {
    */
   T readById(Integer id) throws PersistenceException;
 
+  /**
+   * Read the model by id, loading only the id and the given columns.
+   *
+   * @param id the id
+   * @param columns the columns to load; all columns if none
+   * @return the t
+   * @throws PersistenceException the persistence exception
+   */
+  T readById(Integer id, String... columns) throws PersistenceException;
+
+  /**
+   * Read the models with the given ids; ids not found are absent from the map.
+   *
+   * @param ids the ids
+   * @return the models, keyed by id
+   * @throws PersistenceException the persistence exception
+   */
+  Map<Integer, T> readByIds(Collection<Integer> ids)
+      throws PersistenceException;
+
   /**
    * Read all the models.
    *
@@ -79,4 +156,117 @@ public interface ModelRepository<T extends Model> {
    * @throws PersistenceException the persistence exception
    */
   List<T> readAll() throws PersistenceException;
+
+  /**
+   * Read all the models, loading only the id and the given columns.
+   *
+   * @param columns the columns to load; all columns if none
+   * @return the list
+   * @throws PersistenceException the persistence exception
+   */
+  List<T> readAll(String... columns) throws PersistenceException;
+
+  /**
+   * Read the models matching the criteria.
+   *
+   * @param criteria the criteria
+   * @return the list
+   * @throws PersistenceException the persistence exception
+   */
+  List<T> find(Criteria criteria) throws PersistenceException;
+
+  /**
+   * Count all the models.
+   *
+   * @return the count
+   * @throws PersistenceException the persistence exception
+   */
+  long count() throws PersistenceException;
+
+  /**
+   * Count the models matching the criteria; any ordering and limit are ignored.
+   *
+   * @param criteria the criteria
+   * @return the count
+   * @throws PersistenceException the persistence exception
+   */
+  long count(Criteria criteria) throws PersistenceException;
+
+  /**
+   * Checks a model with the given id exists.
+   *
+   * @param id the id
+   * @return true, if it exists
+   * @throws PersistenceException the persistence exception
+   */
+  boolean existsById(Integer id) throws PersistenceException;
+
+  /**
+   * Gets the lowest value of an integral column.
+   *
+   * @param column the column
+   * @return the lowest value, or empty if there are no non null values
+   * @throws PersistenceException the persistence exception
+   */
+  OptionalLong min(String column) throws PersistenceException;
+
+  /**
+   * Gets the highest value of an integral column.
+   *
+   * @param column the column
+   * @return the highest value, or empty if there are no non null values
+   * @throws PersistenceException the persistence exception
+   */
+  OptionalLong max(String column) throws PersistenceException;
+
+  /**
+   * Gets the sum of an integral column.
+   *
+   * @param column the column
+   * @return the sum, or 0 if there are no non null values
+   * @throws PersistenceException the persistence exception
+   */
+  long sum(String column) throws PersistenceException;
+
+  /**
+   * Read a page of models in id order.
+   *
+   * @param afterId the id to read after, or null for the first page
+   * @param limit the maximum number of models
+   * @return the page
+   * @throws PersistenceException the persistence exception
+   */
+  Page<T> readPage(Integer afterId, int limit) throws PersistenceException;
+
+  /**
+   * Scan all the models in parallel, passing each to the consumer from one of
+   * the scanning threads.
+   *
+   * @param parallelism the number of threads and connections to scan with
+   * @param consumer the thread safe consumer of the models
+   * @return the number of models scanned
+   * @throws PersistenceException the persistence exception
+   */
+  long scanParallel(int parallelism, Consumer<? super T> consumer)
+      throws PersistenceException;
+
+  /**
+   * Stream all the models, reading them from an open cursor. The stream must
+   * be closed, unless it is consumed to the end, to release the cursor.
+   *
+   * @return the stream of models
+   * @throws PersistenceException the persistence exception
+   */
+  Stream<T> stream() throws PersistenceException;
+
+  /**
+   * Stream all the models, reading them from an open cursor with the given
+   * fetch size. The stream must be closed, unless it is consumed to the end,
+   * to release the cursor.
+   *
+   * @param fetchSize the fetch size
+   * @return the stream of models
+   * @throws PersistenceException the persistence exception
+   */
+  Stream<T> stream(int fetchSize) throws PersistenceException;
 }
@@ -0,0 +1,451 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.repository.impl;
+
+import net.ljcomputing.exception.PersistenceException;
+import net.ljcomputing.model.Model;
+import net.ljcomputing.persistence.DataSourceTable;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Cache of the encoded models of a table held outside the heap, so a cache of
+ * millions of models adds neither objects for the garbage collector to trace
+ * nor to its pause times. Once enabled with {@link #enable}, it is shared by
+ * every repository of the table, after the {@link EntityCache} if both are
+ * enabled.
+ *
+ * <p>
+ * Models are encoded into an arena of direct buffer segments, written in turn
+ * as a ring, and located by id through a primitive open addressing index.
+ * When the ring wraps around, the oldest segment is reused and the models it
+ * held are evicted. A hit decodes a new model, which the caller may modify.
+ * Models are only encoded on a cache miss, and decoded on a hit; updating a
+ * cached model appends its new encoding and leaves the old one to be reclaimed
+ * with its segment.
+ * </p>
+ *
+ * @author James G. Willmore
+ *
+ * @param <T> the Model cached
+ */
+public final class OffHeapEntityCache<T extends Model> extends CacheTier<T> {
+
+  /** The caches, keyed by table name. */
+  private static final ConcurrentMap<String, OffHeapEntityCache<?>> CACHES =
+      new ConcurrentHashMap<String, OffHeapEntityCache<?>>();
+
+  /** The default number of segments. */
+  public static final int DEFAULT_SEGMENTS = 16;
+
+  /** The record header size: the id and the encoded length. */
+  private static final int HEADER_SIZE = 8;
+
+  /** The initial size of the encoding buffers. */
+  private static final int INITIAL_ENCODING_SIZE = 256;
+
+  /** The model codec. */
+  private final ModelCodec<T> codec;
+
+  /** The segments. */
+  private final ByteBuffer[] segments;
+
+  /** The segment size, in bytes. */
+  private final int segmentSize;
+
+  /** The end offset of the records written to each segment. */
+  private final int[] segmentEnds;
+
+  /** The index of ids to record addresses, guarded by the lock. */
+  private final IntLongIndex index;
+
+  /** The lock: reads share it, writes and invalidations are exclusive. */
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /** The encoding buffer of each thread. */
+  private final ThreadLocal<ByteBuffer> encodingBuffer =
+      ThreadLocal.withInitial(() -> ByteBuffer.allocate(INITIAL_ENCODING_SIZE));
+
+  /** The number of segments written, whose last is being written. */
+  private long epoch;
+
+  /** The write offset of the current segment. */
+  private int writeOffset;
+
+  /** The invalidation count, guarding puts racing an invalidation. */
+  private long invalidations;
+
+  /** The hits. */
+  private final LongAdder hits = new LongAdder();
+
+  /** The misses. */
+  private final LongAdder misses = new LongAdder();
+
+  /** The evictions. */
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Instantiates a new off heap entity cache.
+   *
+   * @param modelClass the model class
+   * @param capacity the capacity, in bytes
+   * @param segmentCount the number of segments
+   * @throws PersistenceException if the model class cannot be encoded
+   */
+  OffHeapEntityCache(final Class<T> modelClass, final long capacity,
+      final int segmentCount) throws PersistenceException {
+    if (segmentCount < 2) {
+      throw new IllegalArgumentException("segments must be at least 2");
+    }
+
+    if (capacity / segmentCount < INITIAL_ENCODING_SIZE
+        || capacity / segmentCount > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("capacity must be between "
+          + (long) INITIAL_ENCODING_SIZE * segmentCount + " and "
+          + (long) Integer.MAX_VALUE * segmentCount + " bytes");
+    }
+
+    this.codec = new ModelCodec<T>(modelClass);
+    this.segmentSize = (int) (capacity / segmentCount);
+    this.segments = new ByteBuffer[segmentCount];
+    this.segmentEnds = new int[segmentCount];
+    this.index = new IntLongIndex(1024);
+
+    for (int s = 0; s < segmentCount; s++) {
+      segments[s] = ByteBuffer.allocateDirect(segmentSize);
+    }
+  }
+
+  /**
+   * Enable off heap caching of the models of the table, replacing any existing
+   * off heap cache of the table.
+   *
+   * @param table the table
+   * @param capacity the capacity, in bytes
+   * @return the cache
+   * @throws PersistenceException if the model of the table cannot be encoded
+   */
+  public static OffHeapEntityCache<?> enable(final DataSourceTable table,
+      final long capacity) throws PersistenceException {
+    return enable(table, capacity, DEFAULT_SEGMENTS);
+  }
+
+  /**
+   * Enable off heap caching of the models of the table, replacing any existing
+   * off heap cache of the table.
+   *
+   * @param table the table
+   * @param capacity the capacity, in bytes
+   * @param segmentCount the number of segments; each eviction reclaims one
+   * @return the cache
+   * @throws PersistenceException if the model of the table cannot be encoded
+   */
+  public static OffHeapEntityCache<?> enable(final DataSourceTable table,
+      final long capacity, final int segmentCount)
+      throws PersistenceException {
+    final OffHeapEntityCache<?> cache = create(
+        table.getModel().asSubclass(Model.class), capacity, segmentCount);
+
+    CACHES.put(table.getTableName(), cache);
+    return cache;
+  }
+
+  /**
+   * Creates an off heap entity cache of the model class.
+   *
+   * @param <M> the Model cached
+   * @param modelClass the model class
+   * @param capacity the capacity, in bytes
+   * @param segmentCount the number of segments
+   * @return the cache
+   * @throws PersistenceException if the model class cannot be encoded
+   */
+  private static <M extends Model> OffHeapEntityCache<M> create(
+      final Class<M> modelClass, final long capacity, final int segmentCount)
+      throws PersistenceException {
+    return new OffHeapEntityCache<M>(modelClass, capacity, segmentCount);
+  }
+
+  /**
+   * Disable off heap caching of the models of the table. The memory of the
+   * cache is released once it is garbage collected.
+   *
+   * @param table the table
+   */
+  public static void disable(final DataSourceTable table) {
+    CACHES.remove(table.getTableName());
+  }
+
+  /**
+   * Gets the off heap cache of the table.
+   *
+   * @param table the table
+   * @return the cache, or null if off heap caching is not enabled for the
+   *         table
+   */
+  public static OffHeapEntityCache<?> of(final DataSourceTable table) {
+    return CACHES.get(table.getTableName());
+  }
+
+  /**
+   * @see net.ljcomputing.repository.impl.CacheTier#stamp()
+   */
+  @Override
+  long stamp() {
+    lock.readLock().lock();
+
+    try {
+      return invalidations;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @see net.ljcomputing.repository.impl.CacheTier#get(java.lang.Integer)
+   */
+  @Override
+  T get(final Integer id) throws PersistenceException {
+    ByteBuffer buffer = encodingBuffer.get();
+
+    lock.readLock().lock();
+
+    try {
+      final long address = index.get(id);
+
+      if (IntLongIndex.NO_VALUE == address) {
+        misses.increment();
+        return null;
+      }
+
+      final ByteBuffer record = segments[(int) ((address >>> 32)
+          % segments.length)].duplicate();
+
+      record.position((int) address);
+
+      final int length = record.getInt(record.position() + 4);
+
+      if (buffer.capacity() < length) {
+        buffer = ByteBuffer.allocate(length);
+        encodingBuffer.set(buffer);
+      }
+
+      buffer.clear();
+      record.position(record.position() + HEADER_SIZE);
+      record.limit(record.position() + length);
+      buffer.put(record);
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    hits.increment();
+    buffer.flip();
+    return codec.decode(buffer);
+  }
+
+  /**
+   * @see net.ljcomputing.repository.impl.CacheTier#put(net.ljcomputing.model.Model, long)
+   */
+  @Override
+  void put(final T model, final long stamp) throws PersistenceException {
+    final ByteBuffer buffer = encode(model);
+
+    if (null == buffer) {
+      return;
+    }
+
+    final int length = buffer.remaining();
+
+    lock.writeLock().lock();
+
+    try {
+      if (stamp != invalidations) {
+        return;
+      }
+
+      if (writeOffset + HEADER_SIZE + length > segmentSize) {
+        advance();
+      }
+
+      final ByteBuffer segment = segments[(int) (epoch % segments.length)];
+      final long address = epoch << 32 | writeOffset;
+
+      segment.putInt(writeOffset, model.getId());
+      segment.putInt(writeOffset + 4, length);
+
+      final ByteBuffer record = segment.duplicate();
+
+      record.position(writeOffset + HEADER_SIZE);
+      record.put(buffer);
+      writeOffset += HEADER_SIZE + length;
+      segmentEnds[(int) (epoch % segments.length)] = writeOffset;
+      index.put(model.getId(), address);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Encode the model into the encoding buffer of the thread, growing it as
+   * needed up to the segment size.
+   *
+   * @param model the model
+   * @return the encoded model, or null if too large to cache
+   * @throws PersistenceException the persistence exception
+   */
+  private ByteBuffer encode(final T model) throws PersistenceException {
+    ByteBuffer buffer = encodingBuffer.get();
+
+    while (true) {
+      try {
+        buffer.clear();
+        codec.encode(model, buffer);
+        buffer.flip();
+        return buffer;
+      } catch (BufferOverflowException exception) {
+        if (buffer.capacity() >= segmentSize - HEADER_SIZE) {
+          return null;
+        }
+
+        buffer = ByteBuffer.allocate(
+            (int) Math.min(segmentSize - HEADER_SIZE, buffer.capacity() * 2L));
+        encodingBuffer.set(buffer);
+      }
+    }
+  }
+
+  /**
+   * Move on to the next segment, evicting the models of the segment it
+   * reuses. Called with the write lock held.
+   */
+  private void advance() {
+    epoch++;
+    writeOffset = 0;
+
+    final int next = (int) (epoch % segments.length);
+    final ByteBuffer segment = segments[next];
+    final long reused = epoch - segments.length;
+
+    for (int offset = 0; offset < segmentEnds[next];) {
+      if (index.remove(segment.getInt(offset), reused << 32 | offset)) {
+        evictions.increment();
+      }
+
+      offset += HEADER_SIZE + segment.getInt(offset + 4);
+    }
+
+    segmentEnds[next] = 0;
+  }
+
+  /**
+   * @see net.ljcomputing.repository.impl.CacheTier#invalidate(java.lang.Integer)
+   */
+  @Override
+  void invalidate(final Integer id) {
+    lock.writeLock().lock();
+
+    try {
+      invalidations++;
+      index.remove(id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Invalidate every cached model.
+   */
+  public void clear() {
+    lock.writeLock().lock();
+
+    try {
+      invalidations++;
+      index.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the number of cached models.
+   *
+   * @return the size
+   */
+  public int getSize() {
+    lock.readLock().lock();
+
+    try {
+      return index.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the capacity.
+   *
+   * @return the capacity, in bytes
+   */
+  public long getCapacity() {
+    return (long) segmentSize * segments.length;
+  }
+
+  /**
+   * Gets the hits.
+   *
+   * @return the hits
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * Gets the misses.
+   *
+   * @return the misses
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * Gets the hit ratio.
+   *
+   * @return the hit ratio, between 0 and 1
+   */
+  public double getHitRatio() {
+    final long hitCount = hits.sum();
+    final long total = hitCount + misses.sum();
+
+    return total == 0 ? 0.0 : (double) hitCount / total;
+  }
+
+  /**
+   * Gets the number of models evicted as their segment was reused.
+   *
+   * @return the evictions
+   */
+  public long getEvictions() {
+    return evictions.sum();
+  }
+}
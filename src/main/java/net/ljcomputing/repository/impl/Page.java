@@ -0,0 +1,76 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.repository.impl;
+
+import net.ljcomputing.model.Model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page of models in id order, and the id to continue after.
+ *
+ * @author James G. Willmore
+ *
+ * @param <T> the Model of the page
+ */
+public final class Page<T extends Model> {
+
+  /** The models. */
+  private final List<T> models;
+
+  /** The id to read the next page after, or null if this is the last page. */
+  private final Integer nextAfterId;
+
+  /**
+   * Instantiates a new page.
+   *
+   * @param models the models
+   * @param nextAfterId the id to read the next page after, or null
+   */
+  Page(final List<T> models, final Integer nextAfterId) {
+    this.models = Collections.unmodifiableList(models);
+    this.nextAfterId = nextAfterId;
+  }
+
+  /**
+   * Gets the models of the page.
+   *
+   * @return the models
+   */
+  public List<T> getModels() {
+    return models;
+  }
+
+  /**
+   * Gets the id to read the next page after.
+   *
+   * @return the id, or null if this is the last page
+   */
+  public Integer getNextAfterId() {
+    return nextAfterId;
+  }
+
+  /**
+   * Checks for a next page.
+   *
+   * @return true, if there is a next page
+   */
+  public boolean hasNext() {
+    return null != nextAfterId;
+  }
+}
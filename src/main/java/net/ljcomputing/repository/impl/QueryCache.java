@@ -0,0 +1,362 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.repository.impl;
+
+import net.ljcomputing.exception.PersistenceException;
+import net.ljcomputing.model.Model;
+import net.ljcomputing.persistence.DataSourceTable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache of the query results of a table, keyed by query shape and parameter
+ * values, and shared by every repository of the table once enabled with
+ * {@link #enable}. Repositories cache the results of <code>readAll</code> and
+ * <code>find</code> outside a unit of work.
+ *
+ * <p>
+ * Each result is tagged with the version of the table it was read at. Every
+ * write through a repository bumps the version, which invalidates all the
+ * cached results of the table at once; stale results are dropped when next
+ * read, or when the cache grows past its maximum size. If current results
+ * alone exceed it, one writer evicts the least recently read tenth of them.
+ * The cache holds copies of the models of a
+ * result, and a hit returns a new list of new copies, so callers may modify
+ * the lists and models they read.
+ * </p>
+ *
+ * @author James G. Willmore
+ */
+public final class QueryCache {
+
+  /** The caches, keyed by table name. */
+  private static final ConcurrentMap<String, QueryCache> CACHES =
+      new ConcurrentHashMap<String, QueryCache>();
+
+  /** The fraction of the maximum size kept by an eviction. */
+  private static final double EVICT_TO = 0.9;
+
+  /** The model codec, copying the models. */
+  private final ModelCodec<? extends Model> codec;
+
+  /** The cached results. */
+  private final ConcurrentMap<Object, Entry> results =
+      new ConcurrentHashMap<Object, Entry>();
+
+  /** The maximum number of results. */
+  private final int maxSize;
+
+  /** The version of the table. */
+  private final AtomicLong version = new AtomicLong();
+
+  /** The eviction lock, held by at most one evicting writer. */
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  /** The hits. */
+  private final LongAdder hits = new LongAdder();
+
+  /** The misses. */
+  private final LongAdder misses = new LongAdder();
+
+  /** The evictions. */
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Instantiates a new query cache.
+   *
+   * @param modelClass the model class
+   * @param maxSize the maximum number of results
+   * @throws PersistenceException if the model class cannot be copied
+   */
+  QueryCache(final Class<? extends Model> modelClass, final int maxSize)
+      throws PersistenceException {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("maximum size must be at least 1");
+    }
+
+    this.codec = new ModelCodec<>(modelClass);
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Enable caching of the query results of the table, replacing any existing
+   * query cache of the table.
+   *
+   * @param table the table
+   * @param maxSize the maximum number of cached results
+   * @return the cache
+   * @throws PersistenceException if the model of the table cannot be copied
+   */
+  public static QueryCache enable(final DataSourceTable table,
+      final int maxSize) throws PersistenceException {
+    final QueryCache cache = new QueryCache(
+        table.getModel().asSubclass(Model.class), maxSize);
+
+    CACHES.put(table.getTableName(), cache);
+    return cache;
+  }
+
+  /**
+   * Disable caching of the query results of the table.
+   *
+   * @param table the table
+   */
+  public static void disable(final DataSourceTable table) {
+    CACHES.remove(table.getTableName());
+  }
+
+  /**
+   * Gets the query cache of the table.
+   *
+   * @param table the table
+   * @return the cache, or null if query caching is not enabled for the table
+   */
+  public static QueryCache of(final DataSourceTable table) {
+    return CACHES.get(table.getTableName());
+  }
+
+  /**
+   * Gets the current version of the table, to be passed to {@link #put} for a
+   * result read after it.
+   *
+   * @return the version
+   */
+  long version() {
+    return version.get();
+  }
+
+  /**
+   * Gets a copy of the cached result of the query.
+   *
+   * @param <M> the Model of the result
+   * @param key the query shape and parameter values
+   * @return the result, or null if not cached or stale
+   * @throws PersistenceException the persistence exception
+   */
+  @SuppressWarnings("unchecked")
+  <M extends Model> List<M> get(final Object key)
+      throws PersistenceException {
+    final Entry entry = results.get(key);
+
+    if (null == entry || entry.version != version.get()) {
+      if (null != entry) {
+        results.remove(key, entry);
+      }
+
+      misses.increment();
+      return null;
+    }
+
+    entry.accessed = System.nanoTime();
+    hits.increment();
+    return copy((List<M>) entry.result);
+  }
+
+  /**
+   * Cache the result of a query, unless the table was written since the query
+   * began. When the cache grows past its maximum size, stale results are
+   * dropped and then the least recently read results evicted.
+   *
+   * @param <M> the Model of the result
+   * @param key the query shape and parameter values
+   * @param result the result
+   * @param readVersion the version taken before the query
+   * @throws PersistenceException the persistence exception
+   */
+  <M extends Model> void put(final Object key, final List<M> result,
+      final long readVersion) throws PersistenceException {
+    if (readVersion != version.get()) {
+      return;
+    }
+
+    results.put(key, new Entry(Collections.unmodifiableList(copy(result)),
+        readVersion));
+
+    if (results.size() > maxSize) {
+      evict();
+    }
+  }
+
+  /**
+   * Drop the stale results and, if the current results still exceed the
+   * maximum size, evict the least recently read down to nine tenths of it,
+   * unless another thread is already evicting. The most recently read result
+   * is always kept.
+   */
+  private void evict() {
+    if (!evictionLock.tryLock()) {
+      return;
+    }
+
+    try {
+      final long current = version.get();
+
+      results.values().removeIf(entry -> entry.version != current);
+
+      final int excess = results.size()
+          - Math.max(1, (int) (maxSize * EVICT_TO));
+
+      if (excess <= 0) {
+        return;
+      }
+
+      final List<Map.Entry<Object, Entry>> snapshot =
+          new ArrayList<Map.Entry<Object, Entry>>(results.entrySet());
+
+      snapshot.sort(Comparator.comparingLong(e -> e.getValue().accessed));
+
+      for (int e = 0; e < excess && e < snapshot.size(); e++) {
+        if (results.remove(snapshot.get(e).getKey(),
+            snapshot.get(e).getValue())) {
+          evictions.increment();
+        }
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Copy the models of a result into a new list.
+   *
+   * @param <M> the Model of the result
+   * @param result the result
+   * @return the copy
+   * @throws PersistenceException the persistence exception
+   */
+  @SuppressWarnings("unchecked")
+  private <M extends Model> List<M> copy(final List<M> result)
+      throws PersistenceException {
+    final ModelCodec<M> modelCodec = (ModelCodec<M>) codec;
+    final List<M> copy = new ArrayList<M>(result.size());
+
+    for (final M model : result) {
+      copy.add(modelCodec.copy(model));
+    }
+
+    return copy;
+  }
+
+  /**
+   * Bump the version of the table, invalidating every cached result.
+   */
+  void bump() {
+    version.incrementAndGet();
+  }
+
+  /**
+   * Invalidate every cached result.
+   */
+  public void clear() {
+    version.incrementAndGet();
+    results.clear();
+  }
+
+  /**
+   * Gets the number of cached results, including stale results not yet
+   * dropped.
+   *
+   * @return the size
+   */
+  public int getSize() {
+    return results.size();
+  }
+
+  /**
+   * Gets the version of the table.
+   *
+   * @return the version
+   */
+  public long getVersion() {
+    return version.get();
+  }
+
+  /**
+   * Gets the hits.
+   *
+   * @return the hits
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * Gets the misses.
+   *
+   * @return the misses
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * Gets the evictions of current results, not counting stale results
+   * dropped.
+   *
+   * @return the evictions
+   */
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * Gets the hit ratio.
+   *
+   * @return the hit ratio, between 0 and 1
+   */
+  public double getHitRatio() {
+    final long hitCount = hits.sum();
+    final long total = hitCount + misses.sum();
+
+    return total == 0 ? 0.0 : (double) hitCount / total;
+  }
+
+  /**
+   * A cached result.
+   */
+  private static final class Entry {
+
+    /** The result. */
+    private final List<?> result;
+
+    /** The version of the table the result was read at. */
+    private final long version;
+
+    /** The time the result was put or last read, in nanoseconds. */
+    private volatile long accessed = System.nanoTime();
+
+    /**
+     * Instantiates a new entry.
+     *
+     * @param result the result
+     * @param version the version
+     */
+    private Entry(final List<?> result, final long version) {
+      this.result = result;
+      this.version = version;
+    }
+  }
+}
@@ -0,0 +1,367 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.repository.impl;
+
+import net.ljcomputing.exception.PersistenceException;
+import net.ljcomputing.model.Model;
+import net.ljcomputing.persistence.DataSourceTable;
+import net.ljcomputing.persistence.impl.UnitOfWork;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Repository of a small, read mostly table, replicated in memory. The whole
+ * table is loaded into a snapshot, indexed by id in a primitive open
+ * addressing index, and <code>readById</code>, <code>readByIds</code>,
+ * <code>readAll</code>, <code>count</code> and <code>existsById</code> are
+ * served from it without a database call.
+ *
+ * <p>
+ * Writes go through to the database; once committed, the written rows are
+ * read back into a new snapshot, which replaces the current one. Snapshots are
+ * never modified once published, so readers take no lock and always see a
+ * consistent table. Only writes through this repository instance are
+ * replicated; writes through any other repository, even of the same table,
+ * or outside the repositories, are picked up when the table is reloaded by
+ * {@link #refresh}, on demand or periodically.
+ * Reads within a unit of work go to the database, as they may see its
+ * uncommitted changes.
+ * </p>
+ *
+ * <p>
+ * The snapshot holds its own copies of the models, and reads return new
+ * copies, in a new list, so callers may modify the models and lists they
+ * read.
+ * </p>
+ *
+ * @author James G. Willmore
+ *
+ * @param <T> the Model associated with the repository
+ */
+public abstract class ReplicatedRepository<T extends Model>
+    extends AbstractRepository<T> implements AutoCloseable {
+
+  /** SLF4J logger. */
+  private static final Logger LOGGER = LoggerFactory
+      .getLogger(ReplicatedRepository.class);
+
+  /** The model codec, copying the models. */
+  private final ModelCodec<T> codec;
+
+  /** The snapshot lock, held while building a snapshot. */
+  private final ReentrantLock snapshotLock = new ReentrantLock();
+
+  /** The current snapshot. */
+  private volatile Snapshot<T> snapshot;
+
+  /** The refresher, or null if not refreshing periodically. */
+  private ScheduledExecutorService refresher;
+
+  /**
+   * Instantiates a new replicated repository, loading the table.
+   *
+   * @param table the table
+   * @throws PersistenceException the persistence exception
+   */
+  public ReplicatedRepository(final DataSourceTable table)
+      throws PersistenceException {
+    super(table);
+    this.codec = createCodec(table);
+    refresh();
+  }
+
+  /**
+   * Creates the codec copying the models of the table.
+   *
+   * @param <M> the Model of the table
+   * @param table the table
+   * @return the codec
+   * @throws PersistenceException if the model of the table cannot be copied
+   */
+  @SuppressWarnings("unchecked")
+  private static <M extends Model> ModelCodec<M> createCodec(
+      final DataSourceTable table) throws PersistenceException {
+    return new ModelCodec<M>(
+        (Class<M>) table.getModel().asSubclass(Model.class));
+  }
+
+  /**
+   * Reload the whole table into a new snapshot.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  public final void refresh() throws PersistenceException {
+    snapshotLock.lock();
+
+    try {
+      snapshot = new Snapshot<T>(copy(super.readAll(new String[0])));
+    } finally {
+      snapshotLock.unlock();
+    }
+  }
+
+  /**
+   * Reload the table periodically, replacing any previous period.
+   *
+   * @param period the period
+   * @param unit the period unit
+   */
+  public synchronized void refreshEvery(final long period,
+      final TimeUnit unit) {
+    close();
+
+    refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "replica-refresher");
+      thread.setDaemon(true);
+      return thread;
+    });
+    refresher.scheduleWithFixedDelay(() -> {
+      try {
+        refresh();
+      } catch (PersistenceException exception) {
+        LOGGER.warn("Cannot refresh the replicated table: ", exception);
+      }
+    }, period, period, unit);
+  }
+
+  /**
+   * Stop the periodic reload, if any.
+   *
+   * @see java.lang.AutoCloseable#close()
+   */
+  @Override
+  public synchronized void close() {
+    if (null != refresher) {
+      refresher.shutdownNow();
+      refresher = null;
+    }
+  }
+
+  /**
+   * Read the written rows back into a new snapshot. Rows not found are
+   * removed. If they cannot be read, the whole table is reloaded on the next
+   * read.
+   *
+   * @param ids the ids of the models written
+   * @see net.ljcomputing.repository.impl.AbstractRepository#afterCommit(java.util.Collection)
+   */
+  @Override
+  protected void afterCommit(final Collection<Integer> ids) {
+    snapshotLock.lock();
+
+    try {
+      if (null == snapshot) {
+        return;
+      }
+
+      final Set<Integer> changed = new HashSet<Integer>(ids);
+      final Map<Integer, T> written = super.readByIds(changed);
+      final List<T> models = new ArrayList<T>(snapshot.models.size()
+          + written.size());
+
+      for (final T model : snapshot.models) {
+        if (!changed.contains(model.getId())) {
+          models.add(model);
+        }
+      }
+
+      models.addAll(copy(written.values()));
+      snapshot = new Snapshot<T>(models);
+    } catch (PersistenceException exception) {
+      LOGGER.warn("Cannot replicate the written rows: ", exception);
+      snapshot = null;
+    } finally {
+      snapshotLock.unlock();
+    }
+  }
+
+  /**
+   * Gets the current snapshot, reloading the table if the last write could not
+   * be replicated.
+   *
+   * @return the snapshot
+   * @throws PersistenceException the persistence exception
+   */
+  private Snapshot<T> getSnapshot() throws PersistenceException {
+    Snapshot<T> current = snapshot;
+
+    if (null == current) {
+      refresh();
+      current = snapshot;
+    }
+
+    return current;
+  }
+
+  /**
+   * @see net.ljcomputing.repository.impl.AbstractRepository#readById(java.lang.Integer)
+   */
+  @Override
+  public T readById(final Integer id) throws PersistenceException {
+    if (null != UnitOfWork.current()) {
+      return super.readById(id);
+    }
+
+    final T model = getSnapshot().get(id);
+
+    return null == model ? null : codec.copy(model);
+  }
+
+  /**
+   * @see net.ljcomputing.repository.impl.AbstractRepository#readByIds(java.util.Collection)
+   */
+  @Override
+  public Map<Integer, T> readByIds(final Collection<Integer> ids)
+      throws PersistenceException {
+    if (null != UnitOfWork.current()) {
+      return super.readByIds(ids);
+    }
+
+    final Snapshot<T> current = getSnapshot();
+    final Map<Integer, T> models = new HashMap<Integer, T>(
+        ids.size() * 4 / 3 + 1);
+
+    for (final Integer id : ids) {
+      final T model = current.get(id);
+
+      if (null != model) {
+        models.put(id, codec.copy(model));
+      }
+    }
+
+    return models;
+  }
+
+  /**
+   * Read all, from the snapshot unless columns are given.
+   *
+   * @param columns the columns to load; all columns if none
+   * @return the list
+   * @throws PersistenceException the persistence exception
+   * @see net.ljcomputing.repository.impl.AbstractRepository#readAll(java.lang.String[])
+   */
+  @Override
+  public List<T> readAll(final String... columns)
+      throws PersistenceException {
+    if (columns.length > 0 || null != UnitOfWork.current()) {
+      return super.readAll(columns);
+    }
+
+    return copy(getSnapshot().models);
+  }
+
+  /**
+   * Copy the models into a new list.
+   *
+   * @param models the models
+   * @return the copies
+   * @throws PersistenceException the persistence exception
+   */
+  private List<T> copy(final Collection<T> models)
+      throws PersistenceException {
+    final List<T> copies = new ArrayList<T>(models.size());
+
+    for (final T model : models) {
+      copies.add(codec.copy(model));
+    }
+
+    return copies;
+  }
+
+  /**
+   * @see net.ljcomputing.repository.impl.AbstractRepository#count()
+   */
+  @Override
+  public long count() throws PersistenceException {
+    if (null != UnitOfWork.current()) {
+      return super.count();
+    }
+
+    return getSnapshot().models.size();
+  }
+
+  /**
+   * @see net.ljcomputing.repository.impl.AbstractRepository#existsById(java.lang.Integer)
+   */
+  @Override
+  public boolean existsById(final Integer id) throws PersistenceException {
+    if (null != UnitOfWork.current()) {
+      return super.existsById(id);
+    }
+
+    return null != getSnapshot().get(id);
+  }
+
+  /**
+   * An immutable snapshot of the table.
+   *
+   * @param <T> the Model associated with the repository
+   */
+  private static final class Snapshot<T extends Model> {
+
+    /** The models. */
+    private final List<T> models;
+
+    /** The positions of the models, keyed by id. */
+    private final IntLongIndex positions;
+
+    /**
+     * Instantiates a new snapshot.
+     *
+     * @param models the models
+     */
+    private Snapshot(final List<T> models) {
+      this.models = Collections.unmodifiableList(new ArrayList<T>(models));
+      this.positions = new IntLongIndex(models.size());
+
+      for (int m = 0; m < this.models.size(); m++) {
+        positions.put(this.models.get(m).getId(), m);
+      }
+    }
+
+    /**
+     * Gets the model.
+     *
+     * @param id the id
+     * @return the model, or null if not found
+     */
+    private T get(final Integer id) {
+      if (null == id) {
+        return null;
+      }
+
+      final long position = positions.get(id);
+
+      return IntLongIndex.NO_VALUE == position ? null
+          : models.get((int) position);
+    }
+  }
+}
@@ -0,0 +1,186 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.repository.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the SQL statements generated by a repository, keyed by operation
+ * and the column set (or other shape) of the statement. Repeated calls skip
+ * building the SQL string; with statement pooling enabled on the connection
+ * pool, the identical SQL also reuses the compiled statement.
+ *
+ * @author James G. Willmore
+ */
+public class SqlTemplateCache {
+
+  /** The default maximum number of cached statements. */
+  public static final int DEFAULT_MAX_SIZE = 1024;
+
+  /** The cached statements. */
+  private final ConcurrentMap<Key, String> statements =
+      new ConcurrentHashMap<Key, String>();
+
+  /** The maximum number of cached statements. */
+  private final int maxSize;
+
+  /** The hits. */
+  private final LongAdder hits = new LongAdder();
+
+  /** The misses. */
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * Instantiates a new SQL template cache.
+   */
+  public SqlTemplateCache() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * Instantiates a new SQL template cache.
+   *
+   * @param maxSize the maximum number of cached statements; statements built
+   *          once the cache is full are not cached
+   */
+  public SqlTemplateCache(final int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Gets the cached statement for the operation and shape, building and
+   * caching it on a miss.
+   *
+   * @param builder the statement builder
+   * @param operation the operation
+   * @param shape the statement shape, such as its column names
+   * @return the SQL statement
+   */
+  public String get(final Supplier<String> builder, final String operation,
+      final Object... shape) {
+    final Key key = new Key(operation, shape);
+    String sql = statements.get(key);
+
+    if (null == sql) {
+      misses.increment();
+      sql = builder.get();
+
+      if (statements.size() < maxSize) {
+        statements.putIfAbsent(
+            new Key(operation, Arrays.copyOf(shape, shape.length)), sql);
+      }
+    } else {
+      hits.increment();
+    }
+
+    return sql;
+  }
+
+  /**
+   * Gets the number of cache hits.
+   *
+   * @return the hits
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * Gets the number of cache misses.
+   *
+   * @return the misses
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * Gets the number of cached statements.
+   *
+   * @return the size
+   */
+  public int getSize() {
+    return statements.size();
+  }
+
+  /**
+   * Clear the cached statements and counts.
+   */
+  public void clear() {
+    statements.clear();
+    hits.reset();
+    misses.reset();
+  }
+
+  /**
+   * Cache key.
+   */
+  private static final class Key {
+
+    /** The operation. */
+    private final String operation;
+
+    /** The shape. */
+    private final Object[] shape;
+
+    /** The hash code. */
+    private final int hash;
+
+    /**
+     * Instantiates a new key.
+     *
+     * @param operation the operation
+     * @param shape the shape
+     */
+    private Key(final String operation, final Object... shape) {
+      this.operation = operation;
+      this.shape = shape;
+      this.hash = 31 * operation.hashCode() + Arrays.deepHashCode(shape);
+    }
+
+    /**
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    /**
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(final Object obj) {
+      if (this == obj) {
+        return true;
+      }
+
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+
+      final Key other = (Key) obj;
+
+      return operation.equals(other.operation)
+          && Arrays.deepEquals(shape, other.shape);
+    }
+  }
+}
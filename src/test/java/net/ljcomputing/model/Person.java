@@ -19,6 +19,7 @@ package net.ljcomputing.model;
 import net.ljcomputing.exception.PersistenceException;
 import net.ljcomputing.persistence.Entity;
 import net.ljcomputing.persistence.EntityPopulator;
+import net.ljcomputing.persistence.PersistentEntity;
 
 import java.sql.ResultSet;
 
@@ -30,6 +31,7 @@ import org.apache.commons.lang3.builder.ToStringStyle;
  * 
  * @author James G. Willmore
  */
+@PersistentEntity
 public class Person extends AbstractModel implements Model, Entity {
 
   /** The name. */
@@ -80,6 +82,15 @@ public class Person extends AbstractModel implements Model, Entity {
     return name;
   }
 
+  /**
+   * Sets the name.
+   *
+   * @param name the new name
+   */
+  public void setName(String name) {
+    this.name = name;
+  }
+
   /**
    * @see java.lang.Object#toString()
    */
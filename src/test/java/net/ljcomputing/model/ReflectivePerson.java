@@ -0,0 +1,42 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.model;
+
+/**
+ * Person model without a generated entity mapper, so it is populated and
+ * bound by reflection.
+ * 
+ * @author James G. Willmore
+ */
+public class ReflectivePerson extends Person {
+
+  /**
+   * Instantiates a new reflective person.
+   */
+  public ReflectivePerson() {
+    super();
+  }
+
+  /**
+   * Instantiates a new reflective person.
+   *
+   * @param name the name
+   */
+  public ReflectivePerson(String name) {
+    super(name);
+  }
+}
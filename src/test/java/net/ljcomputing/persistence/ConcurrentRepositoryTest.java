@@ -0,0 +1,113 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import net.ljcomputing.model.Person;
+import net.ljcomputing.repository.impl.ModelRepository;
+import net.ljcomputing.repository.impl.PersonRepositoryImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Persistence JUnit tests sharing a single repository across many threads.
+ * 
+ * @author James G. Willmore
+ */
+public class ConcurrentRepositoryTest {
+
+  /** The number of threads. */
+  private static final int THREADS = 100;
+
+  /** The number of CRUD iterations per thread. */
+  private static final int ITERATIONS = 10;
+
+  /**
+   * @throws java.lang.Exception
+   */
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    TestDatabase.initialize();
+  }
+
+  /**
+   * Test CRUD functionality from concurrent threads sharing one repository.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testSharedRepository() throws Exception {
+    final ModelRepository<Person> repository = new PersonRepositoryImpl();
+    final CountDownLatch start = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    final List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+
+    for (int t = 0; t < THREADS; t++) {
+      final String prefix = "thread-" + t + "-";
+
+      results.add(executor.submit(new Callable<Integer>() {
+        public Integer call() throws Exception {
+          start.await();
+
+          for (int i = 0; i < ITERATIONS; i++) {
+            Person person = new Person(prefix + i);
+            repository.create(person, "name");
+            assertNotNull(person.getId());
+
+            Person created = repository.readById(person.getId());
+            assertEquals(prefix + i, created.getName());
+
+            repository.update(new Person(person.getId(), prefix + "updated"),
+                "name");
+            assertEquals(prefix + "updated",
+                repository.readById(person.getId()).getName());
+
+            repository.delete(person);
+            assertNull(repository.readById(person.getId()));
+          }
+
+          return ITERATIONS;
+        }
+      }));
+    }
+
+    start.countDown();
+
+    int completed = 0;
+    for (Future<Integer> result : results) {
+      completed += result.get();
+    }
+
+    executor.shutdown();
+    executor.awaitTermination(1, TimeUnit.MINUTES);
+
+    assertEquals(THREADS * ITERATIONS, completed);
+  }
+}
@@ -16,6 +16,7 @@
 
 package net.ljcomputing.persistence;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -23,19 +24,24 @@ import static org.junit.Assert.fail;
 
 import net.ljcomputing.exception.PersistenceException;
 import net.ljcomputing.model.Person;
+import net.ljcomputing.model.ReflectivePerson;
+import net.ljcomputing.persistence.impl.AbstractEntityMapper;
 import net.ljcomputing.persistence.impl.ConnectionPool;
 import net.ljcomputing.repository.impl.ModelRepository;
+import net.ljcomputing.repository.impl.Page;
 import net.ljcomputing.repository.impl.PersonRepositoryImpl;
-import net.ljcomputing.repository.impl.TestTables;
+import net.ljcomputing.repository.impl.ReflectivePersonRepositoryImpl;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
-import java.sql.ResultSet;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -55,78 +61,9 @@ public class CrudTest {
    */
   @BeforeClass
   public static void setUpBeforeClass() throws Exception {
-    ConnectionPool cp = ConnectionPool.getInstance();
-
-    try {
-      LOGGER.debug(" ... initialize tables");
-      
-      initTables(cp.getConnection());
-      
-      LOGGER.debug("COMPLETED ... initialize tables");
-    } catch (Exception e) {
-      e.printStackTrace();
-    }
-  }
-
-  /**
-   * Inits the tables.
-   *
-   * @param conn the conn
-   * @throws Exception the exception
-   */
-  private static void initTables(Connection conn) throws Exception {
-    for (DataSourceTable table : TestTables.values()) {
-      if (!exists(conn, table)) {
-        LOGGER.debug(" ... table " + table.getTableName()
-            + " does not exist ... creating");
-        
-        createTable(conn, table);
-        
-        LOGGER.debug("CREATED ... " + table.getTableName());
-      }
-    }
-
-    LOGGER.debug("COMPLETED ... adding items");
+    TestDatabase.initialize();
   }
 
-  /**
-   * Exists.
-   *
-   * @param conn the conn
-   * @param table the table
-   * @return true, if successful
-   * @throws Exception the exception
-   */
-  private static boolean exists(Connection conn, DataSourceTable table)
-      throws Exception {
-    try {
-      Statement stmt = conn.createStatement();
-      ResultSet rs = stmt
-          .executeQuery("select * from " + table.getTableName() + " where 1=0");
-
-      rs.close();
-      stmt.close();
-    } catch (Exception e) {
-      return false;
-    }
-
-    return true;
-  }
-
-  /**
-   * Creates the table.
-   *
-   * @param conn the conn
-   * @param table the table
-   * @throws Exception the exception
-   */
-  private static void createTable(Connection conn, DataSourceTable table)
-      throws Exception {
-    Statement stmt = conn.createStatement();
-    stmt.executeUpdate(table.getDDl());
-    stmt.close();
-  }
-  
   /**
    * Gets a list of people used in the tests.
    *
@@ -197,4 +134,352 @@ public class CrudTest {
     assertTrue(true);
   }
 
+  /**
+   * Test the generated SQL statements are cached per operation and columns.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testSqlCache() throws PersistenceException {
+    PersonRepositoryImpl repository = new PersonRepositoryImpl();
+
+    for (Person person : getPeople()) {
+      repository.create(person, "name");
+      repository.update(person, "name");
+      repository.delete(person);
+    }
+
+    assertEquals(3, repository.getSqlCache().getMisses());
+    assertEquals(12, repository.getSqlCache().getHits());
+    assertEquals(3, repository.getSqlCache().getSize());
+  }
+
+  /**
+   * Test a model without a generated mapper is populated and bound by
+   * reflection.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testReflectiveMapping() throws PersistenceException {
+    ReflectivePersonRepositoryImpl repository =
+        new ReflectivePersonRepositoryImpl();
+    ReflectivePerson person = new ReflectivePerson("quentin");
+
+    assertNull(AbstractEntityMapper.find(ReflectivePerson.class));
+
+    repository.create(person, "name");
+    assertEquals("quentin", repository.readById(person.getId()).getName());
+
+    person.setName("QUENTIN");
+    repository.update(person, "name");
+    assertTrue(repository.readAll().stream()
+        .anyMatch(p -> "QUENTIN".equals(p.getName())));
+
+    repository.delete(person);
+    assertNull(repository.readById(person.getId()));
+  }
+
+  /**
+   * Test models created together are each assigned their generated id.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testCreateAll() throws PersistenceException {
+    PersonRepositoryImpl repository = new PersonRepositoryImpl();
+    List<Person> people = getPeople();
+
+    repository.setBatchSize(2);
+    repository.createAll(people, "name");
+
+    for (Person person : people) {
+      assertTrue(person.getId() > 0);
+      assertEquals(person.getName(),
+          repository.readById(person.getId()).getName());
+      repository.delete(person);
+    }
+
+    assertEquals(people.size(), people.stream().map(Person::getId).distinct()
+        .count());
+  }
+
+  /**
+   * Test models created together by a driver assumed to return the generated
+   * keys of a batch, which Apache Derby does not: the first batch is rolled
+   * back and the models are inserted one at a time.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testCreateAllBatched() throws PersistenceException {
+    PersonRepositoryImpl repository = new PersonRepositoryImpl() {
+      @Override
+      protected boolean isBatchGeneratedKeys(final Connection connection) {
+        return true;
+      }
+    };
+    List<Person> people = getPeople();
+    long count = repository.count();
+
+    repository.setBatchSize(2);
+    repository.createAll(people, "name");
+    assertEquals(count + people.size(), repository.count());
+
+    for (Person person : people) {
+      assertEquals(person.getName(),
+          repository.readById(person.getId()).getName());
+      repository.delete(person);
+    }
+
+    assertEquals(people.size(), people.stream().map(Person::getId).distinct()
+        .count());
+  }
+
+  /**
+   * Test models updated and deleted together.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testUpdateAndDeleteAll() throws PersistenceException {
+    PersonRepositoryImpl repository = new PersonRepositoryImpl();
+    List<Person> people = getPeople();
+    List<Integer> ids = new ArrayList<Integer>();
+
+    repository.setBatchSize(2);
+    repository.setInListSize(4);
+    repository.createAll(people, "name");
+
+    for (Person person : people) {
+      person.setName(person.getName().toUpperCase());
+      ids.add(person.getId());
+    }
+
+    int[] counts = repository.updateAll(people, "name");
+
+    assertEquals(people.size(), counts.length);
+
+    for (int c = 0; c < counts.length; c++) {
+      assertEquals(1, counts[c]);
+      assertEquals(people.get(c).getName(),
+          repository.readById(people.get(c).getId()).getName());
+    }
+
+    ids.add(-1);
+    assertEquals(people.size(), repository.deleteAll(ids));
+
+    for (Integer id : ids) {
+      assertNull(repository.readById(id));
+    }
+  }
+
+  /**
+   * Test models read together by id.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testReadByIds() throws PersistenceException {
+    PersonRepositoryImpl repository = new PersonRepositoryImpl();
+    List<Person> people = getPeople();
+    List<Integer> ids = new ArrayList<Integer>();
+
+    repository.setInListSize(2);
+    repository.createAll(people, "name");
+
+    for (Person person : people) {
+      ids.add(person.getId());
+    }
+
+    ids.add(-1);
+
+    Map<Integer, Person> found = repository.readByIds(ids);
+
+    assertEquals(people.size(), found.size());
+
+    for (Person person : people) {
+      assertEquals(person.getName(), found.get(person.getId()).getName());
+    }
+
+    repository.deleteAll(ids);
+  }
+
+  /**
+   * Test streamed models release their connection when the stream is closed
+   * or consumed to the end.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testStream() throws PersistenceException {
+    PersonRepositoryImpl repository = new PersonRepositoryImpl();
+    List<Person> people = getPeople();
+    int active = ConnectionPool.getInstance().getNumActive();
+
+    repository.createAll(people, "name");
+
+    try (Stream<Person> stream = repository.stream(2)) {
+      Integer id = people.get(0).getId();
+
+      assertEquals(1, stream.filter(p -> p.getId().equals(id)).limit(1)
+          .count());
+      assertEquals(active + 1, ConnectionPool.getInstance().getNumActive());
+    }
+
+    assertEquals(active, ConnectionPool.getInstance().getNumActive());
+    assertTrue(repository.stream().count() >= people.size());
+    assertEquals(active, ConnectionPool.getInstance().getNumActive());
+
+    for (Person person : people) {
+      repository.delete(person);
+    }
+  }
+
+  /**
+   * Test the models are paged through in id order.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testReadPage() throws PersistenceException {
+    PersonRepositoryImpl repository = new PersonRepositoryImpl();
+    List<Person> people = getPeople();
+    List<Integer> paged = new ArrayList<Integer>();
+    Integer afterId = null;
+
+    repository.createAll(people, "name");
+
+    do {
+      Page<Person> page = repository.readPage(afterId, 2);
+      assertTrue(page.getModels().size() <= 2);
+
+      for (Person person : page.getModels()) {
+        paged.add(person.getId());
+      }
+
+      afterId = page.getNextAfterId();
+    } while (null != afterId);
+
+    for (int p = 1; p < paged.size(); p++) {
+      assertTrue(paged.get(p - 1) < paged.get(p));
+    }
+
+    for (Person person : people) {
+      assertTrue(paged.contains(person.getId()));
+      repository.delete(person);
+    }
+  }
+
+  /**
+   * Test every model is scanned once by a parallel scan.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testScanParallel() throws PersistenceException {
+    PersonRepositoryImpl repository = new PersonRepositoryImpl();
+    List<Person> people = getPeople();
+    Set<Integer> scanned = ConcurrentHashMap.newKeySet();
+
+    repository.createAll(people, "name");
+
+    long count = repository.scanParallel(3,
+        p -> assertTrue(scanned.add(p.getId())));
+
+    assertEquals(scanned.size(), count);
+
+    for (Person person : people) {
+      assertTrue(scanned.contains(person.getId()));
+      repository.delete(person);
+    }
+  }
+
+  /**
+   * Test projections load only the given columns.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testProjection() throws PersistenceException {
+    PersonRepositoryImpl repository = new PersonRepositoryImpl();
+    Person person = new Person("henry");
+
+    repository.create(person, "name");
+
+    assertEquals("henry", repository.readById(person.getId(), "name")
+        .getName());
+    assertNull(repository.readById(person.getId(), "id").getName());
+
+    for (Person found : repository.readAll("id")) {
+      assertNotNull(found.getId());
+      assertNull(found.getName());
+    }
+
+    repository.delete(person);
+  }
+
+  /**
+   * Test models are created or updated as needed.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testUpsert() throws PersistenceException {
+    PersonRepositoryImpl repository = new PersonRepositoryImpl();
+    Person existing = new Person("nina");
+    Person added = new Person("oscar");
+
+    repository.upsert(existing, "name");
+    assertNotNull(existing.getId());
+
+    existing.setName("NINA");
+    repository.upsert(existing, "name");
+    assertEquals("NINA", repository.readById(existing.getId()).getName());
+
+    existing.setName("Nina");
+    List<Person> people = new ArrayList<Person>();
+    people.add(existing);
+    people.add(added);
+    repository.setBatchSize(1);
+    repository.upsertAll(people, "name");
+
+    assertEquals("Nina", repository.readById(existing.getId()).getName());
+    assertEquals("oscar", repository.readById(added.getId()).getName());
+
+    repository.delete(existing);
+    repository.delete(added);
+  }
+
+  /**
+   * Test a model upserted with an id no row has is inserted and assigned its
+   * generated id, so later updates find it.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testUpsertNotFound() throws PersistenceException {
+    PersonRepositoryImpl repository = new PersonRepositoryImpl();
+    Person person = new Person(Integer.MAX_VALUE, "petra");
+
+    repository.upsert(person, "name");
+    assertTrue(person.getId() < Integer.MAX_VALUE);
+    assertEquals("petra", repository.readById(person.getId()).getName());
+
+    person.setName("PETRA");
+    repository.update(person, "name");
+    assertEquals("PETRA", repository.readById(person.getId()).getName());
+
+    repository.delete(person);
+  }
+
+  /**
+   * Test an upsert rejects a column that is not a plain identifier.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testUpsertInvalidColumn() throws PersistenceException {
+    new PersonRepositoryImpl().upsert(new Person(1, "x"), "name = null --");
+  }
 }
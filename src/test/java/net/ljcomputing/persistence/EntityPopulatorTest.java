@@ -0,0 +1,269 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import net.ljcomputing.persistence.impl.AccessorStrategy;
+import net.ljcomputing.persistence.impl.ConnectionPool;
+import net.ljcomputing.persistence.impl.EntityBinderImpl;
+import net.ljcomputing.persistence.impl.EntityPopulatorImpl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+
+import org.junit.Test;
+
+/**
+ * Reflective entity populator and binder JUnit tests.
+ * 
+ * @author James G. Willmore
+ */
+public class EntityPopulatorTest {
+
+  /** The round trip query, binding and selecting every sample member. */
+  private static final String ROUND_TRIP = "select cast(? as integer) as count"
+      + ", cast(? as bigint) as total, cast(? as double) as ratio"
+      + ", cast(? as boolean) as flag, cast(? as integer) as boxed"
+      + ", cast(? as varchar(10)) as name, cast(? as timestamp) as created"
+      + " from sysibm.sysdummy1";
+
+  /** The sample columns, in parameter order. */
+  private static final String[] COLUMNS = { "count", "total", "ratio", "flag",
+      "boxed", "name", "created" };
+
+  /**
+   * Sample entity, with primitive, boxed and reference members.
+   */
+  public static class Sample {
+
+    /** The count. */
+    private int count;
+
+    /** The total. */
+    private long total;
+
+    /** The ratio. */
+    private double ratio;
+
+    /** The flag. */
+    private boolean flag;
+
+    /** The boxed value. */
+    private Integer boxed;
+
+    /** The name. */
+    private String name;
+
+    /** The created timestamp, without bean accessors. */
+    private Timestamp created;
+
+    /**
+     * Gets the count.
+     *
+     * @return the count
+     */
+    public int getCount() {
+      return count;
+    }
+
+    /**
+     * Sets the count.
+     *
+     * @param count the new count
+     */
+    public void setCount(final int count) {
+      this.count = count;
+    }
+
+    /**
+     * Gets the total.
+     *
+     * @return the total
+     */
+    public long getTotal() {
+      return total;
+    }
+
+    /**
+     * Sets the total.
+     *
+     * @param total the new total
+     */
+    public void setTotal(final long total) {
+      this.total = total;
+    }
+
+    /**
+     * Gets the ratio.
+     *
+     * @return the ratio
+     */
+    public double getRatio() {
+      return ratio;
+    }
+
+    /**
+     * Sets the ratio.
+     *
+     * @param ratio the new ratio
+     */
+    public void setRatio(final double ratio) {
+      this.ratio = ratio;
+    }
+
+    /**
+     * Gets the flag.
+     *
+     * @return the flag
+     */
+    public boolean isFlag() {
+      return flag;
+    }
+
+    /**
+     * Sets the flag.
+     *
+     * @param flag the new flag
+     */
+    public void setFlag(final boolean flag) {
+      this.flag = flag;
+    }
+
+    /**
+     * Gets the boxed value.
+     *
+     * @return the boxed value
+     */
+    public Integer getBoxed() {
+      return boxed;
+    }
+
+    /**
+     * Sets the boxed value.
+     *
+     * @param boxed the new boxed value
+     */
+    public void setBoxed(final Integer boxed) {
+      this.boxed = boxed;
+    }
+
+    /**
+     * Gets the name.
+     *
+     * @return the name
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Sets the name.
+     *
+     * @param name the new name
+     */
+    public void setName(final String name) {
+      this.name = name;
+    }
+  }
+
+  /**
+   * Test a bind and populate round trip with each accessor strategy.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testRoundTrip() throws Exception {
+    for (AccessorStrategy strategy : AccessorStrategy.values()) {
+      Sample source = new Sample();
+      source.count = 3;
+      source.total = 7000000000L;
+      source.ratio = 0.5;
+      source.flag = true;
+      source.name = "alice";
+      source.created = new Timestamp(System.currentTimeMillis());
+
+      Sample target = roundTrip(strategy, source);
+
+      assertEquals(source.count, target.count);
+      assertEquals(source.total, target.total);
+      assertEquals(source.ratio, target.ratio, 0.0);
+      assertTrue(target.flag);
+      assertNull(target.boxed);
+      assertEquals(source.name, target.name);
+      assertEquals(source.created, target.created);
+    }
+  }
+
+  /**
+   * Test the lambda strategy uses the bean accessors of a member, and falls
+   * back to method handles for a member without them.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testLambdaAccessor() throws Exception {
+    FieldAccessor count = AccessorStrategy.LAMBDA.getAccessor(Sample.class,
+        "count");
+    FieldAccessor created = AccessorStrategy.LAMBDA
+        .getAccessor(Sample.class, "created");
+    Sample sample = new Sample();
+
+    assertEquals("LambdaFieldAccessor", count.getClass().getSimpleName());
+    assertEquals("MethodHandleFieldAccessor",
+        created.getClass().getSimpleName());
+
+    count.setInt(sample, 5);
+    assertEquals(5, sample.getCount());
+    count.set(sample, 6);
+    assertEquals(6, count.getInt(sample));
+    assertEquals(6, count.get(sample));
+  }
+
+  /**
+   * Bind the source sample, select it back and populate a new sample.
+   *
+   * @param strategy the accessor strategy
+   * @param source the source
+   * @return the populated sample
+   * @throws Exception the exception
+   */
+  private static Sample roundTrip(AccessorStrategy strategy, Sample source)
+      throws Exception {
+    EntityBinder binder = new EntityBinderImpl(strategy);
+    EntityPopulator populator = new EntityPopulatorImpl(strategy);
+    Sample target = new Sample();
+
+    try (Connection conn = ConnectionPool.getInstance().getConnection();
+        PreparedStatement ps = conn.prepareStatement(ROUND_TRIP)) {
+      for (int c = 0; c < COLUMNS.length; c++) {
+        binder.bind(source, ps, c + 1, COLUMNS[c]);
+      }
+
+      try (ResultSet rs = ps.executeQuery()) {
+        assertTrue(rs.next());
+        populator.prepare(Sample.class, rs).populate(target, rs);
+      }
+    }
+
+    return target;
+  }
+}
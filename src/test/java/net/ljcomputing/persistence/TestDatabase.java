@@ -0,0 +1,122 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence;
+
+import net.ljcomputing.persistence.impl.ConnectionPool;
+import net.ljcomputing.repository.impl.TestTables;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Test database, creating the test tables when they do not exist.
+ * 
+ * @author James G. Willmore
+ */
+public final class TestDatabase {
+
+  /** The Constant LOGGER. */
+  private final static Logger LOGGER = LoggerFactory
+      .getLogger(TestDatabase.class);
+
+  /**
+   * Instantiates a new test database.
+   */
+  private TestDatabase() {
+  }
+
+  /**
+   * Initialize the test tables.
+   */
+  public static void initialize() {
+    ConnectionPool cp = ConnectionPool.getInstance();
+
+    try (Connection conn = cp.getConnection()) {
+      LOGGER.debug(" ... initialize tables");
+      
+      initTables(conn);
+      
+      LOGGER.debug("COMPLETED ... initialize tables");
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Inits the tables.
+   *
+   * @param conn the conn
+   * @throws Exception the exception
+   */
+  private static void initTables(Connection conn) throws Exception {
+    for (DataSourceTable table : TestTables.values()) {
+      if (!exists(conn, table)) {
+        LOGGER.debug(" ... table " + table.getTableName()
+            + " does not exist ... creating");
+        
+        createTable(conn, table);
+        
+        LOGGER.debug("CREATED ... " + table.getTableName());
+      }
+    }
+
+    LOGGER.debug("COMPLETED ... adding items");
+  }
+
+  /**
+   * Exists.
+   *
+   * @param conn the conn
+   * @param table the table
+   * @return true, if successful
+   * @throws Exception the exception
+   */
+  private static boolean exists(Connection conn, DataSourceTable table)
+      throws Exception {
+    try {
+      Statement stmt = conn.createStatement();
+      ResultSet rs = stmt
+          .executeQuery("select * from " + table.getTableName() + " where 1=0");
+
+      rs.close();
+      stmt.close();
+    } catch (Exception e) {
+      return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Creates the table.
+   *
+   * @param conn the conn
+   * @param table the table
+   * @throws Exception the exception
+   */
+  private static void createTable(Connection conn, DataSourceTable table)
+      throws Exception {
+    Statement stmt = conn.createStatement();
+    stmt.executeUpdate(table.getDDl());
+    stmt.close();
+  }
+  
+}
@@ -0,0 +1,183 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import net.ljcomputing.exception.PersistenceException;
+import net.ljcomputing.model.Person;
+import net.ljcomputing.persistence.impl.ConnectionPool;
+import net.ljcomputing.persistence.impl.UnitOfWork;
+import net.ljcomputing.repository.impl.PersonRepositoryImpl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Unit of work JUnit tests.
+ * 
+ * @author James G. Willmore
+ */
+public class UnitOfWorkTest {
+
+  /**
+   * @throws java.lang.Exception
+   */
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    TestDatabase.initialize();
+  }
+
+  /**
+   * Test the calls of a committed unit of work share one connection, and are
+   * persisted.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testCommit() throws PersistenceException {
+    PersonRepositoryImpl repository = new PersonRepositoryImpl();
+    List<String> events = new ArrayList<String>();
+    Person person = new Person("frank");
+    long borrows = ConnectionPool.getInstance().getBorrowCount();
+
+    try (UnitOfWork work = UnitOfWork.begin()) {
+      work.addListener(new UnitOfWorkListener() {
+        @Override
+        public void afterCommit() {
+          events.add("commit");
+        }
+      });
+
+      repository.create(person, "name");
+      person.setName("FRANK");
+      repository.update(person, "name");
+      assertNotNull(repository.readById(person.getId()));
+      work.commit();
+    }
+
+    assertEquals(borrows + 1, ConnectionPool.getInstance().getBorrowCount());
+    assertEquals("[commit]", events.toString());
+    assertEquals("FRANK", repository.readById(person.getId()).getName());
+    repository.delete(person);
+  }
+
+  /**
+   * Test a unit of work closed without a commit is rolled back.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testRollback() throws PersistenceException {
+    PersonRepositoryImpl repository = new PersonRepositoryImpl();
+    Person person = new Person("grace");
+
+    try (UnitOfWork work = UnitOfWork.begin()) {
+      assertSame(work, UnitOfWork.current());
+      repository.create(person, "name");
+      assertNotNull(repository.readById(person.getId()));
+    }
+
+    assertNull(UnitOfWork.current());
+    assertNull(repository.readById(person.getId()));
+  }
+
+  /**
+   * Test units of work do not nest, and cannot be used once complete.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testCompleted() throws PersistenceException {
+    UnitOfWork work = UnitOfWork.begin();
+
+    try {
+      UnitOfWork.begin();
+      fail("Nested unit of work began");
+    } catch (PersistenceException e) {
+      assertTrue(e.getMessage().contains("already active"));
+    }
+
+    work.rollback();
+    assertTrue(work.isCompleted());
+
+    try {
+      work.getConnection();
+      fail("Completed unit of work used");
+    } catch (PersistenceException e) {
+      assertTrue(e.getMessage().contains("complete"));
+    }
+  }
+
+  /**
+   * Test rows read within a unit of work resolve to one instance per row,
+   * until written.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testIdentityMap() throws PersistenceException {
+    PersonRepositoryImpl repository = new PersonRepositoryImpl();
+    Person person = new Person("nora");
+
+    repository.create(person, "name");
+
+    try (UnitOfWork work = UnitOfWork.begin()) {
+      Person read = repository.readById(person.getId());
+
+      assertSame(read, repository.readById(person.getId()));
+      assertSame(read, repository.readByIds(Collections.singletonList(
+          person.getId())).get(person.getId()));
+      assertTrue(repository.readAll().stream().anyMatch(p -> p == read));
+
+      read.setName("NORA");
+      repository.update(read, "name");
+
+      Person reread = repository.readById(person.getId());
+      assertSame(read, reread);
+      assertEquals("NORA", reread.getName());
+
+      Person created = new Person("olga");
+      repository.create(created, "name");
+      assertSame(created, repository.readById(created.getId()));
+
+      Person copy = new Person(person.getId(), "Nora");
+      repository.update(copy, "name");
+      assertSame(copy, repository.readById(person.getId()));
+      assertEquals("Nora", repository.readById(person.getId()).getName());
+
+      repository.delete(created);
+      assertNull(repository.readById(created.getId()));
+      work.commit();
+    }
+
+    assertNotSame(repository.readById(person.getId()),
+        repository.readById(person.getId()));
+
+    repository.delete(person);
+  }
+}
@@ -0,0 +1,109 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence.impl;
+
+import net.ljcomputing.exception.PersistenceException;
+import net.ljcomputing.model.Person;
+import net.ljcomputing.persistence.FieldAccessor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Micro benchmark of the accessor calls of each field accessor strategy. Each
+ * operation sets the boxed id and the name of a person and gets them back, so
+ * it times four accessor calls; it does not read a result set, so it is not
+ * the cost of mapping a row.
+ * 
+ * <p>
+ * Run with <code>mvn test-compile</code> and then the main method of this class
+ * with the test classpath; it is not part of the unit test run.
+ * </p>
+ *
+ * @author James G. Willmore
+ */
+public final class AccessorBenchmark {
+
+  /** The Constant LOGGER. */
+  private final static Logger LOGGER = LoggerFactory
+      .getLogger(AccessorBenchmark.class);
+
+  /** The number of warm up operations. */
+  private static final int WARM_UP_OPERATIONS = 5000000;
+
+  /** The number of measured operations. */
+  private static final int MEASURED_OPERATIONS = 20000000;
+
+  /** The number of measured iterations per strategy. */
+  private static final int ITERATIONS = 5;
+
+  /** The sink preventing dead code elimination. */
+  private static int sink;
+
+  /**
+   * Instantiates a new accessor benchmark.
+   */
+  private AccessorBenchmark() {
+  }
+
+  /**
+   * The main method.
+   *
+   * @param args the arguments
+   * @throws PersistenceException the persistence exception
+   */
+  public static void main(final String[] args) throws PersistenceException {
+    for (final AccessorStrategy strategy : AccessorStrategy.values()) {
+      final FieldAccessor id = strategy.getAccessor(Person.class, "id");
+      final FieldAccessor name = strategy.getAccessor(Person.class, "name");
+
+      run(id, name, WARM_UP_OPERATIONS);
+
+      for (int i = 0; i < ITERATIONS; i++) {
+        final long start = System.nanoTime();
+        run(id, name, MEASURED_OPERATIONS);
+        final long elapsed = System.nanoTime() - start;
+
+        LOGGER.info("{}: {} ns/operation", strategy,
+            String.format("%.2f", (double) elapsed / MEASURED_OPERATIONS));
+      }
+    }
+
+    LOGGER.debug("sink: {}", sink);
+  }
+
+  /**
+   * Run the given number of operations through the accessors.
+   *
+   * @param id the id accessor
+   * @param name the name accessor
+   * @param operations the operations
+   * @throws PersistenceException the persistence exception
+   */
+  private static void run(final FieldAccessor id, final FieldAccessor name,
+      final int operations) throws PersistenceException {
+    final Person person = new Person();
+    final Integer[] ids = { 1, 2, 3, 4 };
+    final String[] names = { "alice", "bob", "charlie", "david" };
+
+    for (int operation = 0; operation < operations; operation++) {
+      id.set(person, ids[operation & 3]);
+      name.set(person, names[operation & 3]);
+      sink += ((Integer) id.get(person)) + name.get(person).hashCode();
+    }
+  }
+}
@@ -0,0 +1,277 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import net.ljcomputing.exception.PersistenceException;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Native pool engine JUnit tests.
+ * 
+ * @author James G. Willmore
+ */
+public class ConcurrentBagPoolEngineTest {
+
+  /** The engine under test. */
+  private ConcurrentBagPoolEngine engine;
+
+  /**
+   * Create an engine of at most two connections.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Before
+  public void setUp() throws PersistenceException {
+    Properties properties = new Properties();
+    properties.setProperty(ConnectionPoolConfiguration.DRIVER_CLASS,
+        "org.apache.derby.jdbc.EmbeddedDriver");
+    properties.setProperty(ConnectionPoolConfiguration.URL,
+        "jdbc:derby:memory:bag;create=true");
+    properties.setProperty(ConnectionPoolConfiguration.INITIAL_SIZE, "1");
+    properties.setProperty(ConnectionPoolConfiguration.MAX_TOTAL, "2");
+    properties.setProperty(ConnectionPoolConfiguration.MAX_IDLE, "2");
+    properties.setProperty(ConnectionPoolConfiguration.MIN_IDLE, "0");
+    properties.setProperty(ConnectionPoolConfiguration.MAX_WAIT_MILLIS, "200");
+    engine = new ConcurrentBagPoolEngine(
+        new ConnectionPoolConfiguration(properties));
+  }
+
+  /**
+   * Close the engine.
+   */
+  @After
+  public void tearDown() {
+    engine.close();
+  }
+
+  /**
+   * Test a returned connection is reused by the same thread.
+   *
+   * @throws SQLException the SQL exception
+   */
+  @Test
+  public void testAffinity() throws SQLException {
+    Connection first = engine.getConnection();
+    Connection physical = first.unwrap(Connection.class);
+
+    assertEquals(1, engine.getNumActive());
+    first.close();
+    assertTrue(first.isClosed());
+    assertEquals(0, engine.getNumActive());
+
+    try (Connection second = engine.getConnection()) {
+      assertNotSame(first, second);
+      assertSame(physical, second.unwrap(Connection.class));
+    }
+
+    assertEquals(1, engine.getCreatedCount());
+  }
+
+  /**
+   * Test a closed handle cannot be used, and uncommitted work is rolled back.
+   *
+   * @throws SQLException the SQL exception
+   */
+  @Test
+  public void testClosedHandle() throws SQLException {
+    Connection connection = engine.getConnection();
+    connection.setAutoCommit(false);
+    connection.close();
+    connection.close();
+
+    try {
+      connection.createStatement();
+      fail("Closed connection used");
+    } catch (SQLException e) {
+      assertTrue(e.getMessage().contains("closed"));
+    }
+
+    try (Connection next = engine.getConnection()) {
+      assertTrue(next.getAutoCommit());
+    }
+  }
+
+  /**
+   * Test an exhausted pool times out, and a returned connection is handed to
+   * a waiting thread.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testExhausted() throws Exception {
+    Connection first = engine.getConnection();
+    Connection second = engine.getConnection();
+
+    try {
+      engine.getConnection();
+      fail("Exhausted pool did not time out");
+    } catch (SQLTimeoutException e) {
+      assertEquals(2, engine.getNumActive());
+    }
+
+    CountDownLatch borrowed = new CountDownLatch(1);
+    Thread waiter = new Thread(() -> {
+      try (Connection connection = engine.getConnection()) {
+        if (!connection.isClosed()) {
+          borrowed.countDown();
+        }
+      } catch (SQLException e) {
+        fail(e.getMessage());
+      }
+    });
+
+    waiter.start();
+
+    while (0 == engine.getNumWaiters() && waiter.isAlive()) {
+      Thread.yield();
+    }
+
+    first.close();
+    assertTrue(borrowed.await(1, TimeUnit.SECONDS));
+    waiter.join();
+    second.close();
+    assertTrue(second.isClosed());
+    assertEquals(2, engine.getCreatedCount());
+  }
+
+  /**
+   * Test a thread waits past any timeout with a maximum wait of -1, until a
+   * connection is returned.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testWaitIndefinitely() throws Exception {
+    engine.close();
+
+    Properties properties = new Properties();
+    properties.setProperty(ConnectionPoolConfiguration.DRIVER_CLASS,
+        "org.apache.derby.jdbc.EmbeddedDriver");
+    properties.setProperty(ConnectionPoolConfiguration.URL,
+        "jdbc:derby:memory:bag;create=true");
+    properties.setProperty(ConnectionPoolConfiguration.INITIAL_SIZE, "1");
+    properties.setProperty(ConnectionPoolConfiguration.MAX_TOTAL, "1");
+    properties.setProperty(ConnectionPoolConfiguration.MAX_IDLE, "1");
+    properties.setProperty(ConnectionPoolConfiguration.MIN_IDLE, "0");
+    properties.setProperty(ConnectionPoolConfiguration.MAX_WAIT_MILLIS, "-1");
+    engine = new ConcurrentBagPoolEngine(
+        new ConnectionPoolConfiguration(properties));
+
+    Connection first = engine.getConnection();
+    CountDownLatch borrowed = new CountDownLatch(1);
+    Thread waiter = new Thread(() -> {
+      try {
+        engine.getConnection().close();
+        borrowed.countDown();
+      } catch (SQLException e) {
+        fail(e.getMessage());
+      }
+    });
+
+    waiter.start();
+    assertFalse(borrowed.await(300, TimeUnit.MILLISECONDS));
+    assertEquals(1, engine.getNumWaiters());
+
+    first.close();
+    assertTrue(borrowed.await(2, TimeUnit.SECONDS));
+    waiter.join();
+  }
+
+  /**
+   * Test statements left open are closed when the connection is returned.
+   *
+   * @throws SQLException the SQL exception
+   */
+  @Test
+  public void testOpenStatementsClosed() throws SQLException {
+    Connection connection = engine.getConnection();
+    Statement statement = connection.createStatement();
+    ResultSet resultSet = statement.executeQuery("values 1");
+
+    connection.close();
+    assertTrue(statement.isClosed());
+    assertTrue(resultSet.isClosed());
+  }
+
+  /**
+   * Test a thread waiting on an exhausted pool opens a new connection once a
+   * broken connection is removed, well before its wait times out.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testRemovedWakesWaiter() throws Exception {
+    engine.close();
+
+    Properties properties = new Properties();
+    properties.setProperty(ConnectionPoolConfiguration.DRIVER_CLASS,
+        "org.apache.derby.jdbc.EmbeddedDriver");
+    properties.setProperty(ConnectionPoolConfiguration.URL,
+        "jdbc:derby:memory:bag;create=true");
+    properties.setProperty(ConnectionPoolConfiguration.INITIAL_SIZE, "1");
+    properties.setProperty(ConnectionPoolConfiguration.MAX_TOTAL, "1");
+    properties.setProperty(ConnectionPoolConfiguration.MAX_IDLE, "1");
+    properties.setProperty(ConnectionPoolConfiguration.MIN_IDLE, "0");
+    properties.setProperty(ConnectionPoolConfiguration.MAX_WAIT_MILLIS,
+        "10000");
+    engine = new ConcurrentBagPoolEngine(
+        new ConnectionPoolConfiguration(properties));
+
+    Connection broken = engine.getConnection();
+    CountDownLatch borrowed = new CountDownLatch(1);
+    Thread waiter = new Thread(() -> {
+      try (Connection connection = engine.getConnection()) {
+        if (!connection.isClosed()) {
+          borrowed.countDown();
+        }
+      } catch (SQLException e) {
+        fail(e.getMessage());
+      }
+    });
+
+    waiter.start();
+
+    while (0 == engine.getNumWaiters() && waiter.isAlive()) {
+      Thread.yield();
+    }
+
+    broken.unwrap(Connection.class).close();
+    broken.close();
+    assertTrue(borrowed.await(2, TimeUnit.SECONDS));
+    waiter.join();
+    assertEquals(1, engine.getDestroyedCount());
+  }
+}
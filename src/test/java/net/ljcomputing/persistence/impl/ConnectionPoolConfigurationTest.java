@@ -0,0 +1,118 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import net.ljcomputing.exception.PersistenceException;
+
+import java.util.Properties;
+
+import org.junit.Test;
+
+/**
+ * Connection pool configuration JUnit tests.
+ * 
+ * @author James G. Willmore
+ */
+public class ConnectionPoolConfigurationTest {
+
+  /**
+   * Gets the minimal valid properties.
+   *
+   * @return the properties
+   */
+  private static Properties getRequiredProperties() {
+    Properties properties = new Properties();
+    properties.setProperty(ConnectionPoolConfiguration.DRIVER_CLASS,
+        "org.apache.derby.jdbc.EmbeddedDriver");
+    properties.setProperty(ConnectionPoolConfiguration.URL,
+        "jdbc:derby:memory:test;create=true");
+    return properties;
+  }
+
+  /**
+   * Test the defaults apply when only the required keys are given.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testDefaults() throws PersistenceException {
+    ConnectionPoolConfiguration config = new ConnectionPoolConfiguration(
+        getRequiredProperties());
+
+    assertEquals(20, config.getMaxTotal());
+    assertEquals(4, config.getMinIdle());
+    assertEquals(30000L, config.getMaxWaitMillis());
+    assertNull(config.getValidationQuery());
+    assertTrue(config.isTestOnBorrow());
+  }
+
+  /**
+   * Test a maximum wait of -1, waiting indefinitely, is accepted, and zero and
+   * other negative waits are rejected.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testMaxWait() throws PersistenceException {
+    Properties properties = getRequiredProperties();
+    properties.setProperty(ConnectionPoolConfiguration.MAX_WAIT_MILLIS, "-1");
+
+    assertEquals(-1L,
+        new ConnectionPoolConfiguration(properties).getMaxWaitMillis());
+
+    for (String invalid : new String[] { "0", "-2" }) {
+      properties.setProperty(ConnectionPoolConfiguration.MAX_WAIT_MILLIS,
+          invalid);
+
+      try {
+        new ConnectionPoolConfiguration(properties);
+        fail("Invalid maximum wait accepted: " + invalid);
+      } catch (PersistenceException e) {
+        assertTrue(e.getMessage()
+            .contains(ConnectionPoolConfiguration.MAX_WAIT_MILLIS));
+      }
+    }
+  }
+
+  /**
+   * Test missing and invalid keys are all reported.
+   */
+  @Test
+  public void testInvalid() {
+    Properties properties = new Properties();
+    properties.setProperty(ConnectionPoolConfiguration.MAX_TOTAL, "many");
+    properties.setProperty(ConnectionPoolConfiguration.MIN_IDLE, "50");
+
+    try {
+      new ConnectionPoolConfiguration(properties);
+      fail("Invalid configuration accepted");
+    } catch (PersistenceException e) {
+      assertTrue(e.getMessage().contains(ConnectionPoolConfiguration.URL));
+      assertTrue(e.getMessage()
+          .contains(ConnectionPoolConfiguration.DRIVER_CLASS));
+      assertTrue(e.getMessage()
+          .contains(ConnectionPoolConfiguration.MAX_TOTAL));
+      assertTrue(e.getMessage()
+          .contains(ConnectionPoolConfiguration.MIN_IDLE));
+    }
+  }
+}
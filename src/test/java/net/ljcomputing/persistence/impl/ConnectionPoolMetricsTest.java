@@ -0,0 +1,120 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import net.ljcomputing.exception.PersistenceException;
+import net.ljcomputing.persistence.ConnectionPoolListener;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+/**
+ * Connection pool metrics JUnit tests.
+ * 
+ * @author James G. Willmore
+ */
+public class ConnectionPoolMetricsTest {
+
+  /**
+   * Test the histogram buckets and percentiles.
+   */
+  @Test
+  public void testHistogram() {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    for (int i = 0; i < 99; i++) {
+      histogram.record(1000L);
+    }
+
+    histogram.record(5000000L);
+
+    assertEquals(100, histogram.getCount());
+    assertEquals(5000, histogram.getMaxMicros());
+    assertTrue(histogram.getPercentileMicros(50.0) <= 2);
+    assertTrue(histogram.getPercentileMicros(100.0) >= 5000);
+  }
+
+  /**
+   * Test timeouts are told apart from other failures.
+   */
+  @Test
+  public void testTimeouts() {
+    ConnectionPoolMetrics metrics = new ConnectionPoolMetrics();
+    AtomicInteger timeouts = new AtomicInteger();
+
+    metrics.addListener(new ConnectionPoolListener() {
+      @Override
+      public void borrowTimedOut(final long waitNanos) {
+        timeouts.incrementAndGet();
+      }
+    });
+
+    metrics.failed(10L, new SQLException("Cannot get a connection",
+        new NoSuchElementException("Timeout waiting for idle object")));
+    metrics.failed(10L, new SQLException("Connection refused"));
+
+    assertEquals(1, metrics.getTimeoutCount());
+    assertEquals(1, metrics.getFailureCount());
+    assertEquals(1, timeouts.get());
+  }
+
+  /**
+   * Test borrows are counted and published through JMX.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testBorrow() throws Exception {
+    ConnectionPool pool = ConnectionPool.getInstance();
+    AtomicInteger borrowed = new AtomicInteger();
+    ConnectionPoolListener listener = new ConnectionPoolListener() {
+      @Override
+      public void connectionBorrowed(final long waitNanos) {
+        borrowed.incrementAndGet();
+      }
+    };
+    long before = pool.getBorrowCount();
+
+    pool.addListener(listener);
+
+    try (Connection connection = pool.getConnection()) {
+      assertFalse(connection.isClosed());
+      assertTrue(pool.getNumActive() >= 1);
+    } catch (SQLException exception) {
+      throw new PersistenceException(exception);
+    } finally {
+      pool.removeListener(listener);
+    }
+
+    assertEquals(1, borrowed.get());
+    assertTrue(pool.getBorrowCount() > before);
+    assertEquals(pool.getBorrowCount(), ManagementFactory
+        .getPlatformMBeanServer().getAttribute(
+            new ObjectName(ConnectionPool.OBJECT_NAME), "BorrowCount"));
+  }
+}
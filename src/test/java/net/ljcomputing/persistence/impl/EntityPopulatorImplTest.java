@@ -0,0 +1,114 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import net.ljcomputing.persistence.EntityPopulatorTest.Sample;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.junit.Test;
+
+/**
+ * Entity populator mapping plan cache JUnit tests.
+ * 
+ * @author James G. Willmore
+ */
+public class EntityPopulatorImplTest {
+
+  /** The query of the count and name columns. */
+  private static final String COUNT_AND_NAME = "select cast(3 as integer)"
+      + " as count, cast('alice' as varchar(10)) as name"
+      + " from sysibm.sysdummy1";
+
+  /** The query of the name and count columns, in the other order. */
+  private static final String NAME_AND_COUNT = "select"
+      + " cast('alice' as varchar(10)) as name, cast(3 as integer) as count"
+      + " from sysibm.sysdummy1";
+
+  /** The query of the count column, as a bigint. */
+  private static final String BIGINT_COUNT = "select cast(3 as bigint)"
+      + " as count from sysibm.sysdummy1";
+
+  /**
+   * Test the plan is reused across result sets of the same shape, and a new
+   * plan built for a result set of another shape.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testPlanCache() throws Exception {
+    EntityPopulatorImpl populator = new EntityPopulatorImpl(
+        AccessorStrategy.LAMBDA);
+    EntityMappingPlan plan = getPlan(populator, COUNT_AND_NAME);
+
+    assertSame(plan, getPlan(populator, COUNT_AND_NAME));
+    assertSame(plan, getPlan(new EntityPopulatorImpl(AccessorStrategy.LAMBDA),
+        COUNT_AND_NAME));
+    assertNotSame(plan, getPlan(populator, NAME_AND_COUNT));
+    assertNotSame(plan, getPlan(populator, BIGINT_COUNT));
+    assertNotSame(plan, getPlan(
+        new EntityPopulatorImpl(AccessorStrategy.REFLECTION), COUNT_AND_NAME));
+  }
+
+  /**
+   * Test each plan maps the columns of its own shape.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testPlanPopulates() throws Exception {
+    EntityPopulatorImpl populator = new EntityPopulatorImpl();
+
+    for (String query : new String[] { COUNT_AND_NAME, NAME_AND_COUNT }) {
+      try (Connection conn = ConnectionPool.getInstance().getConnection();
+          Statement statement = conn.createStatement();
+          ResultSet rs = statement.executeQuery(query)) {
+        Sample sample = new Sample();
+
+        assertTrue(rs.next());
+        populator.populate(sample, rs);
+        assertEquals(3, sample.getCount());
+        assertEquals("alice", sample.getName());
+      }
+    }
+  }
+
+  /**
+   * Gets the plan of the populator for the result set of the query.
+   *
+   * @param populator the populator
+   * @param query the query
+   * @return the plan
+   * @throws Exception the exception
+   */
+  private static EntityMappingPlan getPlan(
+      final EntityPopulatorImpl populator, final String query)
+      throws Exception {
+    try (Connection conn = ConnectionPool.getInstance().getConnection();
+        Statement statement = conn.createStatement();
+        ResultSet rs = statement.executeQuery(query)) {
+      return populator.getPlan(Sample.class, rs);
+    }
+  }
+}
@@ -0,0 +1,163 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence.impl;
+
+import net.ljcomputing.exception.PersistenceException;
+import net.ljcomputing.persistence.PoolEngine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contention benchmark of the pool engines. Each thread repeatedly borrows a
+ * connection, reads its auto commit mode, and returns it, against a pool of
+ * 20 connections at 8 to 256 threads.
+ * 
+ * <p>
+ * Run with <code>mvn test-compile</code> and then the main method of this class
+ * with the test classpath; it is not part of the unit test run.
+ * </p>
+ *
+ * @author James G. Willmore
+ */
+public final class PoolContentionBenchmark {
+
+  /** The Constant LOGGER. */
+  private final static Logger LOGGER = LoggerFactory
+      .getLogger(PoolContentionBenchmark.class);
+
+  /** The number of borrows per thread. */
+  private static final int BORROWS = 20000;
+
+  /** The thread counts. */
+  private static final int[] THREADS = { 8, 16, 32, 64, 128, 256 };
+
+  /** The engines. */
+  private static final String[] ENGINES = {
+      ConnectionPoolConfiguration.ENGINE_DBCP2,
+      ConnectionPoolConfiguration.ENGINE_NATIVE };
+
+  /**
+   * Instantiates a new pool contention benchmark.
+   */
+  private PoolContentionBenchmark() {
+  }
+
+  /**
+   * The main method.
+   *
+   * @param args the arguments
+   * @throws Exception the exception
+   */
+  public static void main(final String[] args) throws Exception {
+    for (final String name : ENGINES) {
+      final ConnectionPoolConfiguration config = getConfiguration();
+
+      try (PoolEngine engine = ConnectionPoolConfiguration.ENGINE_DBCP2
+          .equals(name) ? new DbcpPoolEngine(config)
+              : new ConcurrentBagPoolEngine(config)) {
+        run(engine, THREADS[0]);
+
+        for (final int threads : THREADS) {
+          final LongAdder waitNanos = new LongAdder();
+          final long start = System.nanoTime();
+          run(engine, threads, waitNanos);
+          final long elapsed = System.nanoTime() - start;
+          final long borrows = (long) threads * BORROWS;
+
+          LOGGER.info("{} x {} threads: {} borrows/s, {} us mean borrow", name,
+              threads, borrows * 1000000000L / elapsed,
+              String.format("%.2f", waitNanos.sum() / 1000.0 / borrows));
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the benchmark pool configuration.
+   *
+   * @return the configuration
+   * @throws PersistenceException the persistence exception
+   */
+  private static ConnectionPoolConfiguration getConfiguration()
+      throws PersistenceException {
+    final Properties properties = new Properties();
+    properties.setProperty(ConnectionPoolConfiguration.DRIVER_CLASS,
+        "org.apache.derby.jdbc.EmbeddedDriver");
+    properties.setProperty(ConnectionPoolConfiguration.URL,
+        "jdbc:derby:memory:benchmark;create=true");
+    properties.setProperty(ConnectionPoolConfiguration.TEST_ON_BORROW,
+        "false");
+    return new ConnectionPoolConfiguration(properties);
+  }
+
+  /**
+   * Warm up the engine with the given number of threads.
+   *
+   * @param engine the engine
+   * @param threads the threads
+   * @throws InterruptedException the interrupted exception
+   */
+  private static void run(final PoolEngine engine, final int threads)
+      throws InterruptedException {
+    run(engine, threads, new LongAdder());
+  }
+
+  /**
+   * Run the borrows of each thread, and wait for them all to finish.
+   *
+   * @param engine the engine
+   * @param threads the threads
+   * @param waitNanos the total borrow time
+   * @throws InterruptedException the interrupted exception
+   */
+  private static void run(final PoolEngine engine, final int threads,
+      final LongAdder waitNanos) throws InterruptedException {
+    final CountDownLatch ready = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(threads);
+
+    for (int t = 0; t < threads; t++) {
+      new Thread(() -> {
+        try {
+          ready.await();
+
+          for (int b = 0; b < BORROWS; b++) {
+            final long start = System.nanoTime();
+
+            try (Connection connection = engine.getConnection()) {
+              waitNanos.add(System.nanoTime() - start);
+              connection.getAutoCommit();
+            }
+          }
+        } catch (InterruptedException | SQLException exception) {
+          LOGGER.error("Borrow failed: ", exception);
+        } finally {
+          done.countDown();
+        }
+      }).start();
+    }
+
+    ready.countDown();
+    done.await();
+  }
+}
@@ -0,0 +1,185 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.persistence.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import net.ljcomputing.persistence.TestDatabase;
+import net.ljcomputing.persistence.impl.AbstractEntityMapper;
+import net.ljcomputing.persistence.impl.ConnectionPool;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Entity mapper processor JUnit tests, compiling a fixture with the processor.
+ * 
+ * @author James G. Willmore
+ */
+public class EntityMapperProcessorTest {
+
+  /** The fixture, with nested entities of the same simple name. */
+  private static final String FIXTURE = "package fixture;\n"
+      + "import net.ljcomputing.persistence.PersistentEntity;\n"
+      + "public class Outer {\n"
+      + "  @PersistentEntity\n"
+      + "  public static class Inner {\n"
+      + "    private int id;\n"
+      + "    private char grade;\n"
+      + "    private Character mark;\n"
+      + "    public int getId() { return id; }\n"
+      + "    public void setId(int id) { this.id = id; }\n"
+      + "    public char getGrade() { return grade; }\n"
+      + "    public void setGrade(char grade) { this.grade = grade; }\n"
+      + "    public Character getMark() { return mark; }\n"
+      + "    public void setMark(Character mark) { this.mark = mark; }\n"
+      + "  }\n"
+      + "  public static class Other {\n"
+      + "    @PersistentEntity\n"
+      + "    public static class Inner {\n"
+      + "      private String name;\n"
+      + "      public String getName() { return name; }\n"
+      + "      public void setName(String name) { this.name = name; }\n"
+      + "    }\n"
+      + "  }\n"
+      + "}\n";
+
+  /** The temporary folder. */
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * @throws java.lang.Exception
+   */
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    TestDatabase.initialize();
+  }
+
+  /**
+   * Test the mappers of nested entities are generated under flattened names,
+   * found at run time, and read NULL and empty char columns.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testNestedEntities() throws Exception {
+    File classes = compile();
+    String generated = new String(Files.readAllBytes(new File(classes,
+        "fixture/Outer_InnerEntityMapper.java").toPath()),
+        StandardCharsets.UTF_8);
+
+    assertFalse(generated.contains("@SuppressWarnings"));
+
+    try (URLClassLoader loader = new URLClassLoader(
+        new URL[] { classes.toURI().toURL() }, getClass().getClassLoader())) {
+      Class<?> inner = loader.loadClass("fixture.Outer$Inner");
+      Class<?> otherInner = loader.loadClass("fixture.Outer$Other$Inner");
+      AbstractEntityMapper<?> mapper = AbstractEntityMapper.find(inner);
+
+      assertEquals("fixture.Outer_InnerEntityMapper",
+          mapper.getClass().getName());
+      assertEquals("fixture.Outer_Other_InnerEntityMapper",
+          AbstractEntityMapper.find(otherInner).getClass().getName());
+      assertNull(AbstractEntityMapper.find(loader.loadClass("fixture.Outer")));
+
+      Object entity = inner.getDeclaredConstructor().newInstance();
+
+      try (Connection connection = ConnectionPool.getInstance()
+          .getConnection();
+          Statement statement = connection.createStatement();
+          ResultSet resultSet = statement.executeQuery("select 7 as id,"
+              + " cast(null as char(1)) as grade, '' as mark"
+              + " from sysibm.sysdummy1")) {
+        assertTrue(resultSet.next());
+        mapper.populate(entity, resultSet);
+      }
+
+      assertEquals(7, inner.getMethod("getId").invoke(entity));
+      assertEquals('\0', inner.getMethod("getGrade").invoke(entity));
+      assertEquals('\0', inner.getMethod("getMark").invoke(entity));
+    }
+  }
+
+  /**
+   * Compile the fixture with the processor.
+   *
+   * @return the directory of the generated sources and classes
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private File compile() throws IOException {
+    File sources = folder.newFolder("src");
+    File classes = folder.newFolder("classes");
+    File source = new File(sources, "fixture/Outer.java");
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    DiagnosticCollector<JavaFileObject> diagnostics =
+        new DiagnosticCollector<JavaFileObject>();
+
+    assertTrue(source.getParentFile().mkdirs());
+    Files.write(source.toPath(), FIXTURE.getBytes(StandardCharsets.UTF_8));
+
+    try (StandardJavaFileManager fileManager = compiler
+        .getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+      JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager,
+          diagnostics, Arrays.asList("-d",
+              classes.getPath(), "-s", classes.getPath(), "-classpath",
+              getClassPath()), null,
+          fileManager.getJavaFileObjects(source));
+
+      task.setProcessors(
+          Collections.singletonList(new EntityMapperProcessor()));
+      assertTrue(diagnostics.getDiagnostics().toString(), task.call());
+    }
+
+    return classes;
+  }
+
+  /**
+   * Gets the class path of the fixture: the main classes, and the test class
+   * path.
+   *
+   * @return the class path
+   */
+  private static String getClassPath() {
+    return new File(AbstractEntityMapper.class.getProtectionDomain()
+        .getCodeSource().getLocation().getPath()).getPath()
+        + File.pathSeparator + System.getProperty("java.class.path");
+  }
+}
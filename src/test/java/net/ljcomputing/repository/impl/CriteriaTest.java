@@ -0,0 +1,148 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.repository.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import net.ljcomputing.exception.PersistenceException;
+import net.ljcomputing.model.Person;
+import net.ljcomputing.persistence.TestDatabase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Criteria JUnit tests.
+ * 
+ * @author James G. Willmore
+ */
+public class CriteriaTest {
+
+  /**
+   * @throws java.lang.Exception
+   */
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    TestDatabase.initialize();
+  }
+
+  /**
+   * Test the generated clauses, and criteria of one shape share the SQL.
+   */
+  @Test
+  public void testClauses() {
+    Criteria criteria = Criteria.create().eq("name", "alice")
+        .between("id", 1, 9).in("id", Arrays.asList(1, 2)).orderByDesc("id")
+        .limit(5);
+
+    assertEquals(" where name = ? and id between ? and ? and id in (?,?)",
+        criteria.getWhereClause());
+    assertEquals(" order by id desc", criteria.getOrderByClause());
+    assertEquals(5, criteria.getLimit());
+    assertArrayEquals(criteria.getShape(), Criteria.create().eq("name", "bob")
+        .between("id", 2, 3).in("id", Arrays.asList(3, 4)).orderByDesc("id")
+        .getShape());
+    assertEquals("", Criteria.create().getWhereClause());
+  }
+
+  /**
+   * Test column names must be plain identifiers.
+   */
+  @Test
+  public void testInvalidColumn() {
+    try {
+      Criteria.create().eq("name = name or 1", 1);
+      fail("Invalid column accepted");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid column name: name = name or 1", e.getMessage());
+    }
+  }
+
+  /**
+   * Test the criteria filter in the database.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testFind() throws PersistenceException {
+    PersonRepositoryImpl repository = new PersonRepositoryImpl();
+    List<Person> people = new ArrayList<Person>();
+
+    for (String name : new String[] { "ivy", "jack", "kate" }) {
+      people.add(new Person(name));
+    }
+
+    repository.createAll(people, "name");
+
+    List<Person> found = repository.find(Criteria.create()
+        .in("name", Arrays.asList("ivy", "kate"))
+        .ge("id", people.get(0).getId()).orderByDesc("id"));
+
+    assertEquals(2, found.size());
+    assertEquals("kate", found.get(0).getName());
+    assertEquals("ivy", found.get(1).getName());
+    assertEquals(1, repository.find(Criteria.create().eq("name", "jack")
+        .ge("id", people.get(0).getId()).limit(1)).size());
+
+    for (Person person : people) {
+      repository.delete(person);
+    }
+  }
+
+  /**
+   * Test counts and aggregates run in the database.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testAggregates() throws PersistenceException {
+    PersonRepositoryImpl repository = new PersonRepositoryImpl();
+    List<Person> people = new ArrayList<Person>();
+
+    for (String name : new String[] { "liam", "mia", "mia" }) {
+      people.add(new Person(name));
+    }
+
+    long before = repository.count();
+    repository.createAll(people, "name");
+
+    int first = people.get(0).getId();
+    int last = people.get(2).getId();
+    Criteria mine = Criteria.create().ge("id", first);
+
+    assertEquals(before + 3, repository.count());
+    assertEquals(2, repository.count(Criteria.create().eq("name", "mia")
+        .ge("id", first)));
+    assertTrue(repository.existsById(first));
+    assertFalse(repository.existsById(-1));
+    assertEquals(last, repository.max("id").getAsLong());
+    assertTrue(repository.min("id").getAsLong() <= first);
+    assertTrue(repository.sum("id") >= first + (long) last);
+    assertEquals(3, repository.count(mine));
+
+    repository.deleteAll(Arrays.asList(first, people.get(1).getId(), last));
+    assertEquals(0, repository.count(mine));
+  }
+}
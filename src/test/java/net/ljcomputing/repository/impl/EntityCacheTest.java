@@ -0,0 +1,161 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.repository.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertNotSame;
+
+import net.ljcomputing.exception.PersistenceException;
+import net.ljcomputing.model.Person;
+import net.ljcomputing.persistence.TestDatabase;
+import net.ljcomputing.persistence.impl.UnitOfWork;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Entity cache JUnit tests.
+ * 
+ * @author James G. Willmore
+ */
+public class EntityCacheTest {
+
+  /**
+   * @throws java.lang.Exception
+   */
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    TestDatabase.initialize();
+  }
+
+  /**
+   * Disable the cache enabled by a test.
+   */
+  @After
+  public void tearDown() {
+    EntityCache.disable(TestTables.Person);
+  }
+
+  /**
+   * Test the least recently read models are evicted once the cache is full.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testEviction() throws PersistenceException {
+    EntityCache<Person> cache = new EntityCache<Person>(Person.class, 10, 1,
+        TimeUnit.MINUTES);
+
+    for (int id = 1; id <= 10; id++) {
+      cache.put(new Person(id, "p" + id), cache.stamp());
+    }
+
+    assertEquals("p1", cache.get(1).getName());
+    cache.put(new Person(11, "p11"), cache.stamp());
+
+    assertEquals(9, cache.getSize());
+    assertEquals(2, cache.getEvictions());
+    assertEquals("p1", cache.get(1).getName());
+    assertNull(cache.get(2));
+    assertNull(cache.get(3));
+    assertEquals(0.5, cache.getHitRatio(), 0.0);
+  }
+
+  /**
+   * Test models expire, and are not cached when invalidated while read.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testExpiryAndInvalidation() throws Exception {
+    EntityCache<Person> cache = new EntityCache<Person>(Person.class, 10, 20,
+        TimeUnit.MILLISECONDS);
+
+    cache.put(new Person(1, "alice"), cache.stamp());
+    Thread.sleep(50);
+    assertNull(cache.get(1));
+    assertEquals(1, cache.getExpirations());
+
+    long stamp = cache.stamp();
+    cache.invalidate(1);
+    cache.put(new Person(1, "alice"), stamp);
+    assertNull(cache.get(1));
+  }
+
+  /**
+   * Test the cache holds copies, so models put and read may be modified.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testCopies() throws PersistenceException {
+    EntityCache<Person> cache = new EntityCache<Person>(Person.class, 10, 1,
+        TimeUnit.MINUTES);
+    Person person = new Person(1, "kate");
+
+    cache.put(person, cache.stamp());
+    person.setName("KATE");
+
+    Person read = cache.get(1);
+    assertEquals("kate", read.getName());
+    assertEquals(Integer.valueOf(1), read.getId());
+
+    read.setName("Kate");
+    assertNotSame(read, cache.get(1));
+    assertEquals("kate", cache.get(1).getName());
+  }
+
+  /**
+   * Test repository reads are cached, and writes invalidate them.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testRepository() throws PersistenceException {
+    PersonRepositoryImpl repository = new PersonRepositoryImpl();
+    EntityCache<?> cache = EntityCache.enable(TestTables.Person, 100, 1,
+        TimeUnit.MINUTES);
+    Person person = new Person("irene");
+
+    repository.create(person, "name");
+
+    Person read = repository.readById(person.getId());
+    read.setName("IRENE");
+    assertEquals("irene", repository.readById(person.getId()).getName());
+    assertEquals(1, cache.getHits());
+
+    person.setName("IRENE");
+    repository.update(person, "name");
+    assertEquals("IRENE", repository.readById(person.getId()).getName());
+
+    try (UnitOfWork work = UnitOfWork.begin()) {
+      person.setName("Irene");
+      repository.update(person, "name");
+      assertEquals("Irene", repository.readById(person.getId()).getName());
+      work.commit();
+    }
+
+    assertEquals("Irene", repository.readById(person.getId()).getName());
+
+    repository.delete(person);
+    assertNull(repository.readById(person.getId()));
+  }
+}
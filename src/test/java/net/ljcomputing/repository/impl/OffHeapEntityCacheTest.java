@@ -0,0 +1,152 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.repository.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import net.ljcomputing.exception.PersistenceException;
+import net.ljcomputing.model.Person;
+import net.ljcomputing.persistence.TestDatabase;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Off heap entity cache JUnit tests.
+ * 
+ * @author James G. Willmore
+ */
+public class OffHeapEntityCacheTest {
+
+  /**
+   * @throws java.lang.Exception
+   */
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    TestDatabase.initialize();
+  }
+
+  /**
+   * Disable the caches enabled by a test.
+   */
+  @After
+  public void tearDown() {
+    EntityCache.disable(TestTables.Person);
+    OffHeapEntityCache.disable(TestTables.Person);
+  }
+
+  /**
+   * Test the index against a map, through growth and removals.
+   */
+  @Test
+  public void testIndex() {
+    IntLongIndex index = new IntLongIndex(16);
+    Map<Integer, Long> expected = new HashMap<Integer, Long>();
+    Random random = new Random(42);
+
+    for (int i = 0; i < 100000; i++) {
+      int key = random.nextInt(5000) - 100;
+
+      if (random.nextInt(3) == 0) {
+        Long value = expected.remove(key);
+        assertEquals(null == value ? IntLongIndex.NO_VALUE : (long) value,
+            index.remove(key));
+      } else {
+        expected.put(key, (long) i);
+        index.put(key, i);
+      }
+    }
+
+    assertEquals(expected.size(), index.size());
+
+    for (int key = -100; key < 4900; key++) {
+      Long value = expected.get(key);
+      assertEquals(null == value ? IntLongIndex.NO_VALUE : (long) value,
+          index.get(key));
+    }
+  }
+
+  /**
+   * Test the oldest models are evicted as the segments are reused.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testEviction() throws PersistenceException {
+    OffHeapEntityCache<Person> cache = new OffHeapEntityCache<Person>(
+        Person.class, 512, 2);
+
+    for (int id = 1; id <= 100; id++) {
+      cache.put(new Person(id, "person " + id), cache.stamp());
+    }
+
+    assertEquals(100, cache.getSize() + cache.getEvictions());
+    assertNull(cache.get(1));
+    assertEquals("person 100", cache.get(100).getName());
+    assertNotSame(cache.get(100), cache.get(100));
+
+    long stamp = cache.stamp();
+    cache.invalidate(100);
+    cache.put(new Person(100, "person 100"), stamp);
+    assertNull(cache.get(100));
+  }
+
+  /**
+   * Test repository reads go through both tiers, and writes invalidate them.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testRepository() throws PersistenceException {
+    PersonRepositoryImpl repository = new PersonRepositoryImpl();
+    OffHeapEntityCache<?> offHeap = OffHeapEntityCache.enable(
+        TestTables.Person, 1 << 20);
+    Person person = new Person("julia");
+
+    repository.create(person, "name");
+    assertEquals("julia", repository.readById(person.getId()).getName());
+    assertEquals("julia", repository.readById(person.getId()).getName());
+    assertEquals(1, offHeap.getHits());
+
+    EntityCache<?> onHeap = EntityCache.enable(TestTables.Person, 100, 1,
+        TimeUnit.MINUTES);
+    Person promoted = repository.readById(person.getId());
+    assertEquals("julia", promoted.getName());
+    assertEquals("julia", repository.readById(person.getId()).getName());
+    assertEquals(2, offHeap.getHits());
+    assertEquals(1, onHeap.getHits());
+
+    person.setName("JULIA");
+    repository.update(person, "name");
+    assertEquals("JULIA", repository.readByIds(
+        Collections.singletonList(person.getId()))
+        .get(person.getId()).getName());
+
+    repository.delete(person);
+    assertNull(repository.readById(person.getId()));
+    assertEquals(0, offHeap.getSize());
+  }
+}
@@ -0,0 +1,211 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.repository.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import net.ljcomputing.exception.PersistenceException;
+import net.ljcomputing.model.Person;
+import net.ljcomputing.persistence.TestDatabase;
+import net.ljcomputing.persistence.impl.UnitOfWork;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Query cache JUnit tests.
+ * 
+ * @author James G. Willmore
+ */
+public class QueryCacheTest {
+
+  /**
+   * @throws java.lang.Exception
+   */
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    TestDatabase.initialize();
+  }
+
+  /**
+   * Disable the cache enabled by a test.
+   */
+  @After
+  public void tearDown() {
+    QueryCache.disable(TestTables.Person);
+  }
+
+  /**
+   * Test results read before a write are not cached, and stale results make
+   * room for new results.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testVersions() throws PersistenceException {
+    QueryCache cache = new QueryCache(Person.class, 1);
+    long version = cache.version();
+
+    cache.bump();
+    cache.put("a", Collections.singletonList(new Person(1, "a")), version);
+    assertNull(cache.get("a"));
+
+    cache.put("a", Collections.singletonList(new Person(1, "a")),
+        cache.version());
+    assertEquals("a", cache.<Person> get("a").get(0).getName());
+
+    cache.bump();
+    cache.put("b", Collections.singletonList(new Person(2, "b")),
+        cache.version());
+    assertEquals("b", cache.<Person> get("b").get(0).getName());
+    assertEquals(1, cache.getSize());
+    assertEquals(0, cache.getEvictions());
+  }
+
+  /**
+   * Test a full cache of current results evicts the least recently read
+   * results to cache new ones.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testEviction() throws PersistenceException {
+    QueryCache cache = new QueryCache(Person.class, 10);
+
+    for (int k = 0; k < 10; k++) {
+      cache.put(k, Collections.singletonList(new Person(k, "p" + k)),
+          cache.version());
+    }
+
+    assertNotNull(cache.get(0));
+    cache.put(10, Collections.singletonList(new Person(10, "p10")),
+        cache.version());
+
+    assertEquals(2, cache.getEvictions());
+    assertEquals(9, cache.getSize());
+    assertNull(cache.get(1));
+    assertNull(cache.get(2));
+    assertEquals("p0", cache.<Person> get(0).get(0).getName());
+    assertEquals("p10", cache.<Person> get(10).get(0).getName());
+  }
+
+
+  /**
+   * Test the cache holds copies, so results put and read may be modified.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testCopies() throws PersistenceException {
+    QueryCache cache = new QueryCache(Person.class, 1);
+    List<Person> result = new ArrayList<Person>();
+
+    result.add(new Person(1, "lena"));
+    cache.put("a", result, cache.version());
+    result.get(0).setName("LENA");
+
+    List<Person> read = cache.get("a");
+    assertEquals("lena", read.get(0).getName());
+
+    read.get(0).setName("Lena");
+    read.add(new Person(2, "mona"));
+
+    List<Person> reread = cache.get("a");
+    assertNotSame(read, reread);
+    assertEquals(1, reread.size());
+    assertEquals("lena", reread.get(0).getName());
+  }
+
+  /**
+   * Test repository queries are cached per shape and parameters, until the
+   * table is written.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testRepository() throws PersistenceException {
+    PersonRepositoryImpl repository = new PersonRepositoryImpl();
+    QueryCache cache = QueryCache.enable(TestTables.Person, 100);
+    Person person = new Person("kate");
+
+    repository.create(person, "name");
+
+    List<Person> all = repository.readAll();
+    assertEquals(all.size(), repository.readAll().size());
+
+    List<Person> kates = repository.find(Criteria.create().eq("name", "kate"));
+    kates.get(0).setName("KATE");
+    assertEquals("kate", repository.find(Criteria.create()
+        .eq("name", "kate")).get(0).getName());
+    assertTrue(repository.find(Criteria.create().eq("name", "KATE"))
+        .isEmpty());
+    assertEquals(2, cache.getHits());
+
+    long version = cache.getVersion();
+
+    try (UnitOfWork work = UnitOfWork.begin()) {
+      person.setName("KATE");
+      repository.update(person, "name");
+      assertEquals(1, repository.find(Criteria.create().eq("name", "KATE"))
+          .size());
+      work.commit();
+    }
+
+    assertEquals(version + 2, cache.getVersion());
+    assertEquals(1, repository.find(Criteria.create().eq("name", "KATE"))
+        .size());
+    assertTrue(repository.find(Criteria.create().eq("name", "kate"))
+        .isEmpty());
+
+    repository.delete(person);
+    assertEquals(all.size() - 1, repository.readAll().size());
+  }
+
+  /**
+   * Test creating models through an upsert invalidates the cached results.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testUpsertAllCreated() throws PersistenceException {
+    PersonRepositoryImpl repository = new PersonRepositoryImpl();
+    QueryCache.enable(TestTables.Person, 100);
+    List<Person> people = Arrays.asList(new Person("olga"),
+        new Person("peter"));
+    int size = repository.readAll().size();
+
+    repository.upsertAll(people, "name");
+
+    List<Person> all = repository.readAll();
+    assertEquals(size + 2, all.size());
+
+    for (Person person : people) {
+      assertTrue(all.stream().anyMatch(p -> p.getId().equals(person.getId())));
+      repository.delete(person);
+    }
+  }
+}
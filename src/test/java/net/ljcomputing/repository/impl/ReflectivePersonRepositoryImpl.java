@@ -0,0 +1,39 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.repository.impl;
+
+import net.ljcomputing.exception.PersistenceException;
+import net.ljcomputing.model.ReflectivePerson;
+
+/**
+ * Reflective person repository implementation.
+ * 
+ * @author James G. Willmore
+ */
+public class ReflectivePersonRepositoryImpl
+    extends AbstractRepository<ReflectivePerson>
+    implements ModelRepository<ReflectivePerson> {
+
+  /**
+   * Instantiates a new reflective person repository impl.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  public ReflectivePersonRepositoryImpl() throws PersistenceException {
+    super(TestTables.ReflectivePerson);
+  }
+}
@@ -0,0 +1,203 @@
+/**
+           Copyright 2016, James G. Willmore
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package net.ljcomputing.repository.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import net.ljcomputing.exception.PersistenceException;
+import net.ljcomputing.model.Person;
+import net.ljcomputing.persistence.TestDatabase;
+import net.ljcomputing.persistence.impl.ConnectionPool;
+import net.ljcomputing.persistence.impl.UnitOfWork;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Replicated repository JUnit tests.
+ * 
+ * @author James G. Willmore
+ */
+public class ReplicatedRepositoryTest {
+
+  /**
+   * @throws java.lang.Exception
+   */
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    TestDatabase.initialize();
+  }
+
+  /**
+   * Test reads are served from the snapshot, and committed writes through the
+   * repository are replicated.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testReplication() throws PersistenceException {
+    try (PersonReplica replica = new PersonReplica()) {
+      Person person = new Person("laura");
+
+      replica.create(person, "name");
+
+      long borrows = ConnectionPool.getInstance().getBorrowCount();
+
+      assertEquals("laura", replica.readById(person.getId()).getName());
+      assertTrue(replica.existsById(person.getId()));
+      assertEquals(replica.count(), replica.readAll().size());
+      assertEquals(1, replica.readByIds(Collections.singletonList(
+          person.getId())).size());
+      assertEquals(borrows, ConnectionPool.getInstance().getBorrowCount());
+
+      try (UnitOfWork work = UnitOfWork.begin()) {
+        person.setName("LAURA");
+        replica.update(person, "name");
+        assertEquals("LAURA", replica.readById(person.getId()).getName());
+        assertFalse(work.isCompleted());
+      }
+
+      assertEquals("laura", replica.readById(person.getId()).getName());
+
+      try (UnitOfWork work = UnitOfWork.begin()) {
+        replica.update(person, "name");
+        work.commit();
+      }
+
+      assertEquals("LAURA", replica.readById(person.getId()).getName());
+
+      replica.delete(person);
+      assertNull(replica.readById(person.getId()));
+      assertFalse(replica.existsById(person.getId()));
+    }
+  }
+
+  /**
+   * Test reads return copies, so modifying a model read, or the list of all
+   * models, does not change the snapshot other readers see.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testCopies() throws PersistenceException {
+    try (PersonReplica replica = new PersonReplica()) {
+      Person person = new Person("nadia");
+
+      replica.create(person, "name");
+
+      Person read = replica.readById(person.getId());
+      read.setName("NADIA");
+      assertEquals("nadia", replica.readById(person.getId()).getName());
+
+      replica.readByIds(Collections.singletonList(person.getId()))
+          .get(person.getId()).setName("NADIA");
+      assertEquals("nadia", replica.readById(person.getId()).getName());
+
+      List<Person> all = replica.readAll();
+      all.clear();
+      assertEquals(replica.count(), replica.readAll().size());
+
+      replica.update(read, "name");
+      assertEquals("NADIA", replica.readById(person.getId()).getName());
+
+      replica.delete(person);
+    }
+  }
+
+  /**
+   * Test writes made elsewhere are seen once the replica is refreshed.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testRefresh() throws PersistenceException {
+    try (PersonReplica replica = new PersonReplica()) {
+      PersonRepositoryImpl repository = new PersonRepositoryImpl();
+      Person person = new Person("mike");
+
+      repository.create(person, "name");
+      assertNull(replica.readById(person.getId()));
+
+      replica.refresh();
+      assertEquals("mike", replica.readById(person.getId()).getName());
+
+      repository.delete(person);
+      replica.refresh();
+      assertNull(replica.readById(person.getId()));
+    }
+  }
+
+  /**
+   * Test models created by an upsert, and models inserted as no row has their
+   * id, are replicated without reloading the table.
+   *
+   * @throws PersistenceException the persistence exception
+   */
+  @Test
+  public void testUpsertAll() throws PersistenceException {
+    PersonRepositoryImpl repository = new PersonRepositoryImpl();
+
+    try (PersonReplica replica = new PersonReplica()) {
+      Person created = new Person("quinn");
+      Person inserted = new Person(Integer.MAX_VALUE, "rita");
+      Person unseen = new Person("sam");
+
+      replica.readAll();
+      repository.create(unseen, "name");
+      replica.upsertAll(Arrays.asList(created, inserted), "name");
+      assertNotEquals(Integer.valueOf(Integer.MAX_VALUE), inserted.getId());
+
+      assertEquals("quinn", replica.readById(created.getId()).getName());
+      assertEquals("rita", replica.readById(inserted.getId()).getName());
+      assertNull(replica.readById(unseen.getId()));
+
+      inserted.setName("RITA");
+      replica.update(inserted, "name");
+      assertEquals("RITA", replica.readById(inserted.getId()).getName());
+
+      replica.delete(created);
+      replica.delete(inserted);
+      repository.delete(unseen);
+      assertNull(replica.readById(created.getId()));
+    }
+  }
+
+  /**
+   * Replicated person repository.
+   */
+  private static final class PersonReplica
+      extends ReplicatedRepository<Person> {
+
+    /**
+     * Instantiates a new person replica.
+     *
+     * @throws PersistenceException the persistence exception
+     */
+    private PersonReplica() throws PersistenceException {
+      super(TestTables.Person);
+    }
+  }
+}
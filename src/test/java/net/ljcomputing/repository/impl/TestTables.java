@@ -18,6 +18,7 @@
 package net.ljcomputing.repository.impl;
 
 import net.ljcomputing.model.Person;
+import net.ljcomputing.model.ReflectivePerson;
 import net.ljcomputing.persistence.DataSourceTable;
 
 /**
@@ -26,7 +27,11 @@ import net.ljcomputing.persistence.DataSourceTable;
  * @author James G. Willmore
  */
 public enum TestTables implements DataSourceTable {
-  Person("person", DdlStatements.PERSON_DDL, Person.class);
+  Person("person", DdlStatements.PERSON_DDL, Person.class),
+
+  /** The person table, mapped to a model without a generated mapper. */
+  ReflectivePerson("person", DdlStatements.PERSON_DDL,
+      ReflectivePerson.class);
   
   /** The table name. */
   private String tableName;